@@ -0,0 +1,81 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to build a trie of every word, from put() to getTrie().
+ *
+ * @author carter
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class BuildBenchmark extends Dataset
+{
+    @Param( { "NODES", "DOUBLE_ARRAY", "RADIX" } )
+    public ImmutableTrieBuilder.Layout layout;
+
+    private List<Map.Entry<String, Integer>> entries;
+
+    @Setup
+    public void setup()
+    {
+        generate();
+        entries = new ArrayList<>( list.size() );
+        for( int i = 0; i < list.size(); i++ )
+        {
+            entries.add( new AbstractMap.SimpleImmutableEntry<>( list.get( i ), Words.value( i )));
+        }
+    }
+
+    @Benchmark
+    public ImmutableTrie<Integer> put()
+    {
+        return trie( layout, 0 );
+    }
+
+    @Benchmark
+    public ImmutableTrie<Integer> putWithTopK()
+    {
+        return trie( layout, 10 );
+    }
+
+    @Benchmark
+    public ImmutableTrie<Integer> putAll()
+    {
+        ImmutableTrieBuilder<Integer> builder = builder().layout( layout );
+        builder.putAll( entries );
+        return builder.getTrie();
+    }
+
+    /**
+     * Baseline; the layout does not apply.
+     */
+    @Benchmark
+    public TreeMap<String, Integer> treeMapPut()
+    {
+        return buildTreeMap();
+    }
+}
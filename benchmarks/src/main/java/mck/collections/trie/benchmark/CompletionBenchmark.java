@@ -0,0 +1,132 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.example.NaiveSuggestion;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import mck.collections.trie.impl.TrieNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the n best completions of a fragment: the first fragmentLength
+ * characters of a word for a prefix trie, or its last for a suffix trie.
+ * <p>
+ * Values decrease with a word's position in the generated list, so the naive
+ * baseline, which keeps the first n matches of a scan in list order, returns
+ * the same words as the trie.
+ *
+ * @author carter
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CompletionBenchmark extends Dataset
+{
+    @Param( { "NODES" } )
+    public ImmutableTrieBuilder.Layout layout;
+
+    @Param( { "1", "2", "3", "5" } )
+    public int fragmentLength;
+
+    @Param( { "1", "10", "100" } )
+    public int n;
+
+    /** number of best nodes precomputed per node; 0 for none */
+    @Param( { "0", "10" } )
+    public int topK;
+
+    private ImmutableTrie<Integer> trie;
+    private TreeMap<String, Integer> treeMap;
+    private List<String> naiveWords;
+    private String[] fragments;
+    private String[] fragmentKeys;
+    private TrieNode<Integer>[] buffer;
+    private int next;
+
+    @Setup
+    @SuppressWarnings( "unchecked" )
+    public void setup()
+    {
+        generate();
+        trie = trie( layout, topK );
+        treeMap = buildTreeMap();
+        naiveWords = new ArrayList<>( list.size() );
+        for( String word : list )
+        {
+            naiveWords.add( key( word ));
+        }
+        fragments = Words.fragments( list, QUERIES, fragmentLength, suffix(), SEED + 3 );
+        fragmentKeys = new String[QUERIES];
+        for( int i = 0; i < QUERIES; i++ )
+        {
+            fragmentKeys[i] = key( fragments[i] );
+        }
+        buffer = new TrieNode[n];
+    }
+
+    private int next()
+    {
+        return next = (next + 1) & (QUERIES - 1);
+    }
+
+    @Benchmark
+    public List<TrieNode<Integer>> bestNodesWith()
+    {
+        return trie.bestNodesWith( fragments[next()], n );
+    }
+
+    @Benchmark
+    public int bestNodesWithArray()
+    {
+        String fragment = fragments[next()];
+        return trie.bestNodesWith( fragment, fragment.length(), TrieNode.naturalOrder(), buffer );
+    }
+
+    /**
+     * Baseline: the range of the fragment's keys, and a heap of the n greatest
+     * values in it.
+     */
+    @Benchmark
+    public PriorityQueue<Integer> treeMap()
+    {
+        String from = fragmentKeys[next()];
+        PriorityQueue<Integer> best = new PriorityQueue<>( n + 1 );
+        for( Map.Entry<String, Integer> entry : treeMap.subMap( from, true, from + Character.MAX_VALUE, false ).entrySet() )
+        {
+            best.add( entry.getValue() );
+            if( best.size() > n )
+            {
+                best.poll();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Baseline: a scan of every word.
+     */
+    @Benchmark
+    public List<String> naive()
+    {
+        return NaiveSuggestion.find( naiveWords, fragmentKeys[next()], n );
+    }
+}
@@ -0,0 +1,83 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.List;
+import java.util.TreeMap;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parameters and data shared by the benchmarks: the words, and whether they are
+ * stored in a prefix or a suffix trie.
+ *
+ * @author carter
+ */
+@State( Scope.Benchmark )
+public abstract class Dataset
+{
+    static final long SEED = 20190401L;
+    /** number of query strings that each benchmark cycles through */
+    static final int QUERIES = 4096;
+
+    @Param( { "100000" } )
+    public int words;
+
+    @Param( { "PREFIX", "SUFFIX" } )
+    public String direction;
+
+    List<String> list;
+
+    void generate()
+    {
+        list = Words.generate( words, SEED );
+    }
+
+    boolean suffix()
+    {
+        return direction.equals( "SUFFIX" );
+    }
+
+    ImmutableTrieBuilder<Integer> builder()
+    {
+        return suffix() ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+    }
+
+    ImmutableTrie<Integer> trie( ImmutableTrieBuilder.Layout layout, int topK )
+    {
+        ImmutableTrieBuilder<Integer> builder = builder().layout( layout );
+        if( topK > 0 )
+        {
+            builder.topK( topK );
+        }
+        for( int i = 0; i < list.size(); i++ )
+        {
+            builder.put( list.get( i ), Words.value( i ));
+        }
+        return builder.getTrie();
+    }
+
+    /**
+     * The baseline: a sorted map, keyed by the words for a prefix trie and by the
+     * reversed words for a suffix trie, so that fragments are key ranges.
+     */
+    TreeMap<String, Integer> buildTreeMap()
+    {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for( int i = 0; i < list.size(); i++ )
+        {
+            map.put( key( list.get( i )), Words.value( i ));
+        }
+        return map;
+    }
+
+    /**
+     * @return the TreeMap key of a word or fragment
+     */
+    String key( String word )
+    {
+        return suffix() ? Words.reverse( word ) : word;
+    }
+}
@@ -0,0 +1,138 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import mck.collections.trie.impl.TrieNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of exact lookups of words that are in the trie (hits) and of words
+ * that are not (misses).
+ * <p>
+ * Run with -prof gc to see the allocation per lookup: gc.alloc.rate.norm is 0
+ * for getOrDefault and getNodeOrNull on the NODES layout, and for getOrDefault
+ * on DOUBLE_ARRAY, which AllocationFreeLookupTest checks in the unit tests.
+ *
+ * @author carter
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LookupBenchmark extends Dataset
+{
+    @Param( { "NODES", "DOUBLE_ARRAY", "RADIX" } )
+    public ImmutableTrieBuilder.Layout layout;
+
+    private ImmutableTrie<Integer> trie;
+    private TreeMap<String, Integer> treeMap;
+    private String[] hits;
+    private char[][] hitChars;
+    private String[] misses;
+    private String[] hitKeys;
+    private String[] missKeys;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        generate();
+        trie = trie( layout, 0 );
+        treeMap = buildTreeMap();
+        hits = Words.fragments( list, QUERIES, Integer.MAX_VALUE, false, SEED + 1 );
+        misses = Words.misses( list, QUERIES, SEED + 2 );
+        hitChars = new char[QUERIES][];
+        hitKeys = new String[QUERIES];
+        missKeys = new String[QUERIES];
+        for( int i = 0; i < QUERIES; i++ )
+        {
+            hitChars[i] = hits[i].toCharArray();
+            hitKeys[i] = key( hits[i] );
+            missKeys[i] = key( misses[i] );
+        }
+    }
+
+    private int next()
+    {
+        return next = (next + 1) & (QUERIES - 1);
+    }
+
+    @Benchmark
+    public Optional<Integer> getHit()
+    {
+        return trie.get( hits[next()] );
+    }
+
+    @Benchmark
+    public Optional<Integer> getMiss()
+    {
+        return trie.get( misses[next()] );
+    }
+
+    @Benchmark
+    public Optional<TrieNode<Integer>> getNodeHit()
+    {
+        return trie.getNode( hits[next()] );
+    }
+
+    @Benchmark
+    public Optional<TrieNode<Integer>> getNodeMiss()
+    {
+        return trie.getNode( misses[next()] );
+    }
+
+    @Benchmark
+    public Integer getOrDefaultHit()
+    {
+        char[] key = hitChars[next()];
+        return trie.getOrDefault( key, 0, key.length, null );
+    }
+
+    @Benchmark
+    public Integer getOrDefaultMiss()
+    {
+        String key = misses[next()];
+        return trie.getOrDefault( key, 0, key.length(), null );
+    }
+
+    @Benchmark
+    public TrieNode<Integer> getNodeOrNullHit()
+    {
+        char[] key = hitChars[next()];
+        return trie.getNodeOrNull( key, 0, key.length );
+    }
+
+    /**
+     * Baseline; the layout does not apply.
+     */
+    @Benchmark
+    public Integer treeMapHit()
+    {
+        return treeMap.get( hitKeys[next()] );
+    }
+
+    /**
+     * Baseline; the layout does not apply.
+     */
+    @Benchmark
+    public Integer treeMapMiss()
+    {
+        return treeMap.get( missKeys[next()] );
+    }
+}
@@ -0,0 +1,140 @@
+
+package mck.collections.trie.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.impl.ImmutableIntTrieBuilder;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import mck.collections.trie.util.ValueCodec;
+
+/**
+ * Memory retained per key by each representation, measured as the growth of the
+ * used heap, and of direct memory for the off-heap trie, after building it from
+ * words that are already in memory. It is not a JMH benchmark, since JMH
+ * measures time and allocation rather than retained size:
+ * <pre>
+ * java -cp target/benchmarks.jar mck.collections.trie.benchmark.MemoryFootprint [words]
+ * </pre>
+ *
+ * @author carter
+ */
+public class MemoryFootprint
+{
+    /** keeps the measured structure reachable while the heap is measured */
+    private static volatile Object retained;
+
+    public static void main( String[] args )
+    {
+        int count = args.length > 0 ? Integer.parseInt( args[0] ) : 1_000_000;
+        List<String> words = Words.generate( count, Dataset.SEED );
+        System.out.println( count + " words" );
+        for( boolean suffix : new boolean[] { false, true } )
+        {
+            String direction = suffix ? "suffix" : "prefix";
+            for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+            {
+                measure( direction + " " + layout, count, () -> build( words, suffix, layout, 0 ));
+            }
+            measure( direction + " NODES, topK 10", count, () -> build( words, suffix, ImmutableTrieBuilder.Layout.NODES, 10 ));
+            measure( direction + " ImmutableIntTrie", count, () -> intTrie( words, suffix ));
+            measureOffHeap( direction + " off-heap", count, words, suffix );
+            measure( direction + " TreeMap", count, () -> treeMap( words, suffix ));
+        }
+    }
+
+    private static ImmutableTrieBuilder<Integer> builder( List<String> words, boolean suffix, ImmutableTrieBuilder.Layout layout, int topK )
+    {
+        ImmutableTrieBuilder<Integer> builder = suffix ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+        builder.layout( layout );
+        if( topK > 0 )
+        {
+            builder.topK( topK );
+        }
+        for( int i = 0; i < words.size(); i++ )
+        {
+            builder.put( words.get( i ), Words.value( i ));
+        }
+        return builder;
+    }
+
+    private static Object build( List<String> words, boolean suffix, ImmutableTrieBuilder.Layout layout, int topK )
+    {
+        return builder( words, suffix, layout, topK ).getTrie();
+    }
+
+    private static Object intTrie( List<String> words, boolean suffix )
+    {
+        ImmutableIntTrieBuilder builder = suffix ? ImmutableIntTrieBuilder.suffix() : ImmutableIntTrieBuilder.prefix();
+        for( int i = 0; i < words.size(); i++ )
+        {
+            builder.put( words.get( i ), Words.value( i ));
+        }
+        return builder.getTrie();
+    }
+
+    private static Object treeMap( List<String> words, boolean suffix )
+    {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for( int i = 0; i < words.size(); i++ )
+        {
+            // the keys of a suffix map are reversed words, which are new strings
+            map.put( suffix ? Words.reverse( words.get( i )) : words.get( i ), Words.value( i ));
+        }
+        return map;
+    }
+
+    private static void measure( String name, int count, Supplier<Object> build )
+    {
+        long before = usedHeap();
+        retained = build.get();
+        long after = usedHeap();
+        retained = null;
+        report( name, count, after - before, 0 );
+    }
+
+    private static void measureOffHeap( String name, int count, List<String> words, boolean suffix )
+    {
+        long before = usedHeap();
+        long directBefore = usedDirect();
+        try( CloseableImmutableTrie<Integer> trie = builder( words, suffix, ImmutableTrieBuilder.Layout.NODES, 0 ).getOffHeapTrie( ValueCodec.integers() ))
+        {
+            long after = usedHeap();
+            report( name, count, after - before, usedDirect() - directBefore );
+            if( trie.size() != count )
+            {
+                throw new IllegalStateException( "expected " + count + " keys, found " + trie.size() );
+            }
+        }
+    }
+
+    private static void report( String name, int count, long heap, long direct )
+    {
+        System.out.printf( "%-32s %8.1f heap bytes/key %8.1f direct bytes/key%n", name, (double) heap / count, (double) direct / count );
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for( int i = 0; i < 5; i++ )
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedDirect()
+    {
+        for( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans( BufferPoolMXBean.class ))
+        {
+            if( pool.getName().equals( "direct" ))
+            {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
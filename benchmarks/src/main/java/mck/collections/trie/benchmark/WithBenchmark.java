@@ -0,0 +1,99 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.impl.ImmutableTrieBuilder;
+import mck.collections.trie.impl.TrieNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to enumerate every word with a broad fragment, of one or two characters,
+ * which matches thousands of words.
+ *
+ * @author carter
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class WithBenchmark extends Dataset
+{
+    @Param( { "NODES", "DOUBLE_ARRAY", "RADIX" } )
+    public ImmutableTrieBuilder.Layout layout;
+
+    @Param( { "1", "2" } )
+    public int fragmentLength;
+
+    private ImmutableTrie<Integer> trie;
+    private TreeMap<String, Integer> treeMap;
+    private String[] fragments;
+    private String[] fragmentKeys;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        generate();
+        trie = trie( layout, 0 );
+        treeMap = buildTreeMap();
+        fragments = Words.fragments( list, QUERIES, fragmentLength, suffix(), SEED + 4 );
+        fragmentKeys = new String[QUERIES];
+        for( int i = 0; i < QUERIES; i++ )
+        {
+            fragmentKeys[i] = key( fragments[i] );
+        }
+    }
+
+    private int next()
+    {
+        return next = (next + 1) & (QUERIES - 1);
+    }
+
+    @Benchmark
+    public List<ImmutableTrie.Entry<Integer>> with()
+    {
+        return trie.with( fragments[next()] );
+    }
+
+    @Benchmark
+    public List<TrieNode<Integer>> nodesWith()
+    {
+        return trie.nodesWith( fragments[next()] );
+    }
+
+    @Benchmark
+    public void stream( Blackhole blackhole )
+    {
+        trie.stream( fragments[next()] ).forEach( blackhole::consume );
+    }
+
+    /**
+     * Baseline; the layout does not apply.
+     */
+    @Benchmark
+    public void treeMap( Blackhole blackhole )
+    {
+        String from = fragmentKeys[next()];
+        for( Map.Entry<String, Integer> entry : treeMap.subMap( from, true, from + Character.MAX_VALUE, false ).entrySet() )
+        {
+            blackhole.consume( entry );
+        }
+    }
+}
@@ -0,0 +1,133 @@
+
+package mck.collections.trie.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic word lists, generated from a seed so that every run measures the
+ * same data: lowercase words of 1 to 14 letters, with roughly English letter
+ * frequencies and a bell-shaped length distribution.
+ *
+ * @author carter
+ */
+final class Words
+{
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+    /** approximate English letter frequencies, per mille, in the order of LETTERS */
+    private static final int[] FREQUENCIES = { 127, 91, 82, 75, 70, 67, 63, 61, 60, 43, 40, 28, 28, 24, 24, 22, 20, 20, 19, 15, 10, 8, 2, 2, 1, 1 };
+    private static final int MAX_LENGTH = 14;
+
+    private final char[] table;
+    private final Random random;
+
+    private Words( long seed )
+    {
+        int total = 0;
+        for( int f : FREQUENCIES )
+        {
+            total += f;
+        }
+        table = new char[total];
+        int t = 0;
+        for( int i = 0; i < FREQUENCIES.length; i++ )
+        {
+            for( int j = 0; j < FREQUENCIES[i]; j++ )
+            {
+                table[t++] = LETTERS.charAt( i );
+            }
+        }
+        random = new Random( seed );
+    }
+
+    /**
+     * @param count : number of distinct words
+     * @param seed  : the same seed gives the same words, in the same order
+     * @return
+     */
+    static List<String> generate( int count, long seed )
+    {
+        Words words = new Words( seed );
+        Set<String> result = new LinkedHashSet<>( count * 2 );
+        while( result.size() < count )
+        {
+            result.add( words.next() );
+        }
+        return new ArrayList<>( result );
+    }
+
+    private String next()
+    {
+        // the sum of three dice peaks around 7 letters
+        int length = Math.min( MAX_LENGTH, 1 + random.nextInt( 5 ) + random.nextInt( 5 ) + random.nextInt( 5 ));
+        char[] chars = new char[length];
+        for( int i = 0; i < length; i++ )
+        {
+            chars[i] = table[random.nextInt( table.length )];
+        }
+        return new String( chars );
+    }
+
+    /**
+     * Values follow a Zipf distribution over the words' positions, as
+     * frequencies of real words do.
+     *
+     * @param rank : position of a word in the generated list
+     * @return
+     */
+    static int value( int rank )
+    {
+        return (int) (1_000_000_000L / (rank + 1));
+    }
+
+    /**
+     * @param words  : generated words
+     * @param count  : number of fragments
+     * @param length : length of each fragment; shorter words are used whole
+     * @param suffix : take the last rather than the first characters
+     * @param seed   : chooses the words
+     * @return
+     */
+    static String[] fragments( List<String> words, int count, int length, boolean suffix, long seed )
+    {
+        Random random = new Random( seed );
+        String[] result = new String[count];
+        for( int i = 0; i < count; i++ )
+        {
+            String word = words.get( random.nextInt( words.size() ));
+            int l = Math.min( length, word.length() );
+            result[i] = suffix ? word.substring( word.length() - l ) : word.substring( 0, l );
+        }
+        return result;
+    }
+
+    /**
+     * @return words that are not in words, but share most of their characters with
+     *         words that are
+     */
+    static String[] misses( List<String> words, int count, long seed )
+    {
+        Set<String> present = new LinkedHashSet<>( words );
+        Random random = new Random( seed );
+        String[] result = new String[count];
+        int i = 0;
+        while( i < count )
+        {
+            String word = words.get( random.nextInt( words.size() ));
+            String miss = word.substring( 0, random.nextInt( word.length() + 1 )) + LETTERS.charAt( random.nextInt( LETTERS.length() )) + "qz";
+            if( !present.contains( miss ))
+            {
+                result[i++] = miss;
+            }
+        }
+        return result;
+    }
+
+    static String reverse( String word )
+    {
+        return new StringBuilder( word ).reverse().toString();
+    }
+}
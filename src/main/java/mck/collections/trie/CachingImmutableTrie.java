@@ -0,0 +1,37 @@
+
+package mck.collections.trie;
+
+/**
+ * An ImmutableTrie that memoizes the lists returned by bestWith, bestNodesWith
+ * and bestNodeWith, in a cache of bounded size; other queries go straight to
+ * the trie it wraps. Results are keyed by fragment, fragmentLength, n and the
+ * identity of the comparator, and since the trie cannot change, they never
+ * need to be invalidated.
+ * <p>
+ * Counters are updated without locking, and read as a sum of per-thread cells,
+ * so a count read during queries may already be out of date.
+ *
+ * @author carter
+ */
+public interface CachingImmutableTrie<V extends Comparable<V>> extends ImmutableTrie<V>
+{
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long hitCount();
+
+    /**
+     * @return the number of queries passed to the trie
+     */
+    public long missCount();
+
+    /**
+     * @return the number of results dropped to make room for others
+     */
+    public long evictionCount();
+
+    /**
+     * @return the number of results in the cache
+     */
+    public int cacheSize();
+}
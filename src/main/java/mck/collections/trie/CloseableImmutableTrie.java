@@ -0,0 +1,23 @@
+
+package mck.collections.trie;
+
+/**
+ * An ImmutableTrie that holds memory outside of the Java heap.
+ * <p>
+ * close() makes the trie unusable: a query that starts after close() has
+ * returned, on a thread that sees that it has, throws IllegalStateException;
+ * nodes obtained before, and queries in flight, either complete or throw an
+ * unchecked exception. The memory itself is released once nothing can reach it
+ * any more, so closing the trie while other threads still use it is safe.
+ *
+ * @author carter
+ */
+public interface CloseableImmutableTrie<V extends Comparable<V>> extends ImmutableTrie<V>, AutoCloseable
+{
+    /**
+     * Stop the trie from being used, so that its memory can be released;
+     * calling this more than once has no effect.
+     */
+    @Override
+    public void close();
+}
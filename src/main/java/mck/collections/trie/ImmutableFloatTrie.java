@@ -0,0 +1,23 @@
+
+package mck.collections.trie;
+
+/**
+ * An unmodifiable trie whose values are floats, stored without boxing.
+ *
+ * @author carter
+ */
+public interface ImmutableFloatTrie extends ImmutablePrimitiveTrie
+{
+    /**
+     * @param key          : the key
+     * @param defaultValue : the result if the key is absent
+     * @return the value of the key, or defaultValue
+     */
+    public float get( String key, float defaultValue );
+
+    /**
+     * @param node : the handle of a key-value node
+     * @return the value of the node
+     */
+    public float getValue( int node );
+}
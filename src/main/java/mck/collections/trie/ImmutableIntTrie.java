@@ -0,0 +1,23 @@
+
+package mck.collections.trie;
+
+/**
+ * An unmodifiable trie whose values are ints, stored without boxing.
+ *
+ * @author carter
+ */
+public interface ImmutableIntTrie extends ImmutablePrimitiveTrie
+{
+    /**
+     * @param key          : the key
+     * @param defaultValue : the result if the key is absent
+     * @return the value of the key, or defaultValue
+     */
+    public int get( String key, int defaultValue );
+
+    /**
+     * @param node : the handle of a key-value node
+     * @return the value of the node
+     */
+    public int getValue( int node );
+}
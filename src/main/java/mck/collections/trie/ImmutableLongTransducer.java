@@ -0,0 +1,50 @@
+
+package mck.collections.trie;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An unmodifiable map from keys to non-negative longs stored as a minimal
+ * finite-state transducer: like ImmutableWordGraph, keys share their common
+ * prefixes and suffixes, and a key's value is the sum of the outputs along its
+ * path, plus the output of its last state.
+ *
+ * @author carter
+ */
+public interface ImmutableLongTransducer
+{
+    /**
+     * @param key          : the key
+     * @param defaultValue : the result if the key is absent
+     * @return the value of the key, or defaultValue
+     */
+    public long get( String key, long defaultValue );
+
+    /**
+     * Like get(String, long), for key[offset, offset + length), without creating
+     * a substring.
+     */
+    public long get( CharSequence key, int offset, int length, long defaultValue );
+
+    public boolean containsKey( String key );
+
+    /**
+     * Pass every key with the fragment, and its value, to action, in the order
+     * the keys are walked.
+     *
+     * @param fragment : prefix for a prefix transducer and suffix for a suffix transducer
+     * @param action   : receives each key and its value
+     * @return the number of keys passed to action
+     */
+    public int forEachWith( String fragment, ObjLongConsumer<String> action );
+
+    /**
+     * @return the number of keys
+     */
+    public int size();
+
+    /**
+     * @return the number of states of the transducer
+     */
+    public int numStates();
+}
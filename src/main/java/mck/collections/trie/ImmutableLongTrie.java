@@ -0,0 +1,23 @@
+
+package mck.collections.trie;
+
+/**
+ * An unmodifiable trie whose values are longs, stored without boxing.
+ *
+ * @author carter
+ */
+public interface ImmutableLongTrie extends ImmutablePrimitiveTrie
+{
+    /**
+     * @param key          : the key
+     * @param defaultValue : the result if the key is absent
+     * @return the value of the key, or defaultValue
+     */
+    public long get( String key, long defaultValue );
+
+    /**
+     * @param node : the handle of a key-value node
+     * @return the value of the node
+     */
+    public long getValue( int node );
+}
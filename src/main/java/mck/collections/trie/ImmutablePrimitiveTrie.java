@@ -0,0 +1,54 @@
+
+package mck.collections.trie;
+
+/**
+ * The part of an unmodifiable trie with primitive values that doesn't depend on
+ * the type of values.
+ * <p>
+ * Nodes are int handles rather than objects, and top-n queries write handles
+ * into an array that the caller owns, so that queries don't allocate per node.
+ *
+ * @author carter
+ */
+public interface ImmutablePrimitiveTrie
+{
+    /**
+     * The handle returned for a node that doesn't exist.
+     */
+    public static final int NO_NODE = -1;
+
+    /**
+     * @param fragment : prefix for a prefix trie and suffix for a suffix trie
+     * @return the node for the fragment, or NO_NODE
+     */
+    public int getNode( String fragment );
+
+    public boolean containsKey( String key );
+
+    /**
+     * @param node : a node handle
+     * @return whether the node has a value
+     */
+    public boolean isKeyValueNode( int node );
+
+    /**
+     * @param node : a node handle
+     * @return the key of the node
+     */
+    public String getKey( int node );
+
+    /**
+     * Find the key-value nodes with the greatest values among those with the
+     * fragment, in descending order of value; ties are in no particular order.
+     *
+     * @param fragment : prefix for a prefix trie and suffix for a suffix trie
+     * @param nodes    : receives up to nodes.length node handles
+     * @return the number of handles written
+     */
+    public int bestNodesWith( String fragment, int[] nodes );
+
+    /**
+     * @return the number of keys
+     */
+    public int size();
+}
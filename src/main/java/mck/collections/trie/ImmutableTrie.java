@@ -9,6 +9,10 @@ package mck.collections.trie;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import mck.collections.trie.impl.TrieNode;
 
 /**
@@ -21,15 +25,19 @@ public interface ImmutableTrie<V extends Comparable<V>>
     public Optional<Entry<V>> best();
     public Optional<Entry<V>> best( Comparator<Entry<V>> comparator );
     public List<Entry<V>> best( Comparator<Entry<V>> comparator, int n );
+    public int best( Comparator<Entry<V>> comparator, int n, Consumer<? super Entry<V>> sink );
     
     public Optional<TrieNode<V>> bestNode();
     public Optional<TrieNode<V>> bestNode( Comparator<TrieNode<V>> comparator );
     public List<TrieNode<V>> bestNodes( Comparator<TrieNode<V>> comparator, int n );
+    public int bestNodes( Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink );
+    public int bestNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result );
     
     public Optional<Entry<V>> bestWith( String fragment );
     public Optional<Entry<V>> bestWith( String fragment, Comparator<TrieNode<V>> comparator );
     public List<Entry<V>> bestWith( String fragment, Comparator<TrieNode<V>> comparator, int n );
     public List<Entry<V>> bestWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n );
+    public int bestWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super Entry<V>> sink );
     
     public Optional<TrieNode<V>> bestNodeWith( String fragment );
     public Optional<TrieNode<V>> bestNodeWith( String fragment, Comparator<TrieNode<V>> comparator );
@@ -38,16 +46,78 @@ public interface ImmutableTrie<V extends Comparable<V>>
     public List<TrieNode<V>> bestNodesWith( String fragment, Comparator<TrieNode<V>> comparator, int n );
     public List<TrieNode<V>> bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n );
     
+    /*
+     * Top-n queries that pass their results to a sink, or write them into a
+     * caller's array with n = result.length, rather than allocating a list; they
+     * return the number of results.
+     */
+    public int bestNodesWith( String fragment, TrieNode<V>[] result );
+    public int bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, TrieNode<V>[] result );
+    public int bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink );
+    
+    /*
+     * Top-n queries for a batch of fragments, which are sorted so that their
+     * common prefixes (suffixes in a suffix trie) are walked once; the results
+     * are in the order of the fragments. With a pool, large batches are split
+     * across its threads.
+     */
+    public List<List<Entry<V>>> bestWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n );
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n );
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n, ForkJoinPool pool );
+    
+    /**
+     * @return a new cursor at the root, for completing a fragment as it's typed
+     */
+    public TrieCursor<V> cursor();
+    
+    /*
+     * Typo-tolerant completion: the best key-value nodes whose prefix (suffix in
+     * a SuffixTrie) is within maxEdits insertions, deletions or substitutions of
+     * fragment.
+     */
+    public List<Entry<V>> bestWithinDistance( String fragment, int maxEdits, int n );
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, int n );
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, Comparator<TrieNode<V>> comparator, int n );
+    
+    /*
+     * Keys that contain fragment anywhere; these need a trie built with
+     * ImmutableTrieBuilder.substringIndex(), and throw IllegalStateException
+     * otherwise.
+     */
+    public List<Entry<V>> withSubstring( String fragment );
+    public List<TrieNode<V>> nodesWithSubstring( String fragment );
+    public List<Entry<V>> bestWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n );
+    public List<TrieNode<V>> bestNodesWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n );
+    
     public Optional<V> get( String key );
     public Optional<TrieNode<V>> getNode( String key );
     
+    /*
+     * Lookups of key[offset, offset + length) that allocate neither a substring
+     * nor an Optional; absence is signalled by null or defaultValue.
+     */
+    public V getOrDefault( CharSequence key, int offset, int length, V defaultValue );
+    public V getOrDefault( char[] key, int offset, int length, V defaultValue );
+    public TrieNode<V> getNodeOrNull( CharSequence key, int offset, int length );
+    public TrieNode<V> getNodeOrNull( char[] key, int offset, int length );
+    
     public List<Entry<V>> with( String fragment );
     public List<Entry<V>> with( String fragment, int n );
     public List<TrieNode<V>> nodesWith( String fragment );
     public List<TrieNode<V>> nodesWith( String fragment, int n );
     
+    public Stream<Entry<V>> stream( String fragment );
+    public Stream<Entry<V>> stream( String fragment, int fragmentLength );
+    public Spliterator<Entry<V>> spliterator( String fragment );
+    public Spliterator<Entry<V>> spliterator( String fragment, int fragmentLength );
+    
     public int size();
     
+    /**
+     * @return the shape and estimated size of the trie, from a walk over its nodes
+     */
+    public TrieStats stats();
+    
     public interface Entry<V>
     {
         public String getKey();
@@ -0,0 +1,57 @@
+
+package mck.collections.trie;
+
+import java.util.List;
+
+/**
+ * An unmodifiable set of keys stored as a minimal acyclic word graph (DAWG):
+ * keys share their common suffixes as well as their common prefixes, so a state
+ * no longer stands for a single key, and keys are identified by their ordinal
+ * instead, their position in ascending order. Values can be kept by the caller
+ * in an array indexed by ordinal.
+ *
+ * @author carter
+ */
+public interface ImmutableWordGraph
+{
+    /**
+     * The ordinal returned for a key that doesn't exist.
+     */
+    public static final int NO_ORDINAL = -1;
+
+    public boolean containsKey( String key );
+
+    /**
+     * @param key : the key
+     * @return the position of the key in ascending order, or NO_ORDINAL
+     */
+    public int ordinal( String key );
+
+    /**
+     * Like ordinal(String), for key[offset, offset + length), without creating a
+     * substring.
+     */
+    public int ordinal( CharSequence key, int offset, int length );
+
+    /**
+     * @param ordinal : in [0, size())
+     * @return the key at that position in ascending order
+     */
+    public String getKey( int ordinal );
+
+    /**
+     * @param prefix : a prefix
+     * @return the keys that start with prefix, in ascending order
+     */
+    public List<String> keysWith( String prefix );
+
+    /**
+     * @return the number of keys
+     */
+    public int size();
+
+    /**
+     * @return the number of states of the graph
+     */
+    public int numStates();
+}
@@ -0,0 +1,21 @@
+
+package mck.collections.trie;
+
+import java.util.Comparator;
+
+/**
+ * A comparator that never ranks a node or entry above another one with a
+ * greater value: if compare(a, b) &gt; 0, then a's value is &gt;= b's value
+ * in the natural order of V.
+ * <p>
+ * Ties between equal values may be broken arbitrarily, e.g. by key. Tries can
+ * answer top-n queries for these comparators by visiting the sub-trees with the
+ * greatest values first, instead of sorting every candidate.
+ *
+ * @author carter
+ * @param <T> TrieNode or ImmutableTrie.Entry
+ */
+@FunctionalInterface
+public interface MonotoneComparator<T> extends Comparator<T>
+{
+}
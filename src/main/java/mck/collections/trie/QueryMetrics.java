@@ -0,0 +1,77 @@
+
+package mck.collections.trie;
+
+/**
+ * Receives a sample of each top-n query of a trie built with
+ * ImmutableTrieBuilder.metrics(QueryMetrics), that is of bestNodeWith,
+ * bestNodesWith and the bestWith methods that call them, with the time spent
+ * in each phase of the query.
+ * <p>
+ * Samples are recorded on the querying thread once the query is done, so
+ * implementations should be cheap and thread-safe.
+ *
+ * @author carter
+ */
+@FunctionalInterface
+public interface QueryMetrics
+{
+    public void record( Sample sample );
+
+    /**
+     * How the top n were selected from the sub-tree of the fragment.
+     */
+    public enum Selection
+    {
+        /** no key starts with the fragment */
+        NONE,
+        /** copied from the best key-value nodes precomputed at the node, see ImmutableTrieBuilder.topK */
+        PRECOMPUTED,
+        /** a best-first walk of the sub-tree, for a MonotoneComparator */
+        BEST_FIRST,
+        /** every key-value node of the sub-tree was collected and ranked */
+        SCAN
+    }
+
+    /**
+     * One query; times are in nanoseconds.
+     */
+    public interface Sample
+    {
+        /**
+         * @return the method called, such as "bestNodesWith"
+         */
+        public String getQuery();
+
+        /**
+         * @return the prefix, or the suffix for a suffix trie, that was queried
+         */
+        public String getFragment();
+
+        public Selection getSelection();
+
+        /**
+         * @return the time spent finding the node of the fragment
+         */
+        public long getLookupNanos();
+
+        /**
+         * @return the time spent collecting the key-value nodes of the sub-tree,
+         *         which is 0 unless the selection is SCAN
+         */
+        public long getCollectNanos();
+
+        /**
+         * @return the time spent ranking the key-value nodes and passing on the
+         *         best of them
+         */
+        public long getSelectNanos();
+
+        /**
+         * @return the key-value nodes ranked by a SCAN, or the nodes expanded by a
+         *         BEST_FIRST walk
+         */
+        public int getNodesVisited();
+
+        public int getResultCount();
+    }
+}
@@ -0,0 +1,65 @@
+
+package mck.collections.trie;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import mck.collections.trie.ImmutableTrie.Entry;
+import mck.collections.trie.impl.TrieNode;
+
+/**
+ * A fragment typed one character at a time, with the nodes along its path in
+ * an ImmutableTrie: advance and retreat move one node down or up, rather than
+ * walking the whole fragment again from the root, and the best key-value nodes
+ * are selected from the node of the fragment.
+ * <p>
+ * In a prefix trie, characters are appended to the fragment; in a suffix trie,
+ * they are prepended, in the order the trie walks keys. Characters that take
+ * the fragment off every key are still recorded, so that retreat undoes them
+ * one by one; while there are any, the fragment matches nothing.
+ * <p>
+ * A cursor holds a few small arrays and is not thread-safe; it's meant to be
+ * kept per user, or per input field.
+ *
+ * @author carter
+ */
+public interface TrieCursor<V extends Comparable<V>>
+{
+    /**
+     * @param c : the next character of the fragment
+     * @return true if some key has the fragment
+     */
+    public boolean advance( char c );
+
+    /**
+     * Remove the character that was advanced over last.
+     *
+     * @return true if some key has the fragment
+     * @throws IllegalStateException if the fragment is empty
+     */
+    public boolean retreat();
+
+    /**
+     * Go back to the empty fragment, at the root.
+     */
+    public void reset();
+
+    public String getFragment();
+
+    public int length();
+
+    /**
+     * @return true if some key has the fragment
+     */
+    public boolean matches();
+
+    /**
+     * @return the node of the fragment, or empty if it matches nothing
+     */
+    public Optional<TrieNode<V>> getNode();
+
+    public List<Entry<V>> best( int n );
+    public List<Entry<V>> best( Comparator<TrieNode<V>> comparator, int n );
+    public List<TrieNode<V>> bestNodes( int n );
+    public List<TrieNode<V>> bestNodes( Comparator<TrieNode<V>> comparator, int n );
+}
@@ -0,0 +1,52 @@
+
+package mck.collections.trie;
+
+/**
+ * The shape and estimated size of a trie, from one walk over its nodes.
+ * <p>
+ * Depths are in characters: the root is at depth 0, and a key-value node is at
+ * the depth of its key's length. In a path-compressed trie, only the explicit
+ * nodes are counted; in a double-array trie, nodes are its used states.
+ *
+ * @author carter
+ */
+public interface TrieStats
+{
+    public long getNodeCount();
+
+    public long getKeyValueNodeCount();
+
+    /**
+     * @return the number of nodes at each depth
+     */
+    public long[] getNodesByDepth();
+
+    /**
+     * @return the number of key-value nodes at each depth, that is of keys by length
+     */
+    public long[] getKeyValueNodesByDepth();
+
+    /**
+     * The fanout of the nodes at each depth, in buckets of powers of 2: bucket 0
+     * counts the leaves, and bucket b &gt; 0 the nodes with more than 2^(b - 2),
+     * and at most 2^(b - 1), children.
+     *
+     * @return the histogram of depth d, bucket b at [d][b]
+     */
+    public long[][] getFanoutHistogram();
+
+    /**
+     * @return the slots allocated for children, or for states, that hold none
+     */
+    public long getEmptySlots();
+
+    /**
+     * An estimate of the memory held by the trie, heap or direct, assuming
+     * compressed references; values are not included, but the arrays that
+     * index them, such as the key-value nodes and precomputed best key-value
+     * nodes, are.
+     *
+     * @return the estimated size, in bytes
+     */
+    public long getEstimatedBytes();
+}
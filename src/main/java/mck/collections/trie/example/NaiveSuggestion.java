@@ -13,6 +13,17 @@ public class NaiveSuggestion
     public static List<String> get( List<String> words, String prefix, int n )
     {
         final long start = System.nanoTime();
+        List<String> result = find( words, prefix, n );
+        final long stop = System.nanoTime();
+        System.out.println( result.size() + " word(s)\t" + (( stop - start )/1000000.0) + " milliseconds (naive)");
+        return result;
+    }
+
+    /**
+     * @return the first n words that start with prefix, in the order of words
+     */
+    public static List<String> find( List<String> words, String prefix, int n )
+    {
         List<String> result = new ArrayList<>( n );
         for( String word : words )
         {
@@ -25,8 +36,6 @@ public class NaiveSuggestion
                 break;
             }
         }
-        final long stop = System.nanoTime();
-        System.out.println( result.size() + " word(s)\t" + (( stop - start )/1000000.0) + " milliseconds (naive)");
         return result;
     }
 }
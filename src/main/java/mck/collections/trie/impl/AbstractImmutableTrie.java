@@ -1,13 +1,24 @@
 
 package mck.collections.trie.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static java.util.stream.Collectors.toList;
 import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.QueryMetrics;
+import mck.collections.trie.TrieCursor;
+import mck.collections.trie.TrieStats;
 import mck.collections.trie.util.ASCIICharacterSet;
 import mck.collections.trie.util.CharacterSet;
 
@@ -22,6 +33,10 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     protected TrieNode<V> root;
     protected int size;
     protected final CharacterSet characters;
+    /** built on request, by indexSubstrings */
+    private SubstringIndex<V> substrings;
+    /** receives a sample of each top-n query, if not null; see QueryProbe */
+    QueryMetrics metrics;
 
     protected AbstractImmutableTrie()
     {
@@ -31,7 +46,13 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     protected AbstractImmutableTrie( CharacterSet characters )
     {
         this.characters = characters;
-        root = new TrieNode<>( characters, (char) 0, 0 );
+        root = new TrieNode<>( (char) 0, 0 );
+    }
+
+    protected AbstractImmutableTrie( CharacterSet characters, TrieNode<V> root )
+    {
+        this.characters = characters;
+        this.root = root;
     }
 
     @Override
@@ -39,25 +60,31 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     {
         return getRoot()
                 .getBestKeyValueNode()
-                .map( ImmutableTrieEntryImpl::new );
+                .map( this::entry );
     }
 
     @Override
     public Optional<Entry<V>> best( Comparator<Entry<V>> comparator )
     {
-        return bestNode( new ImmutableTrieEntryComparatorAdapter<>( comparator ))
-                .map( ImmutableTrieEntryImpl::new );
+        return bestNode( ImmutableTrieEntryComparatorAdapter.adapt( comparator ))
+                .map( this::entry );
     }
 
     @Override
     public List<Entry<V>> best( Comparator<Entry<V>> comparator, int n )
     {
-        return bestNodes( new ImmutableTrieEntryComparatorAdapter<>( comparator ), n )
+        return bestNodes( ImmutableTrieEntryComparatorAdapter.adapt( comparator ), n )
                 .stream()
-                .map( ImmutableTrieEntryImpl::new )
+                .map( this::entry )
                 .collect( toList() );
     }
 
+    @Override
+    public int best( Comparator<Entry<V>> comparator, int n, Consumer<? super Entry<V>> sink )
+    {
+        return bestNodes( ImmutableTrieEntryComparatorAdapter.adapt( comparator ), n, node -> sink.accept( entry( node )));
+    }
+
     @Override
     public Optional<TrieNode<V>> bestNode( Comparator<TrieNode<V>> comparator )
     {
@@ -79,16 +106,28 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
         return getRoot().getBestKeyValueNodes( n, comparator );
     }
 
+    @Override
+    public int bestNodes( Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink )
+    {
+        return getRoot().getBestKeyValueNodes( n, comparator, sink );
+    }
+
+    @Override
+    public int bestNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result )
+    {
+        return getRoot().getBestKeyValueNodes( comparator, result );
+    }
+
     @Override
     public Optional<Entry<V>> bestWith( String fragment )
     {
-        return bestNodeWith( fragment ).map( ImmutableTrieEntryImpl::new );
+        return bestNodeWith( fragment ).map( this::entry );
     }
 
     @Override
     public Optional<Entry<V>> bestWith( String fragment, Comparator<TrieNode<V>> comparator )
     {
-        return bestNodeWith( fragment, comparator ).map( ImmutableTrieEntryImpl::new );
+        return bestNodeWith( fragment, comparator ).map( this::entry );
     }
 
     @Override
@@ -102,9 +141,15 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     {
         return bestNodesWith( fragment, fragmentLength, comparator, n )
                 .stream()
-                .map( ImmutableTrieEntryImpl::new )
+                .map( this::entry )
                 .collect( toList() );
     }
+
+    @Override
+    public int bestWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super Entry<V>> sink )
+    {
+        return bestNodesWith( fragment, fragmentLength, comparator, n, node -> sink.accept( entry( node )));
+    }
     
     @Override
     public List<Entry<V>> with( String fragment )
@@ -123,33 +168,94 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
         return node.get()
                 .getKeyValueChildren()
                 .stream()
-                .map( ImmutableTrieEntryImpl::new )
+                .map( this::entry )
                 .collect( toList() );
     }
 
+    @Override
+    public Stream<Entry<V>> stream( String fragment )
+    {
+        return stream( fragment, fragment.length() );
+    }
+
     /**
-     * Get the index for each character in an array.
+     * The same entries as with(fragment, fragmentLength), in the same order; they
+     * are created as the stream reaches them, so short-circuiting operations such
+     * as limit() or findFirst() only pay for the entries they consume.
      *
-     * @param chars : the chars of a prefix or suffix, from .toCharArray()
-     * @return indices of the chars according to TrieNode.CHAR_TO_INDEX_MAP, or
-     *         null if chars contains an unsupported character.
+     * @param fragment       : prefix for PrefixTrie and suffix for SuffixTrie
+     * @param fragmentLength : substring length of 'fragment'
+     * @return a sequential stream of the entries with the fragment
      */
-    protected int[] lookupIndices( char[] chars )
+    @Override
+    public Stream<Entry<V>> stream( String fragment, int fragmentLength )
     {
-        int[] indices = new int[chars.length];
-        for( int i = 0; i < chars.length; i++ )
+        return StreamSupport.stream( spliterator( fragment, fragmentLength ), false );
+    }
+
+    @Override
+    public Spliterator<Entry<V>> spliterator( String fragment )
+    {
+        return spliterator( fragment, fragment.length() );
+    }
+
+    @Override
+    public Spliterator<Entry<V>> spliterator( String fragment, int fragmentLength )
+    {
+        Optional<TrieNode<V>> node = getNode( fragment, fragmentLength );
+        if( node.isEmpty() )
         {
-            int index = characters.charToIndex( chars[i] );
-            if( index == -1 ) // unsupported character
-            {
-                return null;
-            }
-            else
+            return Spliterators.emptySpliterator();
+        }
+        return new ImmutableTrieEntrySpliterator<>( node.get().keyValueSpliterator(), this::entry );
+    }
+
+    /**
+     * @param node : a key-value node of this trie
+     * @return the entry returned by queries for the node
+     */
+    protected Entry<V> entry( TrieNode<V> node )
+    {
+        return new ImmutableTrieEntryImpl<>( node );
+    }
+
+    /**
+     * @return true if keys are walked from their last character, as in a SuffixTrie
+     */
+    protected boolean isReversed()
+    {
+        return false;
+    }
+
+    /**
+     * Walk one character down from node, as getNodeWithLongestCommonPart does;
+     * layouts whose nodes don't keep their children in TrieNode's arrays must
+     * override this.
+     *
+     * @param node : a node of this trie
+     * @param c    : the next character in the order the trie walks keys
+     * @return the child of node along c, or null if there is none
+     */
+    TrieNode<V> step( TrieNode<V> node, char c )
+    {
+        int index = characters.charToIndex( c );
+        return index >= 0 ? node.getChild( index ) : null;
+    }
+
+    /**
+     * @param key : a prefix or suffix
+     * @return true if every char of key is in this trie's character set
+     */
+    protected boolean isSupported( CharSequence key )
+    {
+        for( int i = 0, length = key.length(); i < length; i++ )
+        {
+            if( characters.charToIndex( key.charAt( i )) == -1 )
             {
-                indices[i] = index;
+                return false;
             }
         }
-        return indices;
+        return true;
     }
 
     /**
@@ -311,7 +417,7 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
      */
     public Optional<TrieNode<V>> bestNodeWith( String key, int fragmentLength )
     {
-        return bestNodeWith( key, fragmentLength, TrieNode::compareTo );
+        return bestNodeWith( key, fragmentLength, TrieNode.naturalOrder() );
     }
 
     /**
@@ -343,12 +449,26 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     @Override
     public Optional<TrieNode<V>> bestNodeWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator )
     {
+        QueryProbe probe = QueryProbe.start( metrics, "bestNodeWith", fragment, fragmentLength, isReversed() );
         TrieNode<V> node = getNodeWithLongestCommonPart( fragment, fragmentLength );
+        if( probe != null )
+        {
+            probe.lookedUp();
+        }
         if( node == null || node.level < fragmentLength )
         {
+            if( probe != null )
+            {
+                probe.finish( 0 );
+            }
             return null;
         }
-        return node.getBestKeyValueNode( comparator );
+        Optional<TrieNode<V>> best = node.getBestKeyValueNode( comparator, probe );
+        if( probe != null )
+        {
+            probe.finish( best.isPresent() ? 1 : 0 );
+        }
+        return best;
     }
 
     /**
@@ -360,7 +480,7 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     @Override
     public List<TrieNode<V>> bestNodesWith( String key, int n )
     {
-        return bestNodesWith( key, key.length(), TrieNode::compareTo, n );
+        return bestNodesWith( key, key.length(), TrieNode.naturalOrder(), n );
     }
     
     @Override
@@ -385,14 +505,259 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
     @Override
     public List<TrieNode<V>> bestNodesWith( String key, int fragmentLength, Comparator<TrieNode<V>> comparator, int n )
     {
+        QueryProbe probe = QueryProbe.start( metrics, "bestNodesWith", key, fragmentLength, isReversed() );
         TrieNode<V> node = getNodeWithLongestCommonPart( key, fragmentLength );
+        if( probe != null )
+        {
+            probe.lookedUp();
+        }
         if( node == null
             ||
             node.level < fragmentLength )
         {
+            if( probe != null )
+            {
+                probe.finish( 0 );
+            }
             return Collections.emptyList();
         }
-        return node.getBestKeyValueNodes( n, comparator );
+        List<TrieNode<V>> best = node.getBestKeyValueNodes( n, comparator, probe );
+        if( probe != null )
+        {
+            probe.finish( best.size() );
+        }
+        return best;
+    }
+
+    @Override
+    public TrieCursor<V> cursor()
+    {
+        return new TrieCursorImpl<>( this );
+    }
+
+    @Override
+    public List<Entry<V>> bestWithinDistance( String fragment, int maxEdits, int n )
+    {
+        return bestNodesWithinDistance( fragment, maxEdits, TrieNode.naturalOrder(), n )
+                .stream()
+                .map( this::entry )
+                .collect( toList() );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, int n )
+    {
+        return bestNodesWithinDistance( fragment, maxEdits, TrieNode.naturalOrder(), n );
+    }
+
+    /**
+     * Typo-tolerant bestNodesWith: the best key-value nodes prefixed, for
+     * PrefixTrie, or suffixed, for SuffixTrie, with any string within maxEdits
+     * insertions, deletions or substitutions of fragment. Only the sub-trees
+     * within the edit budget are visited; see EditDistanceSearch.
+     *
+     * @param fragment   : prefix for PrefixTrie and suffix for SuffixTrie
+     * @param maxEdits   : the greatest edit distance from fragment
+     * @param comparator : a comparator for comparison of key-value nodes
+     * @param n          : number of top key-value nodes to retrieve
+     * @return the best key-value nodes according to comparator
+     */
+    @Override
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return EditDistanceSearch.best( EditDistanceSearch.matches( getRoot(), walkOrder( fragment ), maxEdits ), n, comparator );
+    }
+
+    @Override
+    public List<List<Entry<V>>> bestWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n )
+    {
+        List<List<TrieNode<V>>> nodes = bestNodesWith( fragments, comparator, n );
+        List<List<Entry<V>>> result = new ArrayList<>( nodes.size() );
+        for( List<TrieNode<V>> best : nodes )
+        {
+            result.add( best.stream().map( this::entry ).collect( toList() ));
+        }
+        return result;
+    }
+
+    /**
+     * bestNodesWith(fragment, comparator, n) for each of fragments; the fragments
+     * are sorted so that the nodes of a common prefix, or suffix for SuffixTrie,
+     * are walked once; see BatchSearch.
+     *
+     * @param fragments  : prefixes for PrefixTrie and suffixes for SuffixTrie
+     * @param comparator : a comparator for comparison of key-value nodes
+     * @param n          : number of top key-value nodes to retrieve per fragment
+     * @return the best key-value nodes of each fragment, in the order of
+     *         fragments; equal fragments share the same list
+     */
+    @Override
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return new BatchSearch<>( this, fragments, comparator, n ).run( null );
+    }
+
+    /**
+     * Like bestNodesWith(List, Comparator, int), with large batches split into
+     * runs of sorted fragments that are searched in parallel on pool.
+     */
+    @Override
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n, ForkJoinPool pool )
+    {
+        Objects.requireNonNull( pool, "pool cannot be null" );
+        return new BatchSearch<>( this, fragments, comparator, n ).run( pool );
+    }
+
+    @Override
+    public List<Entry<V>> withSubstring( String fragment )
+    {
+        return nodesWithSubstring( fragment )
+                .stream()
+                .map( this::entry )
+                .collect( toList() );
+    }
+
+    /**
+     * @param fragment : any part of a key
+     * @return the key-value nodes whose key contains fragment, in depth-first order
+     * @throws IllegalStateException if the trie was built without a substring index
+     */
+    @Override
+    public List<TrieNode<V>> nodesWithSubstring( String fragment )
+    {
+        return substringIndex().nodesWith( walkOrder( fragment ));
+    }
+
+    @Override
+    public List<Entry<V>> bestWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return bestNodesWithSubstring( fragment, comparator, n )
+                .stream()
+                .map( this::entry )
+                .collect( toList() );
+    }
+
+    /**
+     * Like bestNodesWith, for keys that contain fragment anywhere; this reads
+     * one entry of the index per occurrence of fragment, see SubstringIndex.
+     *
+     * @param fragment   : any part of a key
+     * @param comparator : a comparator for comparison of key-value nodes
+     * @param n          : number of top key-value nodes to retrieve
+     * @return the best key-value nodes according to comparator
+     * @throws IllegalStateException if the trie was built without a substring index
+     */
+    @Override
+    public List<TrieNode<V>> bestNodesWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return substringIndex().bestNodesWith( walkOrder( fragment ), comparator, n );
+    }
+
+    /**
+     * One walk over the nodes of the trie; see TrieStats.
+     */
+    @Override
+    public TrieStats stats()
+    {
+        TrieStatsImpl stats = new TrieStatsImpl();
+        TrieNode<V> root = getRoot();
+        collectStats( root, stats );
+        stats.addBytes( TrieStatsImpl.arrayBytes( root.keyValueNodes ));
+        stats.addBytes( substringIndexBytes() );
+        return stats;
+    }
+
+    private static <V extends Comparable<V>> void collectStats( TrieNode<V> node, TrieStatsImpl stats )
+    {
+        int count = node.getNumChildren();
+        stats.addNode( node.level, count, node.isKeyValueNode() );
+        stats.addBytes( node.estimatedBytes() );
+        stats.addEmptySlots( node.emptySlots() );
+        for( int i = 0; i < count; i++ )
+        {
+            collectStats( node.childAt( i ), stats );
+        }
+    }
+
+    /**
+     * @return the estimated size of the substring index, or 0 if it wasn't built
+     */
+    long substringIndexBytes()
+    {
+        return substrings == null ? 0 : substrings.estimatedBytes();
+    }
+
+    private SubstringIndex<V> substringIndex()
+    {
+        if( substrings == null )
+        {
+            throw new IllegalStateException( "the trie was built without a substring index" );
+        }
+        return substrings;
+    }
+
+    /**
+     * @return the chars of fragment in the order the trie walks keys
+     */
+    char[] walkOrder( String fragment )
+    {
+        char[] chars = fragment.toCharArray();
+        if( isReversed() )
+        {
+            for( int i = 0, j = chars.length - 1; i < j; i++, j-- )
+            {
+                char c = chars[i];
+                chars[i] = chars[j];
+                chars[j] = c;
+            }
+        }
+        return chars;
+    }
+
+    @Override
+    public int bestNodesWith( String key, TrieNode<V>[] result )
+    {
+        return bestNodesWith( key, key.length(), TrieNode.naturalOrder(), result );
+    }
+
+    /**
+     * Like bestNodesWith(String, int, Comparator, int), with n = result.length,
+     * writing the nodes into result rather than a new list.
+     *
+     * @return the number of nodes written to result
+     */
+    @Override
+    public int bestNodesWith( String key, int fragmentLength, Comparator<TrieNode<V>> comparator, TrieNode<V>[] result )
+    {
+        QueryProbe probe = QueryProbe.start( metrics, "bestNodesWith", key, fragmentLength, isReversed() );
+        TrieNode<V> node = getNodeWithLongestCommonPart( key, fragmentLength );
+        if( probe != null )
+        {
+            probe.lookedUp();
+        }
+        int count = node == null || node.level < fragmentLength ? 0 : node.getBestKeyValueNodes( comparator, result, probe );
+        if( probe != null )
+        {
+            probe.finish( count );
+        }
+        return count;
+    }
+
+    @Override
+    public int bestNodesWith( String key, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink )
+    {
+        QueryProbe probe = QueryProbe.start( metrics, "bestNodesWith", key, fragmentLength, isReversed() );
+        TrieNode<V> node = getNodeWithLongestCommonPart( key, fragmentLength );
+        if( probe != null )
+        {
+            probe.lookedUp();
+        }
+        int count = node == null || node.level < fragmentLength ? 0 : node.getBestKeyValueNodes( n, comparator, sink, probe );
+        if( probe != null )
+        {
+            probe.finish( count );
+        }
+        return count;
     }
     
     @Override
@@ -403,6 +768,83 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
                 .orElse( Optional.empty() );
     }
 
+    /**
+     * Like getNode(String), without allocating: no Optional, and, for the NODES
+     * layout, no substring of key is created. Other layouts may create a view of
+     * the node.
+     *
+     * @param key    : holds a prefix for PrefixTrie and a suffix for SuffixTrie
+     * @param offset : first char of the prefix or suffix in key
+     * @param length : length of the prefix or suffix
+     * @return the node, or null if there is none
+     */
+    @Override
+    public TrieNode<V> getNodeOrNull( CharSequence key, int offset, int length )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length() );
+        TrieNode<V> node = getNodeWithLongestCommonPart( key, offset, length );
+        return node.level == length ? node : null;
+    }
+
+    @Override
+    public TrieNode<V> getNodeOrNull( char[] key, int offset, int length )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length );
+        TrieNode<V> node = getNodeWithLongestCommonPart( key, offset, length );
+        return node.level == length ? node : null;
+    }
+
+    @Override
+    public V getOrDefault( CharSequence key, int offset, int length, V defaultValue )
+    {
+        TrieNode<V> node = getNodeOrNull( key, offset, length );
+        V value = node == null ? null : node.valueOrNull();
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public V getOrDefault( char[] key, int offset, int length, V defaultValue )
+    {
+        TrieNode<V> node = getNodeOrNull( key, offset, length );
+        V value = node == null ? null : node.valueOrNull();
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Prepare the built trie for queries: annotate every node with the greatest
+     * value of its sub-tree, which lets top-n queries with a MonotoneComparator
+     * skip sub-trees that cannot contribute; and store every key-value node in one
+     * array, in depth-first order, so that each sub-tree's key-value nodes are a
+     * range of it. This is only meant to be called by builders, after the last put.
+     */
+    @SuppressWarnings( "unchecked" )
+    protected void freeze()
+    {
+        root.annotateMaxValues();
+        root.numberKeyValueNodes( new TrieNode[size], 0 );
+    }
+
+    /**
+     * Store the best k key-value nodes, in descending natural order, at every node,
+     * so that top-n queries with n &lt;= k don't have to visit the sub-tree.
+     * This is only meant to be called by builders, after the last put.
+     *
+     * @param k : number of key-value nodes to keep per node
+     */
+    protected void precomputeBestKeyValueNodes( int k )
+    {
+        root.precomputeBestKeyValueNodes( k );
+    }
+
+    /**
+     * Index every substring of the keys, for withSubstring and its variants.
+     * This is only meant to be called by builders, after the trie is frozen.
+     */
+    protected void indexSubstrings()
+    {
+        substrings = SubstringIndex.of( getRoot().getKeyValueChildren() );
+    }
+
     /**
      * inserts a key and its value, a key-value pair into
      * this trie -- this is only meant to be called by builders.
@@ -427,4 +869,21 @@ public abstract class AbstractImmutableTrie<V extends Comparable<V>> implements
      * @return the node that has the longest common suffix with word
      */
     protected abstract TrieNode<V> getNodeWithLongestCommonPart( String key, int fragmentLength );
+
+    /**
+     * Walk as far as possible along key[offset, offset + length), from its first
+     * char for PrefixTrie and from its last for SuffixTrie; the range has been
+     * checked by the caller.
+     *
+     * @param key    : holds a prefix or suffix
+     * @param offset : first char of the prefix or suffix in key
+     * @param length : length of the prefix or suffix
+     * @return the deepest node reached
+     */
+    protected abstract TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length );
+
+    /**
+     * See getNodeWithLongestCommonPart(CharSequence, int, int).
+     */
+    protected abstract TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length );
 }
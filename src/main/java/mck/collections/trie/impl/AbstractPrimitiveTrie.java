@@ -0,0 +1,250 @@
+
+package mck.collections.trie.impl;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import mck.collections.trie.ImmutablePrimitiveTrie;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ *
+ * the structure shared by tries with primitive values: the base/check arrays of
+ * a double-array trie, plus, per state, the key-value state of its sub-tree with
+ * the greatest value, which lets top-n queries visit sub-trees best first.
+ * <p>
+ * Subclasses store one value per state, and compare the values of two states.
+ */
+abstract class AbstractPrimitiveTrie implements ImmutablePrimitiveTrie
+{
+    private static final int ROOT = 0;
+
+    final CharacterSet characters;
+    final int[] base;
+    final int[] check;
+    /** one bit per state, set for key-value states */
+    final long[] keyValueStates;
+    /** true if keys are walked from their last character, as in a suffix trie */
+    final boolean reversed;
+    private final int size;
+    /** per state, a key-value state of its sub-tree with the greatest value, or NO_NODE */
+    private int[] maxStates;
+
+    /**
+     * @param ordinals : a double-array trie whose values are ordinals into the
+     *                 subclass's values
+     */
+    AbstractPrimitiveTrie( ImmutableDoubleArrayTrieImpl<Integer> ordinals )
+    {
+        this.characters = ordinals.characters;
+        this.base = ordinals.base.array();
+        this.check = ordinals.check.array();
+        this.keyValueStates = ordinals.keyValueStates.array();
+        this.reversed = ordinals.reversed;
+        this.size = ordinals.size();
+    }
+
+    /**
+     * @return negative, zero or positive as the value of stateA is less than,
+     *         equal to or greater than the value of stateB
+     */
+    abstract int compareValues( int stateA, int stateB );
+
+    /**
+     * Find the greatest value of every sub-tree; subclasses call this once their
+     * values are set.
+     */
+    final void annotate()
+    {
+        int numStates = check.length;
+        int[] order = ImmutableDoubleArrayTrieImpl.breadthFirstOrder( ImmutableDoubleArrayTrieImpl.children( IntBuffer.wrap( check )));
+        int[] max = new int[numStates];
+        Arrays.fill( max, NO_NODE );
+        for( int i = order.length - 1; i >= 0; i-- )
+        {
+            int state = order[i];
+            if( isKeyValueNode( state ) && (max[state] == NO_NODE || compareValues( state, max[state] ) > 0) )
+            {
+                max[state] = state;
+            }
+            if( state != ROOT )
+            {
+                int parent = check[state];
+                if( max[state] != NO_NODE && (max[parent] == NO_NODE || compareValues( max[state], max[parent] ) > 0) )
+                {
+                    max[parent] = max[state];
+                }
+            }
+        }
+        maxStates = max;
+    }
+
+    final int transition( int state, int index )
+    {
+        int child = base[state] + index;
+        return child < check.length && check[child] == state ? child : -1;
+    }
+
+    @Override
+    public final int getNode( String fragment )
+    {
+        int state = ROOT;
+        int last = fragment.length() - 1;
+        for( int i = 0; i <= last; i++ )
+        {
+            int index = characters.charToIndex( fragment.charAt( reversed ? last - i : i ));
+            state = index >= 0 ? transition( state, index ) : -1;
+            if( state < 0 )
+            {
+                return NO_NODE;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public final boolean containsKey( String key )
+    {
+        int node = getNode( key );
+        return node != NO_NODE && isKeyValueNode( node );
+    }
+
+    @Override
+    public final boolean isKeyValueNode( int node )
+    {
+        return (keyValueStates[node >>> 6] & (1L << node)) != 0;
+    }
+
+    @Override
+    public final String getKey( int node )
+    {
+        int level = 0;
+        for( int s = node; s != ROOT; s = check[s] )
+        {
+            level++;
+        }
+        char[] keyChars = new char[level];
+        int s = node;
+        for( int offset = level - 1; offset >= 0; offset-- )
+        {
+            keyChars[offset] = characters.indexToChar( s - base[check[s]] );
+            s = check[s];
+        }
+        return new String( keyChars );
+    }
+
+    /**
+     * Visit sub-trees in descending order of their greatest value, and stop as
+     * soon as the array is full.
+     */
+    @Override
+    public final int bestNodesWith( String fragment, int[] nodes )
+    {
+        int state = getNode( fragment );
+        if( state == NO_NODE || nodes.length == 0 || maxStates[state] == NO_NODE )
+        {
+            return 0;
+        }
+        Frontier frontier = new Frontier();
+        frontier.add( state );
+        int count = 0;
+        while( count < nodes.length && frontier.size > 0 )
+        {
+            int head = frontier.poll();
+            if( head < 0 )
+            {
+                nodes[count++] = ~head;
+                continue;
+            }
+            if( isKeyValueNode( head ))
+            {
+                frontier.add( ~head );
+            }
+            for( int index = 0, n = characters.size(); index < n; index++ )
+            {
+                int child = transition( head, index );
+                if( child >= 0 && maxStates[child] != NO_NODE )
+                {
+                    frontier.add( child );
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public final int size()
+    {
+        return size;
+    }
+
+    /**
+     * A binary heap of sub-trees, as their state, and of key-value nodes, as the
+     * complement of their state; the head has the greatest value.
+     */
+    private final class Frontier
+    {
+        int[] heap = new int[16];
+        int size;
+
+        void add( int entry )
+        {
+            if( size == heap.length )
+            {
+                heap = Arrays.copyOf( heap, size * 2 );
+            }
+            int i = size++;
+            while( i > 0 )
+            {
+                int parent = (i - 1) >>> 1;
+                if( compare( heap[parent], entry ) >= 0 )
+                {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+
+        int poll()
+        {
+            int head = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while( true )
+            {
+                int child = 2 * i + 1;
+                if( child >= size )
+                {
+                    break;
+                }
+                if( child + 1 < size && compare( heap[child + 1], heap[child] ) > 0 )
+                {
+                    child++;
+                }
+                if( compare( last, heap[child] ) >= 0 )
+                {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return head;
+        }
+
+        /**
+         * Greater first: the greater value; for equal values, sub-trees before
+         * key-value nodes (a sub-tree may hold a node that wins the tie).
+         */
+        private int compare( int a, int b )
+        {
+            int c = compareValues( a < 0 ? ~a : maxStates[a], b < 0 ? ~b : maxStates[b] );
+            if( c != 0 )
+            {
+                return c;
+            }
+            return Boolean.compare( a >= 0, b >= 0 );
+        }
+    }
+}
@@ -0,0 +1,167 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers bestNodesWith for a batch of fragments in one pass: the fragments are
+ * sorted in the order the trie walks keys, and each one is walked from the
+ * deepest node it shares with the fragment before it, which is kept on a stack
+ * of the nodes along the previous path, rather than from the root.
+ * <p>
+ * With a pool, the sorted fragments are split into runs that are searched by
+ * their own fork-join tasks, each with its own stack.
+ *
+ * @param <V> a generic type
+ */
+final class BatchSearch<V extends Comparable<V>>
+{
+    /** below this many fragments, forking costs more than it saves */
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+
+    private final AbstractImmutableTrie<V> trie;
+    private final List<String> fragments;
+    private final Comparator<TrieNode<V>> comparator;
+    private final int n;
+    /** the fragments in the order the trie walks keys */
+    private final char[][] paths;
+    /** the indices of the fragments, sorted by path */
+    private final Integer[] order;
+    private final List<TrieNode<V>>[] results;
+
+    @SuppressWarnings( "unchecked" )
+    BatchSearch( AbstractImmutableTrie<V> trie, List<String> fragments, Comparator<TrieNode<V>> comparator, int n )
+    {
+        if( n <= 0 )
+        {
+            throw new IllegalArgumentException( "n (" + n + ") should be positive" );
+        }
+        this.trie = trie;
+        this.fragments = fragments;
+        this.comparator = comparator;
+        this.n = n;
+        paths = new char[fragments.size()][];
+        order = new Integer[fragments.size()];
+        for( int i = 0; i < paths.length; i++ )
+        {
+            paths[i] = trie.walkOrder( fragments.get( i ));
+            order[i] = i;
+        }
+        results = new List[paths.length];
+    }
+
+    /**
+     * @param pool : the pool that searches runs of fragments, or null to search
+     *               them on the calling thread
+     * @return the best key-value nodes of each fragment, in the order of the fragments
+     */
+    List<List<TrieNode<V>>> run( ForkJoinPool pool )
+    {
+        Arrays.sort( order, ( a, b ) -> Arrays.compare( paths[a], paths[b] ));
+        if( pool == null || order.length < 2 * SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1 )
+        {
+            search( 0, order.length );
+        }
+        else
+        {
+            pool.invoke( new Run( 0, order.length ));
+        }
+        return Arrays.asList( results );
+    }
+
+    /**
+     * Search the fragments order[from, to).
+     */
+    private void search( int from, int to )
+    {
+        // path[d] is the node d characters down the path of the previous
+        // fragment, for d <= depth
+        @SuppressWarnings( "unchecked" )
+        TrieNode<V>[] path = new TrieNode[16];
+        path[0] = trie.getRoot();
+        int depth = 0;
+        char[] previous = null;
+        for( int i = from; i < to; i++ )
+        {
+            int f = order[i];
+            char[] fragment = paths[f];
+            if( previous != null && Arrays.equals( fragment, previous ))
+            {
+                results[f] = results[order[i - 1]];
+                continue;
+            }
+            QueryProbe probe = QueryProbe.start( trie.metrics, "bestNodesWith", fragments.get( f ), fragment.length, trie.isReversed() );
+            depth = Math.min( depth, commonPrefix( fragment, previous ));
+            if( fragment.length >= path.length )
+            {
+                path = Arrays.copyOf( path, Math.max( fragment.length + 1, path.length * 2 ));
+            }
+            while( depth < fragment.length )
+            {
+                TrieNode<V> next = trie.step( path[depth], fragment[depth] );
+                if( next == null )
+                {
+                    break;
+                }
+                path[++depth] = next;
+            }
+            if( probe != null )
+            {
+                probe.lookedUp();
+            }
+            results[f] = depth == fragment.length ?
+                         path[depth].getBestKeyValueNodes( n, comparator, probe )
+                         :
+                         Collections.emptyList();
+            if( probe != null )
+            {
+                probe.finish( results[f].size() );
+            }
+            previous = fragment;
+        }
+    }
+
+    private static int commonPrefix( char[] a, char[] b )
+    {
+        if( b == null )
+        {
+            return 0;
+        }
+        int mismatch = Arrays.mismatch( a, b );
+        return mismatch < 0 ? a.length : mismatch;
+    }
+
+    /**
+     * Searches a run of sorted fragments, splitting it in two while it's large.
+     */
+    private final class Run extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int from;
+        final int to;
+
+        Run( int from, int to )
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( to - from <= SEQUENTIAL_THRESHOLD )
+            {
+                search( from, to );
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll( new Run( from, middle ), new Run( middle, to ));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Puts many key-value pairs into a prefix or suffix trie at once: the pairs are
+ * partitioned by the first character walked, the sub-tree under each of those
+ * characters is built by its own fork-join task, and the sub-trees are then
+ * grafted under the root.
+ *
+ * @param <V> a generic type
+ */
+final class BulkPut<V extends Comparable<V>>
+{
+    /** below this many pairs, forking costs more than it saves */
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    private final AbstractImmutableTrie<V> trie;
+    private final boolean reversed;
+
+    BulkPut( AbstractImmutableTrie<V> trie )
+    {
+        this.trie = trie;
+        this.reversed = trie instanceof ImmutableSuffixTrieImpl;
+    }
+
+    /**
+     * Put every pair; when a key occurs more than once, the last value wins, as
+     * with put.
+     *
+     * @param entries : the key-value pairs
+     * @param pool    : the pool that builds the sub-trees
+     * @return the number of pairs rejected because their key contains unsupported characters
+     */
+    long putAll( List<? extends Map.Entry<String, ? extends V>> entries, ForkJoinPool pool )
+    {
+        long failed = 0;
+        if( entries.size() < SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1 )
+        {
+            for( Map.Entry<String, ? extends V> entry : entries )
+            {
+                if( !trie.put( entry.getKey(), entry.getValue() ))
+                {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+        List<List<Map.Entry<String, ? extends V>>> partitions = new ArrayList<>( trie.characters.size() );
+        for( int i = 0; i < trie.characters.size(); i++ )
+        {
+            partitions.add( null );
+        }
+        for( Map.Entry<String, ? extends V> entry : entries )
+        {
+            String key = entry.getKey();
+            if( key.isEmpty() )
+            {
+                trie.put( key, entry.getValue() ); // the root itself
+                continue;
+            }
+            int index = trie.characters.charToIndex( key.charAt( reversed ? key.length() - 1 : 0 ));
+            if( index == -1 )
+            {
+                failed++;
+                continue;
+            }
+            if( partitions.get( index ) == null )
+            {
+                partitions.set( index, new ArrayList<>() );
+            }
+            partitions.get( index ).add( entry );
+        }
+        List<SubTree> tasks = new ArrayList<>();
+        for( int index = 0; index < partitions.size(); index++ )
+        {
+            if( partitions.get( index ) != null )
+            {
+                tasks.add( new SubTree( index, partitions.get( index )));
+            }
+        }
+        pool.invoke( new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                invokeAll( tasks );
+            }
+        } );
+        for( SubTree task : tasks )
+        {
+            failed += task.failed;
+            TrieNode<V> child = task.scratch.root.getChild( task.index );
+            if( child == null )
+            {
+                continue; // every key of the partition was rejected
+            }
+            if( trie.root.getChild( task.index ) == null )
+            {
+                trie.root.addChild( trie.characters, task.index, child );
+            }
+            child.parent = trie.root;
+            trie.size += task.scratch.size;
+        }
+        return failed;
+    }
+
+    /**
+     * Builds the sub-tree under one child of the root, in a scratch trie; if the
+     * root already has that child, it is moved to the scratch trie and extended.
+     */
+    private final class SubTree extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int index;
+        final List<Map.Entry<String, ? extends V>> entries;
+        AbstractImmutableTrie<V> scratch;
+        long failed;
+
+        SubTree( int index, List<Map.Entry<String, ? extends V>> entries )
+        {
+            this.index = index;
+            this.entries = entries;
+        }
+
+        @Override
+        protected void compute()
+        {
+            scratch = reversed ?
+                      new ImmutableSuffixTrieImpl<>( trie.characters )
+                      :
+                      new ImmutablePrefixTrieImpl<>( trie.characters );
+            TrieNode<V> existing = trie.root.getChild( index );
+            if( existing != null )
+            {
+                scratch.root.addChild( trie.characters, index, existing );
+                existing.parent = scratch.root;
+            }
+            for( Map.Entry<String, ? extends V> entry : entries )
+            {
+                if( !scratch.put( entry.getKey(), entry.getValue() ))
+                {
+                    failed++;
+                }
+            }
+        }
+    }
+}
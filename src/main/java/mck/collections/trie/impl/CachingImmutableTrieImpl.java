@@ -0,0 +1,430 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import mck.collections.trie.CachingImmutableTrie;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.TrieCursor;
+import mck.collections.trie.TrieStats;
+
+/**
+ *
+ * a trie that answers top-n queries with a fragment from a ClockCache, and
+ * passes everything else to the trie it wraps.
+ * <p>
+ * The queries that write into a sink or an array are not cached either: they
+ * exist to avoid allocating, and a cache key would allocate.
+ *
+ * @param <V> a generic type
+ */
+class CachingImmutableTrieImpl<V extends Comparable<V>> implements CachingImmutableTrie<V>
+{
+    private final ImmutableTrie<V> trie;
+    /** lists of entries and lists of nodes, told apart by Query.entries */
+    private final ClockCache<Query<V>, List<?>> cache;
+
+    CachingImmutableTrieImpl( ImmutableTrie<V> trie, int maximumSize )
+    {
+        this.trie = trie;
+        this.cache = new ClockCache<>( maximumSize );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private List<Entry<V>> cachedEntries( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return (List<Entry<V>>) cache.get( new Query<>( fragment, fragmentLength, comparator, n, true ),
+                                           q -> Collections.unmodifiableList( trie.bestWith( q.fragment, q.fragmentLength, q.comparator, q.n )));
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private List<TrieNode<V>> cachedNodes( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return (List<TrieNode<V>>) cache.get( new Query<>( fragment, fragmentLength, comparator, n, false ),
+                                              q -> Collections.unmodifiableList( trie.bestNodesWith( q.fragment, q.fragmentLength, q.comparator, q.n )));
+    }
+
+    private static <T> Optional<T> first( List<T> list )
+    {
+        return list.isEmpty() ? Optional.empty() : Optional.of( list.get( 0 ));
+    }
+
+    @Override
+    public long hitCount()
+    {
+        return cache.hitCount();
+    }
+
+    @Override
+    public long missCount()
+    {
+        return cache.missCount();
+    }
+
+    @Override
+    public long evictionCount()
+    {
+        return cache.evictionCount();
+    }
+
+    @Override
+    public int cacheSize()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public Optional<Entry<V>> bestWith( String fragment )
+    {
+        return first( cachedEntries( fragment, fragment.length(), TrieNode.naturalOrder(), 1 ));
+    }
+
+    @Override
+    public Optional<Entry<V>> bestWith( String fragment, Comparator<TrieNode<V>> comparator )
+    {
+        return first( cachedEntries( fragment, fragment.length(), comparator, 1 ));
+    }
+
+    @Override
+    public List<Entry<V>> bestWith( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return cachedEntries( fragment, fragment.length(), comparator, n );
+    }
+
+    @Override
+    public List<Entry<V>> bestWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return cachedEntries( fragment, fragmentLength, comparator, n );
+    }
+
+    @Override
+    public Optional<TrieNode<V>> bestNodeWith( String fragment )
+    {
+        return first( cachedNodes( fragment, fragment.length(), TrieNode.naturalOrder(), 1 ));
+    }
+
+    @Override
+    public Optional<TrieNode<V>> bestNodeWith( String fragment, Comparator<TrieNode<V>> comparator )
+    {
+        return first( cachedNodes( fragment, fragment.length(), comparator, 1 ));
+    }
+
+    @Override
+    public Optional<TrieNode<V>> bestNodeWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator )
+    {
+        return first( cachedNodes( fragment, fragmentLength, comparator, 1 ));
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWith( String fragment, int n )
+    {
+        return cachedNodes( fragment, fragment.length(), TrieNode.naturalOrder(), n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWith( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return cachedNodes( fragment, fragment.length(), comparator, n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return cachedNodes( fragment, fragmentLength, comparator, n );
+    }
+
+    @Override
+    public int bestWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super Entry<V>> sink )
+    {
+        return trie.bestWith( fragment, fragmentLength, comparator, n, sink );
+    }
+
+    @Override
+    public List<List<Entry<V>>> bestWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestWith( fragments, comparator, n );
+    }
+
+    @Override
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestNodesWith( fragments, comparator, n );
+    }
+
+    @Override
+    public List<List<TrieNode<V>>> bestNodesWith( List<String> fragments, Comparator<TrieNode<V>> comparator, int n, ForkJoinPool pool )
+    {
+        return trie.bestNodesWith( fragments, comparator, n, pool );
+    }
+
+    @Override
+    public TrieCursor<V> cursor()
+    {
+        return trie.cursor();
+    }
+
+    @Override
+    public int bestNodesWith( String fragment, TrieNode<V>[] result )
+    {
+        return trie.bestNodesWith( fragment, result );
+    }
+
+    @Override
+    public int bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, TrieNode<V>[] result )
+    {
+        return trie.bestNodesWith( fragment, fragmentLength, comparator, result );
+    }
+
+    @Override
+    public int bestNodesWith( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink )
+    {
+        return trie.bestNodesWith( fragment, fragmentLength, comparator, n, sink );
+    }
+
+    @Override
+    public Optional<Entry<V>> best()
+    {
+        return trie.best();
+    }
+
+    @Override
+    public Optional<Entry<V>> best( Comparator<Entry<V>> comparator )
+    {
+        return trie.best( comparator );
+    }
+
+    @Override
+    public List<Entry<V>> best( Comparator<Entry<V>> comparator, int n )
+    {
+        return trie.best( comparator, n );
+    }
+
+    @Override
+    public int best( Comparator<Entry<V>> comparator, int n, Consumer<? super Entry<V>> sink )
+    {
+        return trie.best( comparator, n, sink );
+    }
+
+    @Override
+    public Optional<TrieNode<V>> bestNode()
+    {
+        return trie.bestNode();
+    }
+
+    @Override
+    public Optional<TrieNode<V>> bestNode( Comparator<TrieNode<V>> comparator )
+    {
+        return trie.bestNode( comparator );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodes( Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestNodes( comparator, n );
+    }
+
+    @Override
+    public int bestNodes( Comparator<TrieNode<V>> comparator, int n, Consumer<? super TrieNode<V>> sink )
+    {
+        return trie.bestNodes( comparator, n, sink );
+    }
+
+    @Override
+    public int bestNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result )
+    {
+        return trie.bestNodes( comparator, result );
+    }
+
+    @Override
+    public List<Entry<V>> bestWithinDistance( String fragment, int maxEdits, int n )
+    {
+        return trie.bestWithinDistance( fragment, maxEdits, n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, int n )
+    {
+        return trie.bestNodesWithinDistance( fragment, maxEdits, n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWithinDistance( String fragment, int maxEdits, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestNodesWithinDistance( fragment, maxEdits, comparator, n );
+    }
+
+    @Override
+    public List<Entry<V>> withSubstring( String fragment )
+    {
+        return trie.withSubstring( fragment );
+    }
+
+    @Override
+    public List<TrieNode<V>> nodesWithSubstring( String fragment )
+    {
+        return trie.nodesWithSubstring( fragment );
+    }
+
+    @Override
+    public List<Entry<V>> bestWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestWithSubstring( fragment, comparator, n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodesWithSubstring( String fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        return trie.bestNodesWithSubstring( fragment, comparator, n );
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        return trie.get( key );
+    }
+
+    @Override
+    public Optional<TrieNode<V>> getNode( String key )
+    {
+        return trie.getNode( key );
+    }
+
+    @Override
+    public V getOrDefault( CharSequence key, int offset, int length, V defaultValue )
+    {
+        return trie.getOrDefault( key, offset, length, defaultValue );
+    }
+
+    @Override
+    public V getOrDefault( char[] key, int offset, int length, V defaultValue )
+    {
+        return trie.getOrDefault( key, offset, length, defaultValue );
+    }
+
+    @Override
+    public TrieNode<V> getNodeOrNull( CharSequence key, int offset, int length )
+    {
+        return trie.getNodeOrNull( key, offset, length );
+    }
+
+    @Override
+    public TrieNode<V> getNodeOrNull( char[] key, int offset, int length )
+    {
+        return trie.getNodeOrNull( key, offset, length );
+    }
+
+    @Override
+    public List<Entry<V>> with( String fragment )
+    {
+        return trie.with( fragment );
+    }
+
+    @Override
+    public List<Entry<V>> with( String fragment, int n )
+    {
+        return trie.with( fragment, n );
+    }
+
+    @Override
+    public List<TrieNode<V>> nodesWith( String fragment )
+    {
+        return trie.nodesWith( fragment );
+    }
+
+    @Override
+    public List<TrieNode<V>> nodesWith( String fragment, int n )
+    {
+        return trie.nodesWith( fragment, n );
+    }
+
+    @Override
+    public Stream<Entry<V>> stream( String fragment )
+    {
+        return trie.stream( fragment );
+    }
+
+    @Override
+    public Stream<Entry<V>> stream( String fragment, int fragmentLength )
+    {
+        return trie.stream( fragment, fragmentLength );
+    }
+
+    @Override
+    public Spliterator<Entry<V>> spliterator( String fragment )
+    {
+        return trie.spliterator( fragment );
+    }
+
+    @Override
+    public Spliterator<Entry<V>> spliterator( String fragment, int fragmentLength )
+    {
+        return trie.spliterator( fragment, fragmentLength );
+    }
+
+    @Override
+    public int size()
+    {
+        return trie.size();
+    }
+
+    @Override
+    public TrieStats stats()
+    {
+        return trie.stats();
+    }
+
+    /**
+     * The arguments of a cached query; comparators are compared by identity.
+     */
+    private static final class Query<V extends Comparable<V>>
+    {
+        final String fragment;
+        final int fragmentLength;
+        final Comparator<TrieNode<V>> comparator;
+        final int n;
+        final boolean entries;
+        private final int hash;
+
+        Query( String fragment, int fragmentLength, Comparator<TrieNode<V>> comparator, int n, boolean entries )
+        {
+            this.fragment = fragment;
+            this.fragmentLength = fragmentLength;
+            this.comparator = comparator;
+            this.n = n;
+            this.entries = entries;
+            int h = fragment.hashCode();
+            h = h * 31 + fragmentLength;
+            h = h * 31 + System.identityHashCode( comparator );
+            h = h * 31 + n;
+            this.hash = h * 2 + (entries ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( !(o instanceof Query) )
+            {
+                return false;
+            }
+            Query<?> other = (Query<?>) o;
+            return hash == other.hash
+                   && fragmentLength == other.fragmentLength
+                   && n == other.n
+                   && entries == other.entries
+                   && (Object) comparator == other.comparator
+                   && fragment.equals( other.fragment );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
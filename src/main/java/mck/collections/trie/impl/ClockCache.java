@@ -0,0 +1,130 @@
+
+package mck.collections.trie.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache with CLOCK (second chance) eviction, an approximation of LRU
+ * in which a hit only sets a flag: lookups take no lock and write nothing that
+ * other threads share, except the first time an entry is hit after a sweep.
+ * <p>
+ * Entries sit in a ring, and a hand sweeps it to make room, clearing the flag
+ * of each entry it passes and evicting the first entry whose flag was clear.
+ * New entries start with a clear flag, so an entry that is never hit again is
+ * evicted before every entry that was, which keeps a burst of one-off queries
+ * from flushing the hot ones.
+ * <p>
+ * Values are loaded outside the lock, so two threads that miss the same key at
+ * the same time may both load it; the first one to finish is kept.
+ *
+ * @param <K> the type of keys
+ * @param <T> the type of values
+ */
+final class ClockCache<K, T>
+{
+    private final ConcurrentHashMap<K, Slot<K, T>> slots;
+    /** guarded by itself, like hand and used */
+    private final Slot<K, T>[] ring;
+    private int hand;
+    private int used;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings( "unchecked" )
+    ClockCache( int maximumSize )
+    {
+        if( maximumSize <= 0 )
+        {
+            throw new IllegalArgumentException( "maximumSize (" + maximumSize + ") should be positive" );
+        }
+        slots = new ConcurrentHashMap<>( maximumSize * 4 / 3 + 1 );
+        ring = new Slot[maximumSize];
+    }
+
+    /**
+     * @param key    : the key
+     * @param loader : computes the value of a key that isn't cached
+     * @return the cached or loaded value
+     */
+    T get( K key, Function<? super K, ? extends T> loader )
+    {
+        Slot<K, T> slot = slots.get( key );
+        if( slot != null )
+        {
+            hits.increment();
+            if( !slot.referenced )
+            {
+                slot.referenced = true;
+            }
+            return slot.value;
+        }
+        misses.increment();
+        T value = loader.apply( key );
+        synchronized( ring )
+        {
+            slot = slots.get( key );
+            if( slot != null )
+            {
+                return slot.value; // loaded by another thread in the meantime
+            }
+            int index;
+            if( used < ring.length )
+            {
+                index = used++;
+            }
+            else
+            {
+                while( ring[hand].referenced )
+                {
+                    ring[hand].referenced = false;
+                    hand = (hand + 1) % ring.length;
+                }
+                index = hand;
+                hand = (hand + 1) % ring.length;
+                slots.remove( ring[index].key );
+                evictions.increment();
+            }
+            slot = new Slot<>( key, value );
+            ring[index] = slot;
+            slots.put( key, slot );
+        }
+        return value;
+    }
+
+    long hitCount()
+    {
+        return hits.sum();
+    }
+
+    long missCount()
+    {
+        return misses.sum();
+    }
+
+    long evictionCount()
+    {
+        return evictions.sum();
+    }
+
+    int size()
+    {
+        return slots.size();
+    }
+
+    private static final class Slot<K, T>
+    {
+        final K key;
+        final T value;
+        volatile boolean referenced;
+
+        Slot( K key, T value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
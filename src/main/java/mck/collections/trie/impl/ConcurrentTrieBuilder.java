@@ -0,0 +1,107 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import mck.collections.trie.Trie;
+import mck.collections.trie.util.ASCIICharacterSet;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ * ConcurrentTrieBuilder-s create tries that stay modifiable, and that any number
+ * of threads can read and write at the same time.
+ * <p>
+ * Queries on these tries walk the sub-tree on every call; a frozen ImmutableTrie
+ * answers top-n queries faster, so prefer one if the keys don't change.
+ *
+ * @author carter
+ * @param <V>
+ */
+public class ConcurrentTrieBuilder<V extends Comparable<V>>
+{
+    private ConcurrentTrieImpl<V> trie; // the trie being built
+
+    /**
+     * Get a builder for a new prefix trie.
+     *
+     * @param <V>
+     * @return
+     */
+    public static <V extends Comparable<V>> ConcurrentTrieBuilder<V> prefix()
+    {
+        return prefix( new ASCIICharacterSet() );
+    }
+
+    /**
+     * Get a builder for a new prefix trie over the given characters.
+     *
+     * @param <V>
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static <V extends Comparable<V>> ConcurrentTrieBuilder<V> prefix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ConcurrentTrieBuilder<>( new ConcurrentTrieImpl<V>( characters, false ));
+    }
+
+    /**
+     * Get a builder for a new suffix trie.
+     *
+     * @param <V>
+     * @return
+     */
+    public static <V extends Comparable<V>> ConcurrentTrieBuilder<V> suffix()
+    {
+        return suffix( new ASCIICharacterSet() );
+    }
+
+    /**
+     * Get a builder for a new suffix trie over the given characters.
+     *
+     * @param <V>
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static <V extends Comparable<V>> ConcurrentTrieBuilder<V> suffix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ConcurrentTrieBuilder<>( new ConcurrentTrieImpl<V>( characters, true ));
+    }
+
+    private ConcurrentTrieBuilder( ConcurrentTrieImpl<V> trie )
+    {
+        this.trie = trie;
+    }
+
+    /**
+     * Add an initial key-value pair to the trie.
+     *
+     * @param key
+     * @param value
+     * @return false if the key contains unsupported characters
+     */
+    public boolean put( String key, V value )
+    {
+        if( trie == null )
+        {
+            throw new IllegalStateException( "getTrie has already been called; use the trie's put instead" );
+        }
+        return trie.put( key, value );
+    }
+
+    /**
+     * Get the trie. This method can only be called once.
+     *
+     * @return
+     */
+    public Trie<V> getTrie()
+    {
+        if( trie == null )
+        {
+            throw new IllegalStateException( "getTrie has already been called, and it can only be called once!" );
+        }
+        Trie<V> result = trie;
+        trie = null;
+        return result;
+    }
+}
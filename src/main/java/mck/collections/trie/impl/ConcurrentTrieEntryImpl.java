@@ -0,0 +1,71 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import mck.collections.trie.Trie;
+
+/**
+ * an entry of a ConcurrentTrieImpl; its value is the one the query read, and
+ * set and remove apply to the trie.
+ *
+ * @param <V> a generic type
+ */
+class ConcurrentTrieEntryImpl<V extends Comparable<V>> implements Trie.Entry<V>
+{
+    private final ConcurrentTrieImpl<V> trie;
+    private final ConcurrentTrieNode<V> node;
+    private final V value;
+    private String key; // built on first use, from the node's ancestors
+
+    ConcurrentTrieEntryImpl( ConcurrentTrieImpl<V> trie, TrieNode<V> node )
+    {
+        requireNonNull( node, "node cannot be null" );
+        this.trie = trie;
+        if( node instanceof ConcurrentTrieNode.Snapshot )
+        {
+            ConcurrentTrieNode.Snapshot<V> snapshot = (ConcurrentTrieNode.Snapshot<V>) node;
+            this.node = snapshot.source;
+            this.value = snapshot.value;
+        }
+        else
+        {
+            this.node = (ConcurrentTrieNode<V>) node;
+            this.value = node.getValue()
+                    .orElseThrow( () -> new IllegalArgumentException( "node is not a key-value node: " + node ));
+        }
+    }
+
+    @Override
+    public String getKey()
+    {
+        if( key == null )
+        {
+            key = node.getKey();
+        }
+        return key;
+    }
+
+    @Override
+    public V getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Store a new value for this entry's key, even if it has been removed since.
+     */
+    @Override
+    public void set( V value )
+    {
+        trie.setValue( node, value );
+    }
+
+    /**
+     * Remove this entry's key, if it is still in the trie.
+     */
+    @Override
+    public void remove()
+    {
+        trie.removeValue( node );
+    }
+}
@@ -0,0 +1,214 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.Trie;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ *
+ * a thread-safe, modifiable prefix or suffix trie.
+ * <p>
+ * Lookups never block. put and remove are linearizable: each one takes effect
+ * at the atomic update of a single node's value. Nodes are never unlinked, so
+ * removing a key leaves its path in place, ready for the next put.
+ * <p>
+ * Query results are consistent per key-value node, but a query running
+ * alongside writers may or may not see each of them.
+ *
+ * @param <V> a generic type
+ */
+class ConcurrentTrieImpl<V extends Comparable<V>> extends AbstractImmutableTrie<V> implements Trie<V>
+{
+    /** true if keys are walked from their last character, as in a suffix trie */
+    private final boolean reversed;
+    private final LongAdder count = new LongAdder();
+
+    ConcurrentTrieImpl( CharacterSet characters, boolean reversed )
+    {
+        super( characters, new ConcurrentTrieNode<>( null, (char) 0, 0 ));
+        this.reversed = reversed;
+    }
+
+    @Override
+    protected boolean isReversed()
+    {
+        return reversed;
+    }
+
+    /**
+     * @param key   : the key
+     * @param value : the value, which cannot be null
+     * @return true if the value was stored, and false if the key contains
+     *         unsupported characters
+     */
+    @Override
+    public boolean put( String key, V value )
+    {
+        requireNonNull( value, "value cannot be null" );
+        ConcurrentTrieNode<V> node = path( key, true );
+        if( node == null )
+        {
+            return false; // key contains unsupported characters
+        }
+        if( node.getAndSetValue( value ) == null )
+        {
+            count.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Like put, but unsupported characters are an error.
+     */
+    @Override
+    public void set( String key, V value )
+    {
+        if( !put( key, value ))
+        {
+            throw new IllegalArgumentException( "key contains unsupported characters: '" + key + "'" );
+        }
+    }
+
+    @Override
+    public Optional<V> remove( String key )
+    {
+        ConcurrentTrieNode<V> node = path( key, false );
+        return node == null ? Optional.empty() : Optional.ofNullable( removeValue( node ));
+    }
+
+    /**
+     * @return the number of keys at the time of the call
+     */
+    @Override
+    public int size()
+    {
+        return (int) count.sum();
+    }
+
+    V setValue( ConcurrentTrieNode<V> node, V value )
+    {
+        requireNonNull( value, "value cannot be null" );
+        V previous = node.getAndSetValue( value );
+        if( previous == null )
+        {
+            count.increment();
+        }
+        return previous;
+    }
+
+    V removeValue( ConcurrentTrieNode<V> node )
+    {
+        V previous = node.getAndSetValue( null );
+        if( previous != null )
+        {
+            count.decrement();
+        }
+        return previous;
+    }
+
+    /**
+     * @param create : whether missing nodes are added
+     * @return the node for the whole key, or null if it doesn't exist (and
+     *         create is false) or the key contains unsupported characters
+     */
+    private ConcurrentTrieNode<V> path( String key, boolean create )
+    {
+        ConcurrentTrieNode<V> node = (ConcurrentTrieNode<V>) root;
+        int last = key.length() - 1;
+        for( int i = 0; i <= last && node != null; i++ )
+        {
+            char ch = key.charAt( reversed ? last - i : i );
+            int index = characters.charToIndex( ch );
+            if( index == -1 )
+            {
+                return null;
+            }
+            node = create ? node.childOrAdd( index, ch ) : node.child( index );
+        }
+        return node;
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( String key, int fragmentLength )
+    {
+        if( fragmentLength < 0 )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should be non-negative." );
+        }
+        else if( fragmentLength > key.length() )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should not be larger than key.length()." );
+        }
+        return getNodeWithLongestCommonPart( key, reversed ? key.length() - fragmentLength : 0, fragmentLength );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
+        ConcurrentTrieNode<V> node = (ConcurrentTrieNode<V>) root;
+        int last = offset + length - 1;
+        for( int i = 0; i < length; i++ )
+        {
+            int index = characters.charToIndex( key.charAt( reversed ? last - i : offset + i ));
+            ConcurrentTrieNode<V> next = index >= 0 ? node.child( index ) : null;
+            if( next == null )
+            {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    @Override
+    TrieNode<V> step( TrieNode<V> node, char c )
+    {
+        int index = characters.charToIndex( c );
+        return index >= 0 ? ((ConcurrentTrieNode<V>) node).child( index ) : null;
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        ConcurrentTrieNode<V> node = (ConcurrentTrieNode<V>) root;
+        int last = offset + length - 1;
+        for( int i = 0; i < length; i++ )
+        {
+            int index = characters.charToIndex( key[reversed ? last - i : offset + i] );
+            ConcurrentTrieNode<V> next = index >= 0 ? node.child( index ) : null;
+            if( next == null )
+            {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * @return an entry whose set and remove update this trie
+     */
+    @Override
+    protected ImmutableTrie.Entry<V> entry( TrieNode<V> node )
+    {
+        return new ConcurrentTrieEntryImpl<>( this, node );
+    }
+
+    @Override
+    protected void freeze()
+    {
+        throw new IllegalStateException( "a concurrent trie cannot be frozen" );
+    }
+
+    @Override
+    protected void precomputeBestKeyValueNodes( int k )
+    {
+        throw new IllegalStateException( "a concurrent trie cannot precompute its best key-value nodes" );
+    }
+}
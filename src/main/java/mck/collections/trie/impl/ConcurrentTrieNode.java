@@ -0,0 +1,301 @@
+
+package mck.collections.trie.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * a node of a ConcurrentTrieImpl; readers never block, and writers only
+ * compare-and-set this node's value or its array of children.
+ * <p>
+ * A node is a key-value node while its value is not null. Key-value nodes
+ * returned by queries are snapshots, which keep the value they had when the
+ * query read them.
+ *
+ * @param <V> a generic type
+ */
+class ConcurrentTrieNode<V extends Comparable<V>> extends TrieNode<V>
+{
+    private static final VarHandle CURRENT;
+    private static final VarHandle KIDS;
+
+    static
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CURRENT = lookup.findVarHandle( ConcurrentTrieNode.class, "current", Comparable.class );
+            KIDS = lookup.findVarHandle( ConcurrentTrieNode.class, "kids", Children.class );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            throw new ExceptionInInitializerError( e );
+        }
+    }
+
+    /** the value, or null if this is not a key-value node */
+    private volatile V current;
+    /** replaced, never modified, when a child is added */
+    private volatile Children<V> kids = Children.empty();
+
+    ConcurrentTrieNode( ConcurrentTrieNode<V> parent, char c, int level )
+    {
+        super( c, level );
+        this.parent = parent;
+    }
+
+    /**
+     * @param index : a character index
+     * @return the child for that index, or null
+     */
+    final ConcurrentTrieNode<V> child( int index )
+    {
+        return kids.get( index );
+    }
+
+    /**
+     * @param index : a character index
+     * @param ch    : the character for that index
+     * @return the child for that index, which is added if there is none
+     */
+    final ConcurrentTrieNode<V> childOrAdd( int index, char ch )
+    {
+        ConcurrentTrieNode<V> added = null;
+        while( true )
+        {
+            Children<V> k = kids;
+            ConcurrentTrieNode<V> existing = k.get( index );
+            if( existing != null )
+            {
+                return existing;
+            }
+            if( added == null )
+            {
+                added = new ConcurrentTrieNode<>( this, ch, level + 1 );
+            }
+            if( KIDS.compareAndSet( this, k, k.with( index, added )) )
+            {
+                return added;
+            }
+        }
+    }
+
+    /**
+     * @param value : the new value, or null to make this a non-key-value node
+     * @return the previous value, or null
+     */
+    @SuppressWarnings( "unchecked" )
+    final V getAndSetValue( V value )
+    {
+        return (V) CURRENT.getAndSet( this, value );
+    }
+
+    @Override
+    public Optional<V> getValue()
+    {
+        return Optional.ofNullable( current );
+    }
+
+    @Override
+    V valueOrNull()
+    {
+        return current;
+    }
+
+    @Override
+    public void setValue( V value )
+    {
+        throw new UnsupportedOperationException( "use Trie.put or Trie.Entry.set to change a value" );
+    }
+
+    @Override
+    public boolean isKeyValueNode()
+    {
+        return current != null;
+    }
+
+    @Override
+    public int getNumChildren()
+    {
+        return kids.nodes.length;
+    }
+
+    @Override
+    public List<TrieNode<V>> getChildren()
+    {
+        return Collections.unmodifiableList( Arrays.asList( kids.nodes ));
+    }
+
+    @Override
+    TrieNode<V> childAt( int i )
+    {
+        return kids.nodes[i];
+    }
+
+    @Override
+    long estimatedBytes()
+    {
+        Children<V> children = kids;
+        long bytes = super.estimatedBytes() + 2 * 4;
+        if( children.nodes.length > 0 )
+        {
+            bytes += TrieStatsImpl.objectBytes( 2 * 4 )
+                     + TrieStatsImpl.arrayBytes( children.indices )
+                     + TrieStatsImpl.arrayBytes( children.nodes );
+        }
+        return bytes;
+    }
+
+    /**
+     * The sub-tree is walked on every call, and the result holds snapshots.
+     *
+     * @return a list, which contains all key-value nodes among sub-tree nodes
+     */
+    @Override
+    public List<TrieNode<V>> getKeyValueChildren()
+    {
+        List<TrieNode<V>> keyVals = new ArrayList<>();
+        collectSnapshots( keyVals );
+        return Collections.unmodifiableList( keyVals );
+    }
+
+    private void collectSnapshots( List<TrieNode<V>> keyVals )
+    {
+        TrieNode<V> snapshot = keyValueSnapshot();
+        if( snapshot != null )
+        {
+            keyVals.add( snapshot );
+        }
+        for( ConcurrentTrieNode<V> child : kids.nodes )
+        {
+            child.collectSnapshots( keyVals );
+        }
+    }
+
+    @Override
+    TrieNode<V> keyValueSnapshot()
+    {
+        V value = current;
+        return value == null ? null : new Snapshot<>( this, value );
+    }
+
+    /**
+     * The children of a node, sorted by character index; a new instance is
+     * published for every added child.
+     */
+    private static final class Children<V extends Comparable<V>>
+    {
+        @SuppressWarnings( { "rawtypes", "unchecked" } )
+        private static final Children<?> EMPTY = new Children<>( new int[0], new ConcurrentTrieNode[0] );
+
+        final int[] indices;
+        final ConcurrentTrieNode<V>[] nodes;
+
+        Children( int[] indices, ConcurrentTrieNode<V>[] nodes )
+        {
+            this.indices = indices;
+            this.nodes = nodes;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        static <V extends Comparable<V>> Children<V> empty()
+        {
+            return (Children<V>) EMPTY;
+        }
+
+        ConcurrentTrieNode<V> get( int index )
+        {
+            int i = Arrays.binarySearch( indices, index );
+            return i >= 0 ? nodes[i] : null;
+        }
+
+        Children<V> with( int index, ConcurrentTrieNode<V> node )
+        {
+            int i = -Arrays.binarySearch( indices, index ) - 1;
+            int[] newIndices = new int[indices.length + 1];
+            ConcurrentTrieNode<V>[] newNodes = Arrays.copyOf( nodes, nodes.length + 1 );
+            System.arraycopy( indices, 0, newIndices, 0, i );
+            System.arraycopy( indices, i, newIndices, i + 1, indices.length - i );
+            System.arraycopy( nodes, i, newNodes, i + 1, nodes.length - i );
+            newIndices[i] = index;
+            newNodes[i] = node;
+            return new Children<>( newIndices, newNodes );
+        }
+    }
+
+    /**
+     * A key-value node as it was when a query read it; the structure around it is
+     * that of the live node.
+     */
+    static final class Snapshot<V extends Comparable<V>> extends TrieNode<V>
+    {
+        final ConcurrentTrieNode<V> source;
+
+        Snapshot( ConcurrentTrieNode<V> source, V value )
+        {
+            super( source.c, source.level );
+            this.source = source;
+            this.parent = source.parent;
+            this.value = value;
+            this.isKeyValueNode = true;
+        }
+
+        @Override
+        public void setValue( V value )
+        {
+            throw new UnsupportedOperationException( "use Trie.put or Trie.Entry.set to change a value" );
+        }
+
+        @Override
+        public int getNumChildren()
+        {
+            return source.getNumChildren();
+        }
+
+        @Override
+        public List<TrieNode<V>> getChildren()
+        {
+            return source.getChildren();
+        }
+
+        @Override
+        TrieNode<V> childAt( int i )
+        {
+            return source.childAt( i );
+        }
+
+        @Override
+        public List<TrieNode<V>> getKeyValueChildren()
+        {
+            return source.getKeyValueChildren();
+        }
+
+        @Override
+        TrieNode<V> keyValueSnapshot()
+        {
+            return this;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( !(o instanceof Snapshot) )
+            {
+                return false;
+            }
+            Snapshot<?> other = (Snapshot<?>) o;
+            return source == other.source && value.equals( other.value );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode( source ) + value.hashCode();
+        }
+    }
+}
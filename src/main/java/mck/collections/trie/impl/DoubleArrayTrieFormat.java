@@ -0,0 +1,334 @@
+
+package mck.collections.trie.impl;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import mck.collections.trie.util.ASCIICharacterSet;
+import mck.collections.trie.util.CharacterSet;
+import mck.collections.trie.util.UnicodeCharacterSet;
+import mck.collections.trie.util.ValueCodec;
+
+/**
+ * The binary format of an ImmutableDoubleArrayTrieImpl; a trie read from a
+ * buffer is queried in place, without copying anything to the heap.
+ * <p>
+ * All numbers are little-endian, and every section starts at a multiple of 8:
+ * <pre>
+ * header  : magic "MCKT", version, flags (1 = suffix trie, 2 = best states),
+ *           number of keys, number of states, number of characters
+ * chars   : the character set, in index order, as UTF-16 code units
+ * codec   : length and UTF-8 bytes of the value codec's name, and its fixed length
+ * base    : one int per state
+ * check   : one int per state
+ * keys    : one bit per state, set for key-value states, in longs
+ * values  : fixed length: one value per state;
+ *           otherwise: one offset per state, plus one, then the encoded values
+ * best    : if flagged, one offset per state, plus one, then the best states
+ * </pre>
+ */
+final class DoubleArrayTrieFormat
+{
+    static final int MAGIC = 0x544b434d; // "MCKT", little-endian
+    static final int VERSION = 1;
+    private static final int SUFFIX = 1;
+    private static final int BEST_STATES = 2;
+    /** the greatest char an ASCIICharacterSet can hold */
+    private static final char LAST_ASCII = '\u00ff';
+
+    private DoubleArrayTrieFormat()
+    {
+    }
+
+    /**
+     * @return the number of bytes that write(trie, codec, buffer) puts
+     */
+    static <V extends Comparable<V>> long length( ImmutableDoubleArrayTrieImpl<V> trie, ValueCodec<V> codec )
+    {
+        int states = trie.numStates();
+        long length = 6 * Integer.BYTES;
+        length = align( length + 2L * chars( trie.characters ).length );
+        length = align( length + Integer.BYTES + codec.name().getBytes( StandardCharsets.UTF_8 ).length + Integer.BYTES );
+        length = align( length + 2L * Integer.BYTES * states );
+        length += Long.BYTES * words( states );
+        if( codec.fixedLength() >= 0 )
+        {
+            length = align( length + (long) codec.fixedLength() * states );
+        }
+        else
+        {
+            length += Integer.BYTES * (states + 1L);
+            for( int state = 0; state < states; state++ )
+            {
+                V value = trie.value( state );
+                length += value == null ? 0 : codec.length( value );
+            }
+            length = align( length );
+        }
+        if( trie.bestOffsets != null )
+        {
+            length = align( length + Integer.BYTES * (states + 1L + trie.bestStates.limit() ));
+        }
+        return length;
+    }
+
+    /**
+     * Put the trie at the buffer's position, and advance the position.
+     */
+    static <V extends Comparable<V>> void write( ImmutableDoubleArrayTrieImpl<V> trie, ValueCodec<V> codec, ByteBuffer buffer )
+    {
+        ByteBuffer out = buffer.slice().order( ByteOrder.LITTLE_ENDIAN );
+        int states = trie.numStates();
+        out.putInt( MAGIC );
+        out.putInt( VERSION );
+        out.putInt( (trie.reversed ? SUFFIX : 0) | (trie.bestOffsets != null ? BEST_STATES : 0) );
+        out.putInt( trie.size() );
+        out.putInt( states );
+        char[] chars = chars( trie.characters );
+        out.putInt( chars.length );
+        for( char c : chars )
+        {
+            out.putChar( c );
+        }
+        pad( out );
+        byte[] name = codec.name().getBytes( StandardCharsets.UTF_8 );
+        out.putInt( name.length );
+        out.put( name );
+        out.putInt( codec.fixedLength() );
+        pad( out );
+        for( int state = 0; state < states; state++ )
+        {
+            out.putInt( trie.base.get( state ));
+        }
+        for( int state = 0; state < states; state++ )
+        {
+            out.putInt( trie.check.get( state ));
+        }
+        for( int word = 0; word < words( states ); word++ )
+        {
+            out.putLong( word < trie.keyValueStates.limit() ? trie.keyValueStates.get( word ) : 0 );
+        }
+        if( codec.fixedLength() >= 0 )
+        {
+            for( int state = 0; state < states; state++ )
+            {
+                V value = trie.value( state );
+                int start = out.position();
+                if( value != null )
+                {
+                    codec.write( value, out );
+                }
+                if( out.position() - start > codec.fixedLength() )
+                {
+                    throw new IllegalArgumentException( "codec '" + codec.name() + "' wrote more than its fixed length" );
+                }
+                out.position( start + codec.fixedLength() );
+            }
+        }
+        else
+        {
+            int offsets = out.position();
+            out.position( offsets + Integer.BYTES * (states + 1) );
+            int data = out.position();
+            for( int state = 0; state < states; state++ )
+            {
+                out.putInt( offsets + Integer.BYTES * state, out.position() - data );
+                V value = trie.value( state );
+                if( value != null )
+                {
+                    codec.write( value, out );
+                }
+            }
+            out.putInt( offsets + Integer.BYTES * states, out.position() - data );
+        }
+        pad( out );
+        if( trie.bestOffsets != null )
+        {
+            for( int state = 0; state <= states; state++ )
+            {
+                out.putInt( trie.bestOffsets.get( state ));
+            }
+            for( int i = 0; i < trie.bestStates.limit(); i++ )
+            {
+                out.putInt( trie.bestStates.get( i ));
+            }
+            pad( out );
+        }
+        buffer.position( buffer.position() + out.position() );
+    }
+
+    /**
+     * Read a trie from the buffer's position; the trie keeps views of the buffer.
+     *
+     * @throws IllegalArgumentException if the buffer doesn't hold a trie of this
+     *                                  version, encoded with the codec
+     */
+    static <V extends Comparable<V>> ImmutableDoubleArrayTrieImpl<V> read( ByteBuffer buffer, ValueCodec<V> codec )
+    {
+        try
+        {
+            return readTrie( buffer.slice().order( ByteOrder.LITTLE_ENDIAN ), codec );
+        }
+        catch( BufferUnderflowException | IndexOutOfBoundsException e )
+        {
+            throw new IllegalArgumentException( "the trie is truncated", e );
+        }
+    }
+
+    private static <V extends Comparable<V>> ImmutableDoubleArrayTrieImpl<V> readTrie( ByteBuffer in, ValueCodec<V> codec )
+    {
+        if( in.getInt() != MAGIC )
+        {
+            throw new IllegalArgumentException( "not a trie" );
+        }
+        int version = in.getInt();
+        if( version != VERSION )
+        {
+            throw new IllegalArgumentException( "unsupported trie version " + version + "; expected " + VERSION );
+        }
+        int flags = in.getInt();
+        int size = in.getInt();
+        int states = in.getInt();
+        int numChars = in.getInt();
+        require( in, 2L * numChars );
+        char[] chars = new char[numChars];
+        for( int index = 0; index < chars.length; index++ )
+        {
+            chars[index] = in.getChar();
+        }
+        skipPadding( in );
+        int nameLength = in.getInt();
+        require( in, nameLength );
+        byte[] name = new byte[nameLength];
+        in.get( name );
+        int fixedLength = in.getInt();
+        String codecName = new String( name, StandardCharsets.UTF_8 );
+        if( !codecName.equals( codec.name() ) || fixedLength != codec.fixedLength() )
+        {
+            throw new IllegalArgumentException( "the trie's values were written by codec '" + codecName
+                                                + "', not '" + codec.name() + "'" );
+        }
+        skipPadding( in );
+        IntBuffer base = ints( in, states );
+        IntBuffer check = ints( in, states );
+        LongBuffer keyValueStates = section( in, Long.BYTES * words( states )).asLongBuffer();
+        IntFunction<V> values;
+        if( fixedLength >= 0 )
+        {
+            require( in, (long) fixedLength * states );
+            ByteBuffer data = section( in, fixedLength * states );
+            values = state -> codec.read( data, state * fixedLength, fixedLength );
+        }
+        else
+        {
+            IntBuffer offsets = ints( in, states + 1 );
+            ByteBuffer data = section( in, offsets.get( states ));
+            values = state -> codec.read( data, offsets.get( state ), offsets.get( state + 1 ) - offsets.get( state ));
+        }
+        skipPadding( in );
+        ImmutableDoubleArrayTrieImpl<V> trie = new ImmutableDoubleArrayTrieImpl<>( characterSet( chars ), base, check, keyValueStates,
+                                                                                   values, (flags & SUFFIX) != 0, size );
+        if( (flags & BEST_STATES) != 0 )
+        {
+            trie.bestOffsets = ints( in, states + 1 );
+            trie.bestStates = ints( in, trie.bestOffsets.get( states ));
+        }
+        return trie;
+    }
+
+    /**
+     * The character set is rebuilt from its characters, in index order, which
+     * gives every character the same index as before.
+     */
+    private static CharacterSet characterSet( char[] chars )
+    {
+        for( char c : chars )
+        {
+            if( c > LAST_ASCII )
+            {
+                return new UnicodeCharacterSet( new String( chars ));
+            }
+        }
+        return new ASCIICharacterSet( new String( chars ));
+    }
+
+    /**
+     * @return the characters of the set, in index order
+     */
+    private static char[] chars( CharacterSet characters )
+    {
+        char[] byIndex = new char[characters.size()];
+        int count = 0;
+        for( int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++ )
+        {
+            int index = characters.charToIndex( (char) c );
+            if( index >= 0 )
+            {
+                byIndex[index] = (char) c;
+                count = Math.max( count, index + 1 );
+            }
+        }
+        return Arrays.copyOf( byIndex, count );
+    }
+
+    private static ByteBuffer section( ByteBuffer in, int length )
+    {
+        require( in, length );
+        ByteBuffer section = in.slice().order( ByteOrder.LITTLE_ENDIAN );
+        section.limit( length );
+        in.position( in.position() + length );
+        return section;
+    }
+
+    /**
+     * Checked before anything is sized from a length read from the buffer, so
+     * that a truncated or corrupt trie fails as truncated, rather than with
+     * whatever the allocation or ByteBuffer.limit throws.
+     *
+     * @throws BufferUnderflowException if fewer than length bytes remain
+     */
+    private static void require( ByteBuffer in, long length )
+    {
+        if( length < 0 || length > in.remaining() )
+        {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    private static IntBuffer ints( ByteBuffer in, int count )
+    {
+        require( in, (long) Integer.BYTES * count );
+        return section( in, Integer.BYTES * count ).asIntBuffer();
+    }
+
+    private static int words( int states )
+    {
+        return (states + 63) / 64;
+    }
+
+    private static long align( long length )
+    {
+        return (length + 7) & ~7L;
+    }
+
+    private static void pad( ByteBuffer out )
+    {
+        while( (out.position() & 7) != 0 )
+        {
+            out.put( (byte) 0 );
+        }
+    }
+
+    /**
+     * The padding at the end may have been cut off, without losing anything.
+     */
+    private static void skipPadding( ByteBuffer in )
+    {
+        in.position( (int) Math.min( align( in.position() ), in.limit() ));
+    }
+}
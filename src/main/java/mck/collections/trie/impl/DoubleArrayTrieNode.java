@@ -0,0 +1,222 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * a view of one state of an ImmutableDoubleArrayTrieImpl
+ *
+ * @param <V> a generic type
+ */
+class DoubleArrayTrieNode<V extends Comparable<V>> extends TrieNode<V>
+{
+    private final ImmutableDoubleArrayTrieImpl<V> trie;
+    private final int state;
+
+    DoubleArrayTrieNode( ImmutableDoubleArrayTrieImpl<V> trie, int state, char c, int level )
+    {
+        super( c, level );
+        this.trie = trie;
+        this.state = state;
+    }
+
+    @Override
+    public Optional<V> getValue()
+    {
+        return Optional.ofNullable( trie.value( state ));
+    }
+
+    @Override
+    V valueOrNull()
+    {
+        return trie.value( state );
+    }
+
+    @Override
+    public void setValue( V value )
+    {
+        throw new UnsupportedOperationException( "a double-array trie cannot be modified" );
+    }
+
+    @Override
+    public boolean isKeyValueNode()
+    {
+        return trie.isKeyValueState( state );
+    }
+
+    @Override
+    public Optional<TrieNode<V>> getParent()
+    {
+        return isRoot() ? Optional.empty() : Optional.of( parent() );
+    }
+
+    private TrieNode<V> parent()
+    {
+        int parentState = trie.parentOf( state );
+        return parentState == 0 ? trie.getRoot() : trie.node( parentState, level - 1 );
+    }
+
+    @Override
+    public List<TrieNode<V>> getAncestors()
+    {
+        List<TrieNode<V>> result = new ArrayList<>( level );
+        TrieNode<V> node = this;
+        while( !node.isRoot() )
+        {
+            node = ((DoubleArrayTrieNode<V>) node).parent();
+            result.add( node );
+        }
+        return result;
+    }
+
+    @Override
+    public String getKey()
+    {
+        char[] keyChars = new char[level];
+        int s = state;
+        for( int offset = level - 1; offset >= 0; offset-- )
+        {
+            keyChars[offset] = trie.charOf( s );
+            s = trie.parentOf( s );
+        }
+        return new String( keyChars );
+    }
+
+    @Override
+    public StringBuilder appendKey( StringBuilder sb )
+    {
+        int start = sb.length();
+        sb.setLength( start + level );
+        int s = state;
+        for( int offset = start + level - 1; offset >= start; offset-- )
+        {
+            sb.setCharAt( offset, trie.charOf( s ));
+            s = trie.parentOf( s );
+        }
+        return sb;
+    }
+
+    @Override
+    public int getNumChildren()
+    {
+        int[] offsets = trie.childTable()[0];
+        return offsets[state + 1] - offsets[state];
+    }
+
+    /**
+     * @return the child along c, or null if there is none
+     */
+    TrieNode<V> child( char c )
+    {
+        int index = trie.characters.charToIndex( c );
+        int child = index >= 0 ? trie.transition( state, index ) : -1;
+        return child < 0 ? null : new DoubleArrayTrieNode<>( trie, child, c, level + 1 );
+    }
+
+    /**
+     * Children come from the trie's child table, so the cost follows the number
+     * of children rather than the size of the character set.
+     */
+    @Override
+    public List<TrieNode<V>> getChildren()
+    {
+        int[][] table = trie.childTable();
+        int start = table[0][state];
+        int end = table[0][state + 1];
+        List<TrieNode<V>> result = new ArrayList<>( end - start );
+        for( int i = start; i < end; i++ )
+        {
+            int child = table[1][i];
+            result.add( new DoubleArrayTrieNode<>( trie, child, trie.charOf( child ), level + 1 ));
+        }
+        return result;
+    }
+
+    /**
+     * @return the i-th state whose check is this state, without building the other children
+     */
+    @Override
+    TrieNode<V> childAt( int i )
+    {
+        int[][] table = trie.childTable();
+        int start = table[0][state];
+        int numChildren = table[0][state + 1] - start;
+        if( i < 0 || i >= numChildren )
+        {
+            throw new IndexOutOfBoundsException( "index (" + i + ") should be in [0, " + numChildren + ")" );
+        }
+        int child = table[1][start + i];
+        return new DoubleArrayTrieNode<>( trie, child, trie.charOf( child ), level + 1 );
+    }
+
+    /**
+     * Key-value nodes are not cached per node; the sub-tree is walked on every call.
+     *
+     * @return a list, which contains all key-value nodes among sub-tree nodes
+     */
+    @Override
+    public List<TrieNode<V>> getKeyValueChildren()
+    {
+        List<TrieNode<V>> keyVals = new ArrayList<>();
+        collectKeyValueNodes( this, keyVals );
+        return Collections.unmodifiableList( keyVals );
+    }
+
+    private static <V extends Comparable<V>> void collectKeyValueNodes( TrieNode<V> node, List<TrieNode<V>> keyVals )
+    {
+        if( node.isKeyValueNode() )
+        {
+            keyVals.add( node );
+        }
+        for( TrieNode<V> child : node.getChildren() )
+        {
+            collectKeyValueNodes( child, keyVals );
+        }
+    }
+
+    @Override
+    List<TrieNode<V>> getPrecomputedBestKeyValueNodes( int n )
+    {
+        if( trie.bestOffsets == null )
+        {
+            return null;
+        }
+        int start = trie.bestOffsets.get( state );
+        int length = trie.bestOffsets.get( state + 1 ) - start;
+        if( n > length )
+        {
+            if( !trie.hasAllBestStates( state ))
+            {
+                return null;
+            }
+            n = length;
+        }
+        List<TrieNode<V>> result = new ArrayList<>( n );
+        for( int i = start; i < start + n; i++ )
+        {
+            int best = trie.bestStates.get( i );
+            result.add( trie.node( best, trie.levelOf( best )));
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if( !(o instanceof DoubleArrayTrieNode) )
+        {
+            return false;
+        }
+        DoubleArrayTrieNode<?> other = (DoubleArrayTrieNode<?>) o;
+        return trie == other.trie && state == other.state;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return state;
+    }
+}
@@ -0,0 +1,124 @@
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the nodes whose path is within a number of edits (insertions, deletions
+ * or substitutions of one character) of a fragment, by walking the trie in
+ * lockstep with the rows of the Levenshtein distance table: each node extends
+ * its parent's row by one character, and a sub-tree is pruned as soon as every
+ * entry of its row exceeds the budget, since distances only grow below it.
+ * <p>
+ * A node whose path is within the budget stands for its whole sub-tree, so the
+ * search does not descend below it; the matched sub-trees are disjoint.
+ *
+ * @param <V> a generic type
+ */
+final class EditDistanceSearch<V extends Comparable<V>>
+{
+    private final char[] fragment;
+    private final int maxEdits;
+    /** rows[d] is the row of the node at depth d on the current path */
+    private final int[][] rows;
+    private final List<TrieNode<V>> matches = new ArrayList<>();
+
+    /**
+     * @param fragment : the fragment, in the order the trie walks keys
+     * @param maxEdits : the edit budget
+     */
+    private EditDistanceSearch( char[] fragment, int maxEdits )
+    {
+        this.fragment = fragment;
+        this.maxEdits = maxEdits;
+        // below depth fragment.length + maxEdits, every entry of a row exceeds maxEdits,
+        // and the children of the deepest node visited need one more row
+        this.rows = new int[fragment.length + maxEdits + 2][fragment.length + 1];
+    }
+
+    /**
+     * @param root     : the root of a trie
+     * @param fragment : the fragment, in the order the trie walks keys
+     * @param maxEdits : the edit budget
+     * @return the shallowest nodes, in depth-first order, whose path is within
+     *         maxEdits edits of fragment
+     */
+    static <V extends Comparable<V>> List<TrieNode<V>> matches( TrieNode<V> root, char[] fragment, int maxEdits )
+    {
+        if( maxEdits < 0 )
+        {
+            throw new IllegalArgumentException( "maxEdits (" + maxEdits + ") should be non-negative" );
+        }
+        // fragment.length edits already match the root, so any larger budget is the same
+        maxEdits = Math.min( maxEdits, fragment.length );
+        EditDistanceSearch<V> search = new EditDistanceSearch<>( fragment, maxEdits );
+        int[] first = search.rows[0];
+        for( int j = 0; j < first.length; j++ )
+        {
+            first[j] = j;
+        }
+        if( first[fragment.length] <= maxEdits )
+        {
+            return Collections.singletonList( root );
+        }
+        search.visitChildren( root, 0 );
+        return search.matches;
+    }
+
+    /**
+     * @param n          : number of top key-value nodes to select
+     * @param comparator : comparator
+     * @return the top n key-value nodes of the matched sub-trees
+     */
+    static <V extends Comparable<V>> List<TrieNode<V>> best( List<TrieNode<V>> matches, int n, Comparator<TrieNode<V>> comparator )
+    {
+        if( n <= 0 )
+        {
+            throw new IllegalArgumentException( "n (" + n + ") should be positive" );
+        }
+        if( matches.size() == 1 )
+        {
+            return matches.get( 0 ).getBestKeyValueNodes( n, comparator );
+        }
+        List<TrieNode<V>> candidates = new ArrayList<>();
+        for( TrieNode<V> match : matches )
+        {
+            candidates.addAll( match.getBestKeyValueNodes( n, comparator ));
+        }
+        // a stable sort keeps ties in depth-first order, as within one sub-tree
+        candidates.sort( comparator.reversed() );
+        return candidates.subList( 0, Math.min( n, candidates.size() ));
+    }
+
+    /**
+     * Nodes are visited one character at a time, through getChildren(), so
+     * that path-compressed edges are expanded.
+     */
+    private void visitChildren( TrieNode<V> node, int depth )
+    {
+        int[] row = rows[depth];
+        int[] next = rows[depth + 1];
+        for( TrieNode<V> child : node.getChildren() )
+        {
+            char c = child.c;
+            next[0] = depth + 1;
+            int min = next[0];
+            for( int j = 1; j <= fragment.length; j++ )
+            {
+                int cost = Math.min( row[j] + 1, next[j - 1] + 1 );
+                next[j] = Math.min( cost, row[j - 1] + (fragment[j - 1] == c ? 0 : 1) );
+                min = Math.min( min, next[j] );
+            }
+            if( next[fragment.length] <= maxEdits )
+            {
+                matches.add( child );
+            }
+            else if( min <= maxEdits )
+            {
+                visitChildren( child, depth + 1 );
+            }
+        }
+    }
+}
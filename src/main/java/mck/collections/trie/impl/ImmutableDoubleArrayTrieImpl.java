@@ -0,0 +1,594 @@
+
+package mck.collections.trie.impl;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import mck.collections.trie.TrieStats;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ *
+ * a packed, double-array representation of a frozen prefix or suffix trie.
+ * <p>
+ * Every node is a state index; the child of state s for character index k is
+ * t = base[s] + k, which is valid only if check[t] == s. Nodes are handed out
+ * as lightweight DoubleArrayTrieNode views, so nothing but the arrays below is
+ * retained per node.
+ * <p>
+ * The arrays are buffers, so that they can live on the heap, or outside of it
+ * in the format of DoubleArrayTrieFormat.
+ *
+ * @param <V> a generic type
+ */
+class ImmutableDoubleArrayTrieImpl<V extends Comparable<V>> extends AbstractImmutableTrie<V>
+{
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    IntBuffer base;
+    IntBuffer check;
+    /** one bit per state, set for key-value states */
+    LongBuffer keyValueStates;
+    /** the value of each key-value state */
+    IntFunction<V> values;
+    /** true if keys are walked from their last character, as in a suffix trie */
+    final boolean reversed;
+    /**
+     * the best key-value states of state s, in descending natural order, are
+     * bestStates[bestOffsets[s], bestOffsets[s + 1]); both are null if not precomputed
+     */
+    IntBuffer bestOffsets;
+    IntBuffer bestStates;
+    /**
+     * children(check), built on the first walk of a sub-tree, so that node views
+     * visit the children a state has rather than every character of the set
+     */
+    private volatile int[][] childTable;
+
+    ImmutableDoubleArrayTrieImpl( CharacterSet characters, IntBuffer base, IntBuffer check, LongBuffer keyValueStates,
+                                  IntFunction<V> values, boolean reversed, int size )
+    {
+        super( characters, null );
+        this.base = base;
+        this.check = check;
+        this.keyValueStates = keyValueStates;
+        this.values = values;
+        this.reversed = reversed;
+        this.size = size;
+        this.root = new DoubleArrayTrieNode<>( this, ROOT, (char) 0, 0 );
+    }
+
+    /**
+     * A trie that shares other's arrays.
+     */
+    ImmutableDoubleArrayTrieImpl( ImmutableDoubleArrayTrieImpl<V> other )
+    {
+        this( other.characters, other.base, other.check, other.keyValueStates, other.values, other.reversed, other.size );
+        this.bestOffsets = other.bestOffsets;
+        this.bestStates = other.bestStates;
+        this.childTable = other.childTable;
+    }
+
+    /**
+     * Drop the arrays, so that later reads fail instead of reading memory that
+     * has been released.
+     */
+    final void release()
+    {
+        base = IntBuffer.allocate( 0 );
+        check = IntBuffer.allocate( 0 );
+        keyValueStates = LongBuffer.allocate( 0 );
+        values = state -> {
+            throw new IllegalStateException( "the trie has been closed" );
+        };
+        bestOffsets = null;
+        bestStates = null;
+        childTable = null;
+    }
+
+    /**
+     * Pack a trie built from TrieNode-s into base/check arrays.
+     *
+     * @param <V>
+     * @param source : a prefix or suffix trie that has been completely built
+     * @return the packed equivalent of source
+     */
+    @SuppressWarnings( "unchecked" )
+    static <V extends Comparable<V>> ImmutableDoubleArrayTrieImpl<V> from( AbstractImmutableTrie<V> source )
+    {
+        CharacterSet characters = source.characters;
+        int capacity = Math.max( 64, source.size() * 2 );
+        int[] base = new int[capacity];
+        int[] check = new int[capacity];
+        Object[] values = new Object[capacity];
+        Arrays.fill( check, FREE );
+        BitSet keyValueStates = new BitSet();
+        BitSet used = new BitSet();
+        used.set( ROOT );
+        check[ROOT] = ROOT - 2; // occupied, but never the parent of anything
+        int searchFrom = 1;
+        int maxState = ROOT;
+
+        ArrayDeque<TrieNode<V>> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> states = new ArrayDeque<>();
+        nodes.add( source.getRoot() );
+        states.add( ROOT );
+        int[] codes = new int[characters.size()];
+        while( !nodes.isEmpty() )
+        {
+            TrieNode<V> node = nodes.poll();
+            int state = states.poll();
+            if( node.isKeyValueNode )
+            {
+                keyValueStates.set( state );
+                values[state] = node.value;
+            }
+            int numChildren = node.numChildren;
+            if( numChildren == 0 )
+            {
+                continue;
+            }
+            int minCode = Integer.MAX_VALUE;
+            for( int i = 0; i < numChildren; i++ )
+            {
+                codes[i] = node.childrenIndices[i];
+                minCode = Math.min( minCode, codes[i] );
+            }
+            searchFrom = used.nextClearBit( searchFrom );
+            int b;
+            int position = searchFrom;
+            while( true )
+            {
+                int free = used.nextClearBit( position );
+                b = free - minCode;
+                if( b >= 1 && fits( used, b, codes, numChildren ))
+                {
+                    break;
+                }
+                position = free + 1;
+            }
+            base[state] = b;
+            for( int i = 0; i < numChildren; i++ )
+            {
+                int child = b + codes[i];
+                if( child >= check.length )
+                {
+                    int newCapacity = Math.max( check.length * 2, child + characters.size() + 1 );
+                    base = Arrays.copyOf( base, newCapacity );
+                    values = Arrays.copyOf( values, newCapacity );
+                    int oldLength = check.length;
+                    check = Arrays.copyOf( check, newCapacity );
+                    Arrays.fill( check, oldLength, newCapacity, FREE );
+                }
+                used.set( child );
+                check[child] = state;
+                maxState = Math.max( maxState, child );
+                nodes.add( node.childAt( i ));
+                states.add( child );
+            }
+        }
+        int length = maxState + 1;
+        Object[] packedValues = Arrays.copyOf( values, length );
+        return new ImmutableDoubleArrayTrieImpl<>( characters,
+                                                   IntBuffer.wrap( Arrays.copyOf( base, length )),
+                                                   IntBuffer.wrap( Arrays.copyOf( check, length )),
+                                                   LongBuffer.wrap( Arrays.copyOf( keyValueStates.toLongArray(), (length + 63) / 64 )),
+                                                   state -> (V) packedValues[state],
+                                                   source instanceof ImmutableSuffixTrieImpl,
+                                                   source.size() );
+    }
+
+    private static boolean fits( BitSet used, int b, int[] codes, int numCodes )
+    {
+        for( int i = 0; i < numCodes; i++ )
+        {
+            if( used.get( b + codes[i] ))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The children of every state, found from the check array alone, so that the
+     * cost is proportional to the number of states, whatever the size of the
+     * character set.
+     *
+     * @return {offsets, children}: the children of state s, in index order, are
+     *         children[offsets[s], offsets[s + 1])
+     */
+    static int[][] children( IntBuffer check )
+    {
+        int numStates = check.limit();
+        int[] offsets = new int[numStates + 1];
+        for( int state = 0; state < numStates; state++ )
+        {
+            int parent = check.get( state );
+            if( parent >= 0 )
+            {
+                offsets[parent + 1]++;
+            }
+        }
+        for( int state = 0; state < numStates; state++ )
+        {
+            offsets[state + 1] += offsets[state];
+        }
+        int[] children = new int[offsets[numStates]];
+        int[] next = Arrays.copyOf( offsets, numStates );
+        for( int state = 0; state < numStates; state++ )
+        {
+            int parent = check.get( state );
+            if( parent >= 0 )
+            {
+                children[next[parent]++] = state;
+            }
+        }
+        return new int[][] { offsets, children };
+    }
+
+    /**
+     * @return children(check) of this trie, which is built once and then shared
+     */
+    final int[][] childTable()
+    {
+        int[][] table = childTable;
+        if( table == null )
+        {
+            table = children( check );
+            childTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * @param children : as returned by children(IntBuffer)
+     * @return the reachable states, in breadth-first order
+     */
+    static int[] breadthFirstOrder( int[][] children )
+    {
+        int[] offsets = children[0];
+        int[] order = new int[children[1].length + 1];
+        int count = 0;
+        order[count++] = ROOT;
+        for( int i = 0; i < count; i++ )
+        {
+            for( int j = offsets[order[i]]; j < offsets[order[i] + 1]; j++ )
+            {
+                order[count++] = children[1][j];
+            }
+        }
+        return Arrays.copyOf( order, count );
+    }
+
+    /**
+     * @param state : a state
+     * @param index : a character index according to the CharacterSet
+     * @return the child state, or -1 if there is no such transition
+     */
+    final int transition( int state, int index )
+    {
+        int child = base.get( state ) + index;
+        return child < check.limit() && check.get( child ) == state ? child : -1;
+    }
+
+    /**
+     * @return the number of states, including unused ones
+     */
+    final int numStates()
+    {
+        return check.limit();
+    }
+
+    /**
+     * @return the parent of state, which must not be the root
+     */
+    final int parentOf( int state )
+    {
+        return check.get( state );
+    }
+
+    final boolean isKeyValueState( int state )
+    {
+        return (keyValueStates.get( state >>> 6 ) & (1L << state)) != 0;
+    }
+
+    /**
+     * @return the value of state, or null if it is not a key-value state
+     */
+    final V value( int state )
+    {
+        return isKeyValueState( state ) ? values.apply( state ) : null;
+    }
+
+    /**
+     * Walk as far as possible along the first/last fragmentLength characters of key.
+     *
+     * @return the reached state in the low 32 bits, and its level in the high 32 bits
+     */
+    private long walk( String key, int fragmentLength )
+    {
+        if( fragmentLength < 0 )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should be non-negative." );
+        }
+        else if( fragmentLength > key.length() )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should not be larger than key.length()." );
+        }
+        return walk( key, reversed ? key.length() - fragmentLength : 0, fragmentLength );
+    }
+
+    /**
+     * Walk as far as possible along key[offset, offset + length).
+     *
+     * @return the reached state in the low 32 bits, and its level in the high 32 bits
+     */
+    private long walk( CharSequence key, int offset, int length )
+    {
+        int state = ROOT;
+        int level = 0;
+        int last = offset + length - 1;
+        while( level < length )
+        {
+            int index = characters.charToIndex( key.charAt( reversed ? last - level : offset + level ));
+            int child = index >= 0 ? transition( state, index ) : -1;
+            if( child < 0 )
+            {
+                break;
+            }
+            state = child;
+            level++;
+        }
+        return ((long) level << 32) | state;
+    }
+
+    private long walk( char[] key, int offset, int length )
+    {
+        int state = ROOT;
+        int level = 0;
+        int last = offset + length - 1;
+        while( level < length )
+        {
+            int index = characters.charToIndex( key[reversed ? last - level : offset + level] );
+            int child = index >= 0 ? transition( state, index ) : -1;
+            if( child < 0 )
+            {
+                break;
+            }
+            state = child;
+            level++;
+        }
+        return ((long) level << 32) | state;
+    }
+
+    private TrieNode<V> node( long walked )
+    {
+        int state = (int) walked;
+        return state == ROOT ? root : node( state, (int) (walked >>> 32) );
+    }
+
+    /**
+     * @return the value of the walked state, or defaultValue if the walk stopped
+     *         short of length or the state has no value
+     */
+    private V valueOrDefault( long walked, int length, V defaultValue )
+    {
+        int state = (int) walked;
+        if( (int) (walked >>> 32) != length || !isKeyValueState( state ))
+        {
+            return defaultValue;
+        }
+        V value = values.apply( state );
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    protected boolean isReversed()
+    {
+        return reversed;
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( String key, int fragmentLength )
+    {
+        return node( walk( key, fragmentLength ));
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
+        return node( walk( key, offset, length ));
+    }
+
+    @Override
+    TrieNode<V> step( TrieNode<V> node, char c )
+    {
+        return ((DoubleArrayTrieNode<V>) node).child( c );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        return node( walk( key, offset, length ));
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        return Optional.ofNullable( valueOrDefault( walk( key, key.length() ), key.length(), null ));
+    }
+
+    /**
+     * Walks the states without creating a node.
+     */
+    @Override
+    public V getOrDefault( CharSequence key, int offset, int length, V defaultValue )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length() );
+        return valueOrDefault( walk( key, offset, length ), length, defaultValue );
+    }
+
+    @Override
+    public V getOrDefault( char[] key, int offset, int length, V defaultValue )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length );
+        return valueOrDefault( walk( key, offset, length ), length, defaultValue );
+    }
+
+    /**
+     * Walks the states rather than node views; unused states count as empty
+     * slots, and values are assumed to be held in an array of references
+     * indexed by state, as from() builds it.
+     */
+    @Override
+    public TrieStats stats()
+    {
+        TrieStatsImpl stats = new TrieStatsImpl();
+        int[][] children = children( check );
+        int[] offsets = children[0];
+        int[] order = breadthFirstOrder( children );
+        int[] depth = new int[numStates()];
+        for( int state : order )
+        {
+            int fanout = offsets[state + 1] - offsets[state];
+            for( int i = offsets[state]; i < offsets[state + 1]; i++ )
+            {
+                depth[children[1][i]] = depth[state] + 1;
+            }
+            stats.addNode( depth[state], fanout, isKeyValueState( state ));
+        }
+        stats.addEmptySlots( numStates() - order.length );
+        stats.addBytes( 4L * base.capacity() + 4L * check.capacity() + 8L * keyValueStates.capacity() + 4L * numStates() );
+        if( bestOffsets != null )
+        {
+            stats.addBytes( 4L * bestOffsets.capacity() + 4L * bestStates.capacity() );
+        }
+        stats.addBytes( substringIndexBytes() );
+        return stats;
+    }
+
+    /**
+     * States are not annotated with the greatest value of their sub-tree, to keep
+     * this representation small; use precomputeBestKeyValueNodes instead.
+     */
+    @Override
+    protected void freeze()
+    {
+    }
+
+    @Override
+    protected void precomputeBestKeyValueNodes( int k )
+    {
+        int numStates = numStates();
+        int[][] children = children( check );
+        int[] offsets = children[0];
+        // breadth-first order, so that every state is visited after its parent
+        int[] order = breadthFirstOrder( children );
+        Comparator<Integer> descending = ( a, b ) -> {
+            V va = value( a );
+            V vb = value( b );
+            return va == null || vb == null ? 0 : vb.compareTo( va );
+        };
+        int[][] best = new int[numStates][];
+        List<Integer> candidates = new ArrayList<>();
+        long total = 0;
+        for( int i = order.length - 1; i >= 0; i-- )
+        {
+            int state = order[i];
+            candidates.clear();
+            if( isKeyValueState( state ))
+            {
+                candidates.add( state );
+            }
+            for( int j = offsets[state]; j < offsets[state + 1]; j++ )
+            {
+                for( int b : best[children[1][j]] )
+                {
+                    candidates.add( b );
+                }
+            }
+            // a stable sort keeps ties in the same order as getBestKeyValueNodes(int, Comparator)
+            candidates.sort( descending );
+            int length = Math.min( k, candidates.size() );
+            best[state] = new int[length];
+            for( int j = 0; j < length; j++ )
+            {
+                best[state][j] = candidates.get( j );
+            }
+            total += length;
+        }
+        if( total > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "k (" + k + ") is too large for this trie" );
+        }
+        int[] bestOffsets = new int[numStates + 1];
+        int[] flat = new int[(int) total];
+        for( int state = 0; state < numStates; state++ )
+        {
+            int[] list = best[state] == null ? new int[0] : best[state];
+            System.arraycopy( list, 0, flat, bestOffsets[state], list.length );
+            bestOffsets[state + 1] = bestOffsets[state] + list.length;
+        }
+        this.bestOffsets = IntBuffer.wrap( bestOffsets );
+        bestStates = IntBuffer.wrap( flat );
+    }
+
+    /**
+     * The best states were precomputed with the k held at the root, unless the
+     * root holds every key-value state, in which case so does every state.
+     *
+     * @return true if the best states of state are all the key-value states of its sub-tree
+     */
+    boolean hasAllBestStates( int state )
+    {
+        int k = bestOffsets.get( ROOT + 1 ) - bestOffsets.get( ROOT );
+        return k == size() || bestOffsets.get( state + 1 ) - bestOffsets.get( state ) < k;
+    }
+
+    @Override
+    protected boolean put( String key, V value )
+    {
+        throw new IllegalStateException( "a double-array trie cannot be modified" );
+    }
+
+    /**
+     * @return a view of state, which must be at the given level
+     */
+    final DoubleArrayTrieNode<V> node( int state, int level )
+    {
+        return new DoubleArrayTrieNode<>( this, state, charOf( state ), level );
+    }
+
+    /**
+     * @return the number of transitions from the root to state
+     */
+    final int levelOf( int state )
+    {
+        int level = 0;
+        for( int s = state; s != ROOT; s = check.get( s ))
+        {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return the character on the edge leading into state
+     */
+    final char charOf( int state )
+    {
+        return state == ROOT ? (char) 0 : characters.indexToChar( state - base.get( check.get( state )));
+    }
+}
@@ -0,0 +1,54 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.ImmutableFloatTrie;
+
+/**
+ *
+ * a double-array trie with one float per state.
+ */
+final class ImmutableFloatTrieImpl extends AbstractPrimitiveTrie implements ImmutableFloatTrie
+{
+    private final float[] values;
+
+    /**
+     * @param ordinals : a double-array trie whose values are ordinals into 'byOrdinal'
+     * @param byOrdinal : the values
+     */
+    ImmutableFloatTrieImpl( ImmutableDoubleArrayTrieImpl<Integer> ordinals, float[] byOrdinal )
+    {
+        super( ordinals );
+        values = new float[check.length];
+        for( int state = 0; state < values.length; state++ )
+        {
+            if( isKeyValueNode( state ))
+            {
+                values[state] = byOrdinal[ordinals.values.apply( state )];
+            }
+        }
+        annotate();
+    }
+
+    @Override
+    int compareValues( int stateA, int stateB )
+    {
+        return Float.compare( values[stateA], values[stateB] );
+    }
+
+    @Override
+    public float get( String key, float defaultValue )
+    {
+        int node = getNode( key );
+        return node != NO_NODE && isKeyValueNode( node ) ? values[node] : defaultValue;
+    }
+
+    @Override
+    public float getValue( int node )
+    {
+        if( !isKeyValueNode( node ))
+        {
+            throw new IllegalArgumentException( "node is not a key-value node: " + node );
+        }
+        return values[node];
+    }
+}
@@ -0,0 +1,109 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import java.util.Arrays;
+import mck.collections.trie.ImmutableIntTrie;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ * Builds an ImmutableIntTrie; like ImmutableTrieBuilder, but values are ints.
+ *
+ * @author carter
+ */
+public class ImmutableIntTrieBuilder
+{
+    private final OrdinalTrieBuilder keys;
+    private int[] values = new int[16];
+
+    /**
+     * Get a builder for a new prefix trie.
+     *
+     * @return
+     */
+    public static ImmutableIntTrieBuilder prefix()
+    {
+        return new ImmutableIntTrieBuilder( new OrdinalTrieBuilder( null, false ));
+    }
+
+    /**
+     * Get a builder for a new prefix trie over the given characters.
+     *
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static ImmutableIntTrieBuilder prefix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableIntTrieBuilder( new OrdinalTrieBuilder( characters, false ));
+    }
+
+    /**
+     * Get a builder for a new suffix trie.
+     *
+     * @return
+     */
+    public static ImmutableIntTrieBuilder suffix()
+    {
+        return new ImmutableIntTrieBuilder( new OrdinalTrieBuilder( null, true ));
+    }
+
+    /**
+     * Get a builder for a new suffix trie over the given characters.
+     *
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static ImmutableIntTrieBuilder suffix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableIntTrieBuilder( new OrdinalTrieBuilder( characters, true ));
+    }
+
+    private ImmutableIntTrieBuilder( OrdinalTrieBuilder keys )
+    {
+        this.keys = keys;
+    }
+
+    /**
+     * Add a key-value pair to the trie.
+     *
+     * @param key
+     * @param value
+     * @return false if the key contains unsupported chars
+     */
+    public boolean put( String key, int value )
+    {
+        int ordinal = keys.put( key );
+        if( ordinal < 0 )
+        {
+            return false;
+        }
+        if( ordinal == values.length )
+        {
+            values = Arrays.copyOf( values, values.length * 2 );
+        }
+        values[ordinal] = value;
+        return true;
+    }
+
+    /**
+     * @return the number of keys which were rejected during the building process.
+     */
+    public long getFailedToPut()
+    {
+        return keys.getFailedToPut();
+    }
+
+    /**
+     * Get the built trie. This method can only be called once.
+     *
+     * @return
+     */
+    public ImmutableIntTrie getTrie()
+    {
+        ImmutableIntTrie trie = new ImmutableIntTrieImpl( keys.pack(), values );
+        values = null;
+        return trie;
+    }
+}
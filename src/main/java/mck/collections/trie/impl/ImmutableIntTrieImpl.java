@@ -0,0 +1,54 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.ImmutableIntTrie;
+
+/**
+ *
+ * a double-array trie with one int per state.
+ */
+final class ImmutableIntTrieImpl extends AbstractPrimitiveTrie implements ImmutableIntTrie
+{
+    private final int[] values;
+
+    /**
+     * @param ordinals : a double-array trie whose values are ordinals into 'byOrdinal'
+     * @param byOrdinal : the values
+     */
+    ImmutableIntTrieImpl( ImmutableDoubleArrayTrieImpl<Integer> ordinals, int[] byOrdinal )
+    {
+        super( ordinals );
+        values = new int[check.length];
+        for( int state = 0; state < values.length; state++ )
+        {
+            if( isKeyValueNode( state ))
+            {
+                values[state] = byOrdinal[ordinals.values.apply( state )];
+            }
+        }
+        annotate();
+    }
+
+    @Override
+    int compareValues( int stateA, int stateB )
+    {
+        return Integer.compare( values[stateA], values[stateB] );
+    }
+
+    @Override
+    public int get( String key, int defaultValue )
+    {
+        int node = getNode( key );
+        return node != NO_NODE && isKeyValueNode( node ) ? values[node] : defaultValue;
+    }
+
+    @Override
+    public int getValue( int node )
+    {
+        if( !isKeyValueNode( node ))
+        {
+            throw new IllegalArgumentException( "node is not a key-value node: " + node );
+        }
+        return values[node];
+    }
+}
@@ -0,0 +1,55 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.ImmutableLongTransducer;
+
+/**
+ * Builds an ImmutableLongTransducer from keys put in ascending order, with
+ * their values; see SortedAutomatonBuilder.
+ *
+ * @author carter
+ */
+public class ImmutableLongTransducerBuilder
+{
+    private final SortedAutomatonBuilder automaton = new SortedAutomatonBuilder();
+    /** true if keys are put as the trie walks them, from their last character */
+    private final boolean reversed;
+
+    /**
+     * Get a builder for a new prefix transducer.
+     *
+     * @return
+     */
+    public static ImmutableLongTransducerBuilder sorted()
+    {
+        return new ImmutableLongTransducerBuilder( false );
+    }
+
+    ImmutableLongTransducerBuilder( boolean reversed )
+    {
+        this.reversed = reversed;
+    }
+
+    /**
+     * Add a key-value pair; the key must be greater than every key put before it.
+     *
+     * @param key
+     * @param value : a non-negative value
+     */
+    public void put( String key, long value )
+    {
+        automaton.put( key, value );
+    }
+
+    /**
+     * Get the built transducer. This method can only be called once.
+     *
+     * @return
+     */
+    public ImmutableLongTransducer getTransducer()
+    {
+        int root = automaton.finish();
+        return new ImmutableLongTransducerImpl( root, automaton.size(), reversed, automaton.accepting, automaton.finalOutputs,
+                                                automaton.firstArc, automaton.labels, automaton.targets, automaton.outputs );
+    }
+}
@@ -0,0 +1,151 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+import mck.collections.trie.ImmutableLongTransducer;
+
+/**
+ *
+ * a minimal acyclic transducer in flat arrays, in the layout of
+ * ImmutableWordGraphImpl, with an output per arc and per accepting state.
+ *
+ */
+class ImmutableLongTransducerImpl implements ImmutableLongTransducer
+{
+    private final int root;
+    private final int size;
+    /** true if keys are walked from their last character, as in a suffix trie */
+    private final boolean reversed;
+    private final boolean[] accepting;
+    /** the output of each accepting state, added after the outputs of the path */
+    private final long[] finalOutputs;
+    private final int[] firstArc;
+    private final char[] labels;
+    private final int[] targets;
+    private final long[] outputs;
+
+    ImmutableLongTransducerImpl( int root, int size, boolean reversed, boolean[] accepting, long[] finalOutputs,
+                                 int[] firstArc, char[] labels, int[] targets, long[] outputs )
+    {
+        this.root = root;
+        this.size = size;
+        this.reversed = reversed;
+        this.accepting = accepting;
+        this.finalOutputs = finalOutputs;
+        this.firstArc = firstArc;
+        this.labels = labels;
+        this.targets = targets;
+        this.outputs = outputs;
+    }
+
+    @Override
+    public long get( String key, long defaultValue )
+    {
+        return get( key, 0, key.length(), defaultValue );
+    }
+
+    @Override
+    public long get( CharSequence key, int offset, int length, long defaultValue )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length() );
+        int state = root;
+        long value = 0;
+        int last = offset + length - 1;
+        for( int i = 0; i < length; i++ )
+        {
+            int arc = arc( state, key.charAt( reversed ? last - i : offset + i ));
+            if( arc < 0 )
+            {
+                return defaultValue;
+            }
+            value += outputs[arc];
+            state = targets[arc];
+        }
+        return accepting[state] ? value + finalOutputs[state] : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey( String key )
+    {
+        int state = root;
+        int last = key.length() - 1;
+        for( int i = 0; i <= last && state >= 0; i++ )
+        {
+            int arc = arc( state, key.charAt( reversed ? last - i : i ));
+            state = arc < 0 ? -1 : targets[arc];
+        }
+        return state >= 0 && accepting[state];
+    }
+
+    @Override
+    public int forEachWith( String fragment, ObjLongConsumer<String> action )
+    {
+        int state = root;
+        long value = 0;
+        StringBuilder path = new StringBuilder( fragment.length() + 16 );
+        int last = fragment.length() - 1;
+        for( int i = 0; i <= last; i++ )
+        {
+            char c = fragment.charAt( reversed ? last - i : i );
+            int arc = arc( state, c );
+            if( arc < 0 )
+            {
+                return 0;
+            }
+            value += outputs[arc];
+            state = targets[arc];
+            path.append( c );
+        }
+        return forEach( state, value, path, action );
+    }
+
+    private int forEach( int state, long value, StringBuilder path, ObjLongConsumer<String> action )
+    {
+        int count = 0;
+        if( accepting[state] )
+        {
+            action.accept( reversed ? reverse( path ) : path.toString(), value + finalOutputs[state] );
+            count++;
+        }
+        for( int arc = firstArc[state]; arc < firstArc[state + 1]; arc++ )
+        {
+            path.append( labels[arc] );
+            count += forEach( targets[arc], value + outputs[arc], path, action );
+            path.setLength( path.length() - 1 );
+        }
+        return count;
+    }
+
+    private static String reverse( CharSequence path )
+    {
+        char[] key = new char[path.length()];
+        for( int i = 0; i < key.length; i++ )
+        {
+            key[key.length - 1 - i] = path.charAt( i );
+        }
+        return new String( key );
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int numStates()
+    {
+        return accepting.length;
+    }
+
+    /**
+     * @return the arc of state labelled c, or -1
+     */
+    private int arc( int state, char c )
+    {
+        int arc = Arrays.binarySearch( labels, firstArc[state], firstArc[state + 1], c );
+        return arc >= 0 ? arc : -1;
+    }
+}
@@ -0,0 +1,109 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import java.util.Arrays;
+import mck.collections.trie.ImmutableLongTrie;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ * Builds an ImmutableLongTrie; like ImmutableTrieBuilder, but values are longs.
+ *
+ * @author carter
+ */
+public class ImmutableLongTrieBuilder
+{
+    private final OrdinalTrieBuilder keys;
+    private long[] values = new long[16];
+
+    /**
+     * Get a builder for a new prefix trie.
+     *
+     * @return
+     */
+    public static ImmutableLongTrieBuilder prefix()
+    {
+        return new ImmutableLongTrieBuilder( new OrdinalTrieBuilder( null, false ));
+    }
+
+    /**
+     * Get a builder for a new prefix trie over the given characters.
+     *
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static ImmutableLongTrieBuilder prefix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableLongTrieBuilder( new OrdinalTrieBuilder( characters, false ));
+    }
+
+    /**
+     * Get a builder for a new suffix trie.
+     *
+     * @return
+     */
+    public static ImmutableLongTrieBuilder suffix()
+    {
+        return new ImmutableLongTrieBuilder( new OrdinalTrieBuilder( null, true ));
+    }
+
+    /**
+     * Get a builder for a new suffix trie over the given characters.
+     *
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static ImmutableLongTrieBuilder suffix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableLongTrieBuilder( new OrdinalTrieBuilder( characters, true ));
+    }
+
+    private ImmutableLongTrieBuilder( OrdinalTrieBuilder keys )
+    {
+        this.keys = keys;
+    }
+
+    /**
+     * Add a key-value pair to the trie.
+     *
+     * @param key
+     * @param value
+     * @return false if the key contains unsupported chars
+     */
+    public boolean put( String key, long value )
+    {
+        int ordinal = keys.put( key );
+        if( ordinal < 0 )
+        {
+            return false;
+        }
+        if( ordinal == values.length )
+        {
+            values = Arrays.copyOf( values, values.length * 2 );
+        }
+        values[ordinal] = value;
+        return true;
+    }
+
+    /**
+     * @return the number of keys which were rejected during the building process.
+     */
+    public long getFailedToPut()
+    {
+        return keys.getFailedToPut();
+    }
+
+    /**
+     * Get the built trie. This method can only be called once.
+     *
+     * @return
+     */
+    public ImmutableLongTrie getTrie()
+    {
+        ImmutableLongTrie trie = new ImmutableLongTrieImpl( keys.pack(), values );
+        values = null;
+        return trie;
+    }
+}
@@ -0,0 +1,54 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.ImmutableLongTrie;
+
+/**
+ *
+ * a double-array trie with one long per state.
+ */
+final class ImmutableLongTrieImpl extends AbstractPrimitiveTrie implements ImmutableLongTrie
+{
+    private final long[] values;
+
+    /**
+     * @param ordinals : a double-array trie whose values are ordinals into 'byOrdinal'
+     * @param byOrdinal : the values
+     */
+    ImmutableLongTrieImpl( ImmutableDoubleArrayTrieImpl<Integer> ordinals, long[] byOrdinal )
+    {
+        super( ordinals );
+        values = new long[check.length];
+        for( int state = 0; state < values.length; state++ )
+        {
+            if( isKeyValueNode( state ))
+            {
+                values[state] = byOrdinal[ordinals.values.apply( state )];
+            }
+        }
+        annotate();
+    }
+
+    @Override
+    int compareValues( int stateA, int stateB )
+    {
+        return Long.compare( values[stateA], values[stateB] );
+    }
+
+    @Override
+    public long get( String key, long defaultValue )
+    {
+        int node = getNode( key );
+        return node != NO_NODE && isKeyValueNode( node ) ? values[node] : defaultValue;
+    }
+
+    @Override
+    public long getValue( int node )
+    {
+        if( !isKeyValueNode( node ))
+        {
+            throw new IllegalArgumentException( "node is not a key-value node: " + node );
+        }
+        return values[node];
+    }
+}
@@ -1,6 +1,8 @@
 
 package mck.collections.trie.impl;
 
+import mck.collections.trie.util.CharacterSet;
+
 /**
  *
  * a data strcuture for prefix trie
@@ -14,29 +16,33 @@ class ImmutablePrefixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
         super();
     }
 
+    protected ImmutablePrefixTrieImpl( CharacterSet characters )
+    {
+        super( characters );
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean put( String key, V value )
     {
-        TrieNode<V> node = root;
-        char[] chars = key.toCharArray();
-        int[] indices = lookupIndices( chars );
-        if( indices == null )
+        if( !isSupported( key ))
         {
             return false; // key contains unsupported characters
         }
+        TrieNode<V> node = root;
         int level = 0;
-        for( int i = 0; i < chars.length; i++ )
+        for( int i = 0, length = key.length(); i < length; i++ )
         {
             level++;
-            int index = indices[i];
-            if( node.children[index] == null )
+            char c = key.charAt( i );
+            int index = characters.charToIndex( c );
+            TrieNode<V> next = node.getChild( index );
+            if( next == null )
             {
-                TrieNode<V> child = new TrieNode<>( characters, chars[i], level );
-                node.addChildIndex( index );
-                node.children[index] = child;
+                TrieNode<V> child = new TrieNode<>( c, level );
+                node.addChild( characters, index, child );
                 child.parent = node;
                 if( node.level + 1 != child.level )
                 {
@@ -48,7 +54,7 @@ class ImmutablePrefixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
             }
             else
             {
-                node = node.children[index];
+                node = next;
             }
             if( node.level < 0 )
             {
@@ -88,18 +94,39 @@ class ImmutablePrefixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
             throw new IllegalArgumentException(
                     "IllegalArgumentException: the argument 'maxPrefixLength' (" + fragmentLength + ") should not be larger than word.length()." );
         }
+        return getNodeWithLongestCommonPart( key, 0, fragmentLength );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
         TrieNode<V> node = root;
-        for( int i = 0; i < fragmentLength; i++ )
+        for( int i = offset, end = offset + length; i < end; i++ )
         {
-            int index = characters.charToIndex(key.charAt( i ) );
-            if( index >= 0 && node.children[index] != null )
+            int index = characters.charToIndex( key.charAt( i ));
+            TrieNode<V> next = index >= 0 ? node.getChild( index ) : null;
+            if( next == null )
             {
-                node = node.children[index];
+                break;
             }
-            else
+            node = next;
+        }
+        return node;
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        TrieNode<V> node = root;
+        for( int i = offset, end = offset + length; i < end; i++ )
+        {
+            int index = characters.charToIndex( key[i] );
+            TrieNode<V> next = index >= 0 ? node.getChild( index ) : null;
+            if( next == null )
             {
                 break;
             }
+            node = next;
         }
         return node;
     }
@@ -0,0 +1,182 @@
+
+package mck.collections.trie.impl;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ *
+ * a path-compressed (radix) representation of a frozen prefix or suffix trie;
+ * chains of nodes with a single child and no value are stored as one edge label.
+ *
+ * @param <V> a generic type
+ */
+class ImmutableRadixTrieImpl<V extends Comparable<V>> extends AbstractImmutableTrie<V>
+{
+    /** true if keys are walked from their last character, as in a suffix trie */
+    private final boolean reversed;
+
+    private ImmutableRadixTrieImpl( AbstractImmutableTrie<V> source, RadixTrieNode<V> root )
+    {
+        super( source.characters, root );
+        this.reversed = source instanceof ImmutableSuffixTrieImpl;
+        this.size = source.size();
+    }
+
+    @Override
+    protected boolean isReversed()
+    {
+        return reversed;
+    }
+
+    /**
+     * Compress a trie built from TrieNode-s.
+     *
+     * @param <V>
+     * @param source : a prefix or suffix trie that has been completely built
+     * @return the compressed equivalent of source
+     */
+    static <V extends Comparable<V>> ImmutableRadixTrieImpl<V> from( AbstractImmutableTrie<V> source )
+    {
+        RadixTrieNode<V> root = new RadixTrieNode<>( new char[0], 0 );
+        compress( source.getRoot(), root );
+        return new ImmutableRadixTrieImpl<>( source, root );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <V extends Comparable<V>> void compress( TrieNode<V> from, RadixTrieNode<V> to )
+    {
+        to.isKeyValueNode = from.isKeyValueNode;
+        to.value = from.value;
+        int count = from.getNumChildren();
+        if( count == 0 )
+        {
+            return;
+        }
+        // in the order of the characters' indices, as in the other layouts
+        List<TrieNode<V>> children = from.getChildren();
+        to.edgeChars = new char[count];
+        to.edges = new RadixTrieNode[count];
+        StringBuilder label = new StringBuilder();
+        for( int i = 0; i < count; i++ )
+        {
+            TrieNode<V> end = children.get( i );
+            label.setLength( 0 );
+            label.append( end.c );
+            while( !end.isKeyValueNode && end.getNumChildren() == 1 )
+            {
+                end = end.childAt( 0 );
+                label.append( end.c );
+            }
+            char[] chars = new char[label.length()];
+            label.getChars( 0, chars.length, chars, 0 );
+            RadixTrieNode<V> edge = new RadixTrieNode<>( chars, end.level );
+            edge.parent = to;
+            to.edgeChars[i] = chars[0];
+            to.edges[i] = edge;
+            compress( end, edge );
+        }
+        to.sortEdgeChars();
+    }
+
+    /**
+     * Walk as far as possible along the first/last fragmentLength characters of key.
+     *
+     * @return the deepest node reached, which may be inside an edge
+     */
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( String key, int fragmentLength )
+    {
+        if( fragmentLength < 0 )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should be non-negative." );
+        }
+        else if( fragmentLength > key.length() )
+        {
+            throw new IllegalArgumentException(
+                    "IllegalArgumentException: the argument 'fragmentLength' (" + fragmentLength + ") should not be larger than key.length()." );
+        }
+        return getNodeWithLongestCommonPart( key, reversed ? key.length() - fragmentLength : 0, fragmentLength );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
+        RadixTrieNode<V> node = (RadixTrieNode<V>) root;
+        int last = offset + length - 1;
+        int i = 0;
+        while( i < length )
+        {
+            RadixTrieNode<V> edge = node.edge( key.charAt( reversed ? last - i : offset + i ));
+            if( edge == null )
+            {
+                break;
+            }
+            int matched = 0;
+            char[] label = edge.label;
+            while( matched < label.length && i < length && label[matched] == key.charAt( reversed ? last - i : offset + i ))
+            {
+                matched++;
+                i++;
+            }
+            if( matched < label.length )
+            {
+                return edge.position( edge.edgeStart() + matched );
+            }
+            node = edge;
+        }
+        return node;
+    }
+
+    @Override
+    TrieNode<V> step( TrieNode<V> node, char c )
+    {
+        return node instanceof RadixEdgeNode ? ((RadixEdgeNode<V>) node).child( c ) : ((RadixTrieNode<V>) node).child( c );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        RadixTrieNode<V> node = (RadixTrieNode<V>) root;
+        int last = offset + length - 1;
+        int i = 0;
+        while( i < length )
+        {
+            RadixTrieNode<V> edge = node.edge( key[reversed ? last - i : offset + i] );
+            if( edge == null )
+            {
+                break;
+            }
+            int matched = 0;
+            char[] label = edge.label;
+            while( matched < label.length && i < length && label[matched] == key[reversed ? last - i : offset + i] )
+            {
+                matched++;
+                i++;
+            }
+            if( matched < label.length )
+            {
+                return edge.position( edge.edgeStart() + matched );
+            }
+            node = edge;
+        }
+        return node;
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        TrieNode<V> node = getNodeWithLongestCommonPart( key, key.length() );
+        return node.level == key.length() && node.isKeyValueNode ?
+               Optional.ofNullable( node.value )
+               :
+               Optional.empty();
+    }
+
+    @Override
+    protected boolean put( String key, V value )
+    {
+        throw new IllegalStateException( "a radix trie cannot be modified" );
+    }
+}
@@ -1,6 +1,8 @@
 
 package mck.collections.trie.impl;
 
+import mck.collections.trie.util.CharacterSet;
+
 /**
  * a data strcuture for suffix trie
  *
@@ -15,28 +17,38 @@ class ImmutableSuffixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
     {
         super();
     }
+
+    protected ImmutableSuffixTrieImpl( CharacterSet characters )
+    {
+        super( characters );
+    }
     
+    @Override
+    protected boolean isReversed()
+    {
+        return true;
+    }
+
     @Override
     public boolean put( String word, V value )
     {
-        TrieNode<V> node = root;
-        char[] chars = word.toCharArray();
-        int[] indices = lookupIndices( chars );
-        if( indices == null )
+        if( !isSupported( word ))
         {
             // not allowed to add this word if one of the chars is unsupported
             return false;
         }
+        TrieNode<V> node = root;
         int level = 0;
-        for( int i = chars.length - 1; i >= 0; i-- )
+        for( int i = word.length() - 1; i >= 0; i-- )
         {
             level++;
-            int index = indices[i];
-            if( node.children[index] == null )
+            char c = word.charAt( i );
+            int index = characters.charToIndex( c );
+            TrieNode<V> next = node.getChild( index );
+            if( next == null )
             {
-                TrieNode<V> temp = new TrieNode<V>( characters, chars[i], level );
-                node.addChildIndex( index );
-                node.children[index] = temp;
+                TrieNode<V> temp = new TrieNode<V>( c, level );
+                node.addChild( characters, index, temp );
                 temp.parent = node;
                 if( node.level + 1 != temp.level )
                 {
@@ -48,7 +60,7 @@ class ImmutableSuffixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
             }
             else
             {
-                node = node.children[index];
+                node = next;
             }
             if( node.level < 0 )
             {
@@ -90,19 +102,39 @@ class ImmutableSuffixTrieImpl<V extends Comparable<V>> extends AbstractImmutable
             throw new IllegalArgumentException(
                     "IllegalArgumentException: the argument 'maxSuffixLength' (" + maxSuffixLength + ") should not be larger than word.length()." );
         }
+        return getNodeWithLongestCommonPart( word, word.length() - maxSuffixLength, maxSuffixLength );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
         TrieNode<V> node = root;
-        int start = word.length() - 1, end = word.length() - maxSuffixLength;
-        for( int i = start; i >= end; i-- )
+        for( int i = offset + length - 1; i >= offset; i-- )
         {
-            int index = characters.charToIndex( word.charAt( i ) );
-            if( index >= 0 && node.children[index] != null )
+            int index = characters.charToIndex( key.charAt( i ));
+            TrieNode<V> next = index >= 0 ? node.getChild( index ) : null;
+            if( next == null )
             {
-                node = node.children[index];
+                break;
             }
-            else
+            node = next;
+        }
+        return node;
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        TrieNode<V> node = root;
+        for( int i = offset + length - 1; i >= offset; i-- )
+        {
+            int index = characters.charToIndex( key[i] );
+            TrieNode<V> next = index >= 0 ? node.getChild( index ) : null;
+            if( next == null )
             {
                 break;
             }
+            node = next;
         }
         return node;
     }
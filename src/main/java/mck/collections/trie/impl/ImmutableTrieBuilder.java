@@ -1,7 +1,25 @@
 
 package mck.collections.trie.impl;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.ImmutableLongTransducer;
 import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.QueryMetrics;
+import mck.collections.trie.util.CharacterSet;
+import mck.collections.trie.util.ValueCodec;
 
 /**
  * ImmutableTrieBuilder-s only support put operations during the construction process.
@@ -16,6 +34,33 @@ public class ImmutableTrieBuilder<V extends Comparable<V>>
 {
     private AbstractImmutableTrie<V> trie; // the trie being built
     private long failedToAdd = 0;
+    private Layout layout = Layout.NODES;
+    private int topK = 0;
+    private boolean substringIndex = false;
+    private QueryMetrics metrics;
+
+    /**
+     * The in-memory representation of the trie returned by getTrie().
+     */
+    public enum Layout
+    {
+        /**
+         * Linked TrieNode-s; the nodes returned by queries are the nodes of the trie.
+         */
+        NODES,
+        /**
+         * Base/check arrays of a double-array trie; several times smaller than NODES,
+         * and lookups are a few array reads per character. Nodes returned by queries
+         * are views created on demand.
+         */
+        DOUBLE_ARRAY,
+        /**
+         * Path-compressed nodes; chains of single-child nodes without a value are
+         * stored as one edge label, which suits long keys with few branches. Nodes
+         * inside an edge are returned as views created on demand.
+         */
+        RADIX
+    }
 
     /**
      * Get a builder for a new PrefixTrie.
@@ -28,6 +73,19 @@ public class ImmutableTrieBuilder<V extends Comparable<V>>
         return new ImmutableTrieBuilder<>( new ImmutablePrefixTrieImpl<V>() );
     }
 
+    /**
+     * Get a builder for a new PrefixTrie over the given characters.
+     *
+     * @param <V>
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static <V extends Comparable<V>> ImmutableTrieBuilder<V> prefix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableTrieBuilder<>( new ImmutablePrefixTrieImpl<V>( characters ));
+    }
+
     /**
      * Get a builder for a new SuffixTrie.
      *
@@ -39,11 +97,90 @@ public class ImmutableTrieBuilder<V extends Comparable<V>>
         return new ImmutableTrieBuilder<>( new ImmutableSuffixTrieImpl<V>() );
     }
 
+    /**
+     * Get a builder for a new SuffixTrie over the given characters.
+     *
+     * @param <V>
+     * @param characters : the characters keys may contain
+     * @return
+     */
+    public static <V extends Comparable<V>> ImmutableTrieBuilder<V> suffix( CharacterSet characters )
+    {
+        requireNonNull( characters, "characters cannot be null" );
+        return new ImmutableTrieBuilder<>( new ImmutableSuffixTrieImpl<V>( characters ));
+    }
+
     private ImmutableTrieBuilder( AbstractImmutableTrie<V> trie )
     {
         this.trie = trie;
     }
 
+    /**
+     * Choose the representation of the trie returned by getTrie().
+     *
+     * @param layout
+     * @return this builder
+     */
+    public ImmutableTrieBuilder<V> layout( Layout layout )
+    {
+        this.layout = requireNonNull( layout, "layout cannot be null" );
+        return this;
+    }
+
+    /**
+     * Precompute, at every node, the best k key-value nodes in descending natural
+     * order of their values. Queries that use the natural order, such as
+     * bestNodesWith(fragment, n), then cost O(|fragment| + n) for n &lt;= k instead
+     * of sorting every key-value node under the fragment.
+     * <p>
+     * This costs up to k references per node, and is disabled by default.
+     *
+     * @param k : number of key-value nodes to keep per node
+     * @return this builder
+     */
+    public ImmutableTrieBuilder<V> topK( int k )
+    {
+        if( k <= 0 )
+        {
+            throw new IllegalArgumentException( "k (" + k + ") should be positive" );
+        }
+        this.topK = k;
+        return this;
+    }
+
+    /**
+     * Index every substring of the keys, so that withSubstring(fragment) and
+     * bestWithSubstring(fragment, comparator, n) find the keys that contain a
+     * fragment anywhere, in time that depends on the fragment and the number of
+     * its occurrences rather than on the number of keys.
+     * <p>
+     * The index is a suffix automaton that takes several ints per char of the
+     * keys; it is built by getTrie(), and is disabled by default.
+     *
+     * @return this builder
+     */
+    public ImmutableTrieBuilder<V> substringIndex()
+    {
+        this.substringIndex = true;
+        return this;
+    }
+
+    /**
+     * Pass a sample of each top-n query of the trie to metrics: the time spent
+     * finding the node of the fragment, collecting the key-value nodes under it
+     * and selecting the best of them, how many nodes were visited and how many
+     * were returned. Without metrics, queries are only timed while Flight
+     * Recorder records the mck.collections.trie.Query event.
+     *
+     * @param metrics
+     * @return this builder
+     */
+    public ImmutableTrieBuilder<V> metrics( QueryMetrics metrics )
+    {
+        this.metrics = requireNonNull( metrics, "metrics cannot be null" );
+        return this;
+    }
+
     /**
      * Get the built trie.
      * <p>
@@ -58,11 +195,113 @@ public class ImmutableTrieBuilder<V extends Comparable<V>>
         {
             throw new IllegalStateException( "getTrie has already been called, and it can only be called once!" );
         }
-        ImmutableTrie<V> tmp = trie;
+        AbstractImmutableTrie<V> tmp;
+        switch( layout )
+        {
+            case DOUBLE_ARRAY:
+                tmp = ImmutableDoubleArrayTrieImpl.from( trie );
+                break;
+            case RADIX:
+                tmp = ImmutableRadixTrieImpl.from( trie );
+                break;
+            default:
+                tmp = trie;
+        }
+        tmp.freeze();
+        if( topK > 0 )
+        {
+            tmp.precomputeBestKeyValueNodes( topK );
+        }
+        if( substringIndex )
+        {
+            tmp.indexSubstrings();
+        }
+        tmp.metrics = metrics;
         trie = null; // after the trie's public API is accessible, its protected methods can no longer be
         return tmp;
     }
 
+    /**
+     * Get the built trie, stored in direct memory rather than on the heap, in the
+     * DOUBLE_ARRAY layout whatever layout() was set to; topK(int) and
+     * metrics(QueryMetrics) still apply. The memory is released once the trie
+     * has been closed and is no longer reachable; see CloseableImmutableTrie.
+     * <p>
+     * Like getTrie(), this method can only be called once.
+     *
+     * @param codec : encodes the trie's values
+     * @return
+     */
+    public CloseableImmutableTrie<V> getOffHeapTrie( ValueCodec<V> codec )
+    {
+        requireNonNull( codec, "codec cannot be null" );
+        if( trie == null )
+        {
+            throw new IllegalStateException( "getTrie has already been called, and it can only be called once!" );
+        }
+        ImmutableDoubleArrayTrieImpl<V> packed = ImmutableDoubleArrayTrieImpl.from( trie );
+        if( topK > 0 )
+        {
+            packed.precomputeBestKeyValueNodes( topK );
+        }
+        trie = null;
+        OffHeapDoubleArrayTrieImpl<V> offHeap = OffHeapDoubleArrayTrieImpl.copyOf( packed, codec );
+        offHeap.metrics = metrics;
+        return offHeap;
+    }
+
+    /**
+     * Get the built trie as a minimal transducer, which shares the common
+     * suffixes of the keys as well as their prefixes, with a long derived from
+     * each value; layout(), topK(int) and substringIndex() don't apply.
+     * <p>
+     * Keys may be put in any order, so they are first built into a trie, which
+     * is then walked in ascending order of the keys into the transducer; the
+     * trie is as large as getTrie()'s would be. To build a transducer from keys
+     * that are already sorted without it, use ImmutableLongTransducerBuilder.sorted().
+     * <p>
+     * Like getTrie(), this method can only be called once.
+     *
+     * @param output : the non-negative long stored for a value
+     * @return
+     */
+    public ImmutableLongTransducer getTransducer( ToLongFunction<? super V> output )
+    {
+        requireNonNull( output, "output cannot be null" );
+        if( trie == null )
+        {
+            throw new IllegalStateException( "getTrie has already been called, and it can only be called once!" );
+        }
+        ImmutableLongTransducerBuilder builder = new ImmutableLongTransducerBuilder( trie.isReversed() );
+        putInKeyOrder( trie.getRoot(), new StringBuilder(), builder, output );
+        trie = null;
+        return builder.getTransducer();
+    }
+
+    /**
+     * Put the keys of node's sub-tree, as the trie walks them, in ascending
+     * order, without collecting them first: children are visited in the order
+     * of their chars, which needn't be the order of their indices.
+     *
+     * @param key : the key of node
+     */
+    private static <V extends Comparable<V>> void putInKeyOrder( TrieNode<V> node, StringBuilder key,
+                                                                 ImmutableLongTransducerBuilder builder, ToLongFunction<? super V> output )
+    {
+        if( node.isKeyValueNode() )
+        {
+            builder.put( key.toString(), output.applyAsLong( node.valueOrNull() ));
+        }
+        List<TrieNode<V>> children = node.getChildren();
+        children.sort( ( a, b ) -> Character.compare( a.c, b.c ));
+        for( TrieNode<V> child : children )
+        {
+            key.append( child.c );
+            putInKeyOrder( child, key, builder, output );
+            key.setLength( key.length() - 1 );
+        }
+    }
+
     /**
      * Keys that contain one or more unsupported chars are not added to the trie.
      *
@@ -93,4 +332,85 @@ public class ImmutableTrieBuilder<V extends Comparable<V>>
         }
         return true;
     }
+
+    /**
+     * Add many key-value pairs, building the sub-trees under different first
+     * characters in parallel on the common ForkJoinPool.
+     *
+     * @param entries : key-value pairs; if a key occurs more than once, the last value wins
+     * @return the number of pairs rejected because their key contains unsupported chars
+     */
+    public long putAll( Collection<? extends Map.Entry<String, ? extends V>> entries )
+    {
+        return putAll( entries, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Add many key-value pairs, building the sub-trees under different first
+     * characters in parallel.
+     *
+     * @param entries : key-value pairs; if a key occurs more than once, the last value wins
+     * @param pool    : the pool that builds the sub-trees
+     * @return the number of pairs rejected because their key contains unsupported chars
+     */
+    public long putAll( Collection<? extends Map.Entry<String, ? extends V>> entries, ForkJoinPool pool )
+    {
+        requireNonNull( entries, "entries cannot be null" );
+        requireNonNull( pool, "pool cannot be null" );
+        if( trie == null )
+        {
+            throw new IllegalStateException( "you cannot modify a trie after it's been used!" );
+        }
+        List<? extends Map.Entry<String, ? extends V>> list = entries instanceof List ?
+                                                              (List<? extends Map.Entry<String, ? extends V>>) entries
+                                                              :
+                                                              new ArrayList<>( entries );
+        long failed = new BulkPut<>( trie ).putAll( list, pool );
+        failedToAdd += failed;
+        return failed;
+    }
+
+    /**
+     * Add the key-value pairs of a stream, which may be parallel; see putAll(Collection).
+     *
+     * @param entries : key-value pairs; if a key occurs more than once, the last one in encounter order wins
+     * @return the number of pairs rejected because their key contains unsupported chars
+     */
+    public long putAll( Stream<? extends Map.Entry<String, ? extends V>> entries )
+    {
+        requireNonNull( entries, "entries cannot be null" );
+        return putAll( entries.collect( toList() ));
+    }
+
+    /**
+     * A collector that adds each element's key and value to a builder, with
+     * putAll(Collection), and returns the builder.
+     *
+     * @param <T>
+     * @param <V>
+     * @param builder     : supplies the builder, e.g. ImmutableTrieBuilder::prefix
+     * @param keyMapper   : the key of an element
+     * @param valueMapper : the value of an element
+     * @return
+     */
+    public static <T, V extends Comparable<V>> Collector<T, ?, ImmutableTrieBuilder<V>> collector( Supplier<ImmutableTrieBuilder<V>> builder,
+                                                                                                  Function<? super T, String> keyMapper,
+                                                                                                  Function<? super T, ? extends V> valueMapper )
+    {
+        requireNonNull( builder, "builder cannot be null" );
+        requireNonNull( keyMapper, "keyMapper cannot be null" );
+        requireNonNull( valueMapper, "valueMapper cannot be null" );
+        return Collector.<T, List<Map.Entry<String, V>>, ImmutableTrieBuilder<V>>of(
+                ArrayList::new,
+                ( list, t ) -> list.add( new AbstractMap.SimpleImmutableEntry<>( keyMapper.apply( t ), valueMapper.apply( t ))),
+                ( left, right ) -> {
+                    left.addAll( right );
+                    return left;
+                },
+                list -> {
+                    ImmutableTrieBuilder<V> result = builder.get();
+                    result.putAll( list );
+                    return result;
+                } );
+    }
 }
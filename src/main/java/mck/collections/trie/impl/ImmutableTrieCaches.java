@@ -0,0 +1,36 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import mck.collections.trie.CachingImmutableTrie;
+import mck.collections.trie.ImmutableTrie;
+
+/**
+ * Puts a cache of query results in front of a trie, for traffic in which a few
+ * fragments are queried over and over, as in autocompletion.
+ *
+ * @author carter
+ */
+public final class ImmutableTrieCaches
+{
+    private ImmutableTrieCaches()
+    {
+    }
+
+    /**
+     * Wrap a trie with a cache of its top-n query results; see CachingImmutableTrie.
+     * <p>
+     * Cached results are never invalidated, so the trie shouldn't be modified
+     * while it is wrapped.
+     *
+     * @param <V>
+     * @param trie        : the trie that answers queries the cache can't
+     * @param maximumSize : the greatest number of results to keep
+     * @return the caching trie
+     */
+    public static <V extends Comparable<V>> CachingImmutableTrie<V> wrap( ImmutableTrie<V> trie, int maximumSize )
+    {
+        requireNonNull( trie, "trie cannot be null" );
+        return new CachingImmutableTrieImpl<>( trie, maximumSize );
+    }
+}
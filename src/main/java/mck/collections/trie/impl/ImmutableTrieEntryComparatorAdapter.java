@@ -3,6 +3,7 @@ package mck.collections.trie.impl;
 
 import java.util.Comparator;
 import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.MonotoneComparator;
 
 /**
  * 
@@ -16,6 +17,19 @@ public class ImmutableTrieEntryComparatorAdapter<V extends Comparable<V>> implem
     {
         this.comparator = comparator;
     }
+    
+    /**
+     * @param <V>
+     * @param comparator an entry comparator
+     * @return an adapter, which is a MonotoneComparator if comparator is one
+     */
+    public static <V extends Comparable<V>> ImmutableTrieEntryComparatorAdapter<V> adapt( Comparator<ImmutableTrie.Entry<V>> comparator )
+    {
+        return comparator instanceof MonotoneComparator ?
+               new Monotone<>( comparator )
+               :
+               new ImmutableTrieEntryComparatorAdapter<>( comparator );
+    }
 
     @Override
     public int compare( TrieNode<V> o1, TrieNode<V> o2 )
@@ -25,4 +39,13 @@ public class ImmutableTrieEntryComparatorAdapter<V extends Comparable<V>> implem
         return comparator.compare( new ImmutableTrieEntryImpl<>( o1 ),
                                    new ImmutableTrieEntryImpl<>( o2 ));
     }
+    
+    private static class Monotone<V extends Comparable<V>> extends ImmutableTrieEntryComparatorAdapter<V>
+                                                           implements MonotoneComparator<TrieNode<V>>
+    {
+        Monotone( Comparator<ImmutableTrie.Entry<V>> comparator )
+        {
+            super( comparator );
+        }
+    }
 }
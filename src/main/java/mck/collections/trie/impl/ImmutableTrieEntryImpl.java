@@ -10,8 +10,9 @@ import mck.collections.trie.ImmutableTrie;
  */
 class ImmutableTrieEntryImpl<V extends Comparable<V>> implements ImmutableTrie.Entry<V>
 {
-    private final String key;
+    private final TrieNode<V> node;
     private final V value;
+    private String key; // built on first use, from the node's ancestors
     
     protected ImmutableTrieEntryImpl( TrieNode<V> node )
     {
@@ -22,12 +23,16 @@ class ImmutableTrieEntryImpl<V extends Comparable<V>> implements ImmutableTrie.E
         }
         value = node.getValue()
                 .orElseThrow( () -> new IllegalArgumentException( "node is a key-value node, but has no value: " + node ));
-        key = node.getKey();
+        this.node = node;
     }
     
     @Override
     public String getKey()
     {
+        if( key == null )
+        {
+            key = node.getKey();
+        }
         return key;
     }
 
@@ -0,0 +1,61 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import mck.collections.trie.ImmutableTrie;
+
+/**
+ * Wraps each key-value node of a node spliterator in an entry, as it is reached.
+ *
+ * @param <V> a generic type
+ */
+class ImmutableTrieEntrySpliterator<V extends Comparable<V>> implements Spliterator<ImmutableTrie.Entry<V>>
+{
+    private final Spliterator<TrieNode<V>> nodes;
+    private final Function<TrieNode<V>, ImmutableTrie.Entry<V>> entries;
+
+    ImmutableTrieEntrySpliterator( Spliterator<TrieNode<V>> nodes, Function<TrieNode<V>, ImmutableTrie.Entry<V>> entries )
+    {
+        this.nodes = nodes;
+        this.entries = entries;
+    }
+
+    @Override
+    public boolean tryAdvance( Consumer<? super ImmutableTrie.Entry<V>> action )
+    {
+        return nodes.tryAdvance( node -> action.accept( entries.apply( node )));
+    }
+
+    @Override
+    public void forEachRemaining( Consumer<? super ImmutableTrie.Entry<V>> action )
+    {
+        nodes.forEachRemaining( node -> action.accept( entries.apply( node )));
+    }
+
+    @Override
+    public Spliterator<ImmutableTrie.Entry<V>> trySplit()
+    {
+        Spliterator<TrieNode<V>> prefix = nodes.trySplit();
+        return prefix == null ? null : new ImmutableTrieEntrySpliterator<>( prefix, entries );
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return nodes.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown()
+    {
+        return nodes.getExactSizeIfKnown();
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return nodes.characteristics();
+    }
+}
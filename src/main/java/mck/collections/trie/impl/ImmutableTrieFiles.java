@@ -0,0 +1,107 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.util.ValueCodec;
+
+/**
+ * Stores frozen tries in files, and opens them again by mapping the file into
+ * memory: opening takes constant time, queries read the mapping in place, and
+ * processes that open the same file share its pages.
+ * <p>
+ * Tries are stored in the DOUBLE_ARRAY layout, with the best key-value nodes
+ * precomputed by ImmutableTrieBuilder.topK(int), if any. Files are limited to
+ * 2GB.
+ *
+ * @author carter
+ */
+public final class ImmutableTrieFiles
+{
+    private ImmutableTrieFiles()
+    {
+    }
+
+    /**
+     * Write a trie to a file, replacing the file if it exists.
+     *
+     * @param <V>
+     * @param trie  : a trie built by ImmutableTrieBuilder with the NODES or DOUBLE_ARRAY layout
+     * @param codec : encodes the trie's values
+     * @param path  : the file
+     * @throws IOException
+     */
+    public static <V extends Comparable<V>> void write( ImmutableTrie<V> trie, ValueCodec<V> codec, Path path ) throws IOException
+    {
+        requireNonNull( trie, "trie cannot be null" );
+        requireNonNull( codec, "codec cannot be null" );
+        requireNonNull( path, "path cannot be null" );
+        ImmutableDoubleArrayTrieImpl<V> packed = doubleArray( trie );
+        long length = DoubleArrayTrieFormat.length( packed, codec );
+        if( length > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "the trie needs " + length + " bytes, more than a file can hold" );
+        }
+        try( FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                     StandardOpenOption.READ, StandardOpenOption.WRITE ))
+        {
+            MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, length );
+            DoubleArrayTrieFormat.write( packed, codec, buffer );
+            buffer.force();
+        }
+    }
+
+    /**
+     * Open a trie written by write(trie, codec, path). The file must not be
+     * changed while the trie is in use; the file is unmapped once the trie has
+     * been closed and its mapping is no longer reachable.
+     *
+     * @param <V>
+     * @param path  : the file
+     * @param codec : decodes the trie's values; it must be the codec it was written with
+     * @return a trie that reads the file in place
+     * @throws IOException
+     * @throws IllegalArgumentException if the file is not a trie of a supported
+     *                                  version, is truncated, or was written with
+     *                                  another codec
+     */
+    public static <V extends Comparable<V>> CloseableImmutableTrie<V> open( Path path, ValueCodec<V> codec ) throws IOException
+    {
+        requireNonNull( path, "path cannot be null" );
+        requireNonNull( codec, "codec cannot be null" );
+        try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ))
+        {
+            if( channel.size() > Integer.MAX_VALUE )
+            {
+                throw new IllegalArgumentException( "'" + path + "' is too large to be a trie" );
+            }
+            // the mapping stays valid after the channel is closed
+            return OffHeapDoubleArrayTrieImpl.read( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ), codec );
+        }
+    }
+
+    static <V extends Comparable<V>> ImmutableDoubleArrayTrieImpl<V> doubleArray( ImmutableTrie<V> trie )
+    {
+        if( trie instanceof ImmutableDoubleArrayTrieImpl )
+        {
+            return (ImmutableDoubleArrayTrieImpl<V>) trie;
+        }
+        if( trie instanceof ImmutablePrefixTrieImpl || trie instanceof ImmutableSuffixTrieImpl )
+        {
+            AbstractImmutableTrie<V> nodes = (AbstractImmutableTrie<V>) trie;
+            ImmutableDoubleArrayTrieImpl<V> packed = ImmutableDoubleArrayTrieImpl.from( nodes );
+            if( nodes.getRoot().bestKeyValueNodes != null )
+            {
+                packed.precomputeBestKeyValueNodes( nodes.getRoot().bestKeyValueNodes.length );
+            }
+            return packed;
+        }
+        throw new IllegalArgumentException( "only tries built with the NODES or DOUBLE_ARRAY layout can be stored" );
+    }
+}
@@ -0,0 +1,52 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.ImmutableWordGraph;
+
+/**
+ * Builds an ImmutableWordGraph from keys put in ascending order; see
+ * SortedAutomatonBuilder.
+ *
+ * @author carter
+ */
+public class ImmutableWordGraphBuilder
+{
+    private final SortedAutomatonBuilder automaton = new SortedAutomatonBuilder();
+
+    /**
+     * Get a builder for a new word graph.
+     *
+     * @return
+     */
+    public static ImmutableWordGraphBuilder sorted()
+    {
+        return new ImmutableWordGraphBuilder();
+    }
+
+    private ImmutableWordGraphBuilder()
+    {
+    }
+
+    /**
+     * Add a key, greater than every key put before it.
+     *
+     * @param key
+     * @return the ordinal of the key, under which the caller can store its value
+     */
+    public int put( String key )
+    {
+        return automaton.put( key, 0 );
+    }
+
+    /**
+     * Get the built word graph. This method can only be called once.
+     *
+     * @return
+     */
+    public ImmutableWordGraph getWordGraph()
+    {
+        int root = automaton.finish();
+        return new ImmutableWordGraphImpl( root, automaton.size(), automaton.accepting, automaton.firstArc,
+                                           automaton.labels, automaton.targets, automaton.arcOrdinals );
+    }
+}
@@ -0,0 +1,157 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import mck.collections.trie.ImmutableWordGraph;
+
+/**
+ *
+ * a minimal acyclic word graph in flat arrays: the arcs of state s are
+ * arcs[firstArc[s], firstArc[s + 1]), sorted by label.
+ * <p>
+ * Each arc also holds the number of keys accepted, from its state, before the
+ * arc is taken: 1 if the state is accepting, plus the keys under the arcs with
+ * smaller labels. The ordinal of a key is the sum of those numbers along its
+ * path, and the key of an ordinal is found by choosing, at every state, the
+ * last arc whose number doesn't exceed what remains of the ordinal.
+ */
+class ImmutableWordGraphImpl implements ImmutableWordGraph
+{
+    private final int root;
+    private final int size;
+    private final boolean[] accepting;
+    private final int[] firstArc;
+    private final char[] labels;
+    private final int[] targets;
+    /** the keys accepted from an arc's state before the arc is taken */
+    private final int[] arcOrdinals;
+
+    ImmutableWordGraphImpl( int root, int size, boolean[] accepting, int[] firstArc, char[] labels, int[] targets, int[] arcOrdinals )
+    {
+        this.root = root;
+        this.size = size;
+        this.accepting = accepting;
+        this.firstArc = firstArc;
+        this.labels = labels;
+        this.targets = targets;
+        this.arcOrdinals = arcOrdinals;
+    }
+
+    @Override
+    public boolean containsKey( String key )
+    {
+        return ordinal( key, 0, key.length() ) != NO_ORDINAL;
+    }
+
+    @Override
+    public int ordinal( String key )
+    {
+        return ordinal( key, 0, key.length() );
+    }
+
+    @Override
+    public int ordinal( CharSequence key, int offset, int length )
+    {
+        Objects.checkFromIndexSize( offset, length, key.length() );
+        int state = root;
+        int ordinal = 0;
+        for( int i = offset; i < offset + length; i++ )
+        {
+            int arc = arc( state, key.charAt( i ));
+            if( arc < 0 )
+            {
+                return NO_ORDINAL;
+            }
+            ordinal += arcOrdinals[arc];
+            state = targets[arc];
+        }
+        return accepting[state] ? ordinal : NO_ORDINAL;
+    }
+
+    @Override
+    public String getKey( int ordinal )
+    {
+        Objects.checkIndex( ordinal, size );
+        StringBuilder key = new StringBuilder();
+        int state = root;
+        while( !accepting[state] || ordinal > 0 )
+        {
+            // the last arc that starts at or before the ordinal
+            int from = firstArc[state];
+            int to = firstArc[state + 1] - 1;
+            while( from < to )
+            {
+                int middle = (from + to + 1) >>> 1;
+                if( arcOrdinals[middle] <= ordinal )
+                {
+                    from = middle;
+                }
+                else
+                {
+                    to = middle - 1;
+                }
+            }
+            ordinal -= arcOrdinals[from];
+            key.append( labels[from] );
+            state = targets[from];
+        }
+        return key.toString();
+    }
+
+    @Override
+    public List<String> keysWith( String prefix )
+    {
+        int state = root;
+        for( int i = 0; i < prefix.length() && state >= 0; i++ )
+        {
+            int arc = arc( state, prefix.charAt( i ));
+            state = arc < 0 ? -1 : targets[arc];
+        }
+        if( state < 0 )
+        {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>();
+        collectKeys( state, new StringBuilder( prefix ), keys );
+        return keys;
+    }
+
+    private void collectKeys( int state, StringBuilder key, List<String> keys )
+    {
+        if( accepting[state] )
+        {
+            keys.add( key.toString() );
+        }
+        for( int arc = firstArc[state]; arc < firstArc[state + 1]; arc++ )
+        {
+            key.append( labels[arc] );
+            collectKeys( targets[arc], key, keys );
+            key.setLength( key.length() - 1 );
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int numStates()
+    {
+        return accepting.length;
+    }
+
+    /**
+     * @return the arc of state labelled c, or -1
+     */
+    private int arc( int state, char c )
+    {
+        int arc = Arrays.binarySearch( labels, firstArc[state], firstArc[state + 1], c );
+        return arc >= 0 ? arc : -1;
+    }
+}
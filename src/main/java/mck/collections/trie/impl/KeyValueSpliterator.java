@@ -0,0 +1,109 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * a depth-first traversal of the key-value nodes of a sub-tree, for tries that
+ * have not numbered their key-value nodes; sub-trees are only visited as the
+ * traversal reaches them.
+ *
+ * @param <V> a generic type
+ */
+class KeyValueSpliterator<V extends Comparable<V>> implements Spliterator<TrieNode<V>>
+{
+    /** a key-value node to report before the pending sub-trees, or null */
+    private TrieNode<V> next;
+    /** sub-trees that have not been visited yet; the first one is on top */
+    private final Deque<TrieNode<V>> pending;
+
+    KeyValueSpliterator( TrieNode<V> node )
+    {
+        this( null, new ArrayDeque<>() );
+        pending.push( node );
+    }
+
+    private KeyValueSpliterator( TrieNode<V> next, Deque<TrieNode<V>> pending )
+    {
+        this.next = next;
+        this.pending = pending;
+    }
+
+    @Override
+    public boolean tryAdvance( Consumer<? super TrieNode<V>> action )
+    {
+        if( next != null )
+        {
+            TrieNode<V> keyValueNode = next;
+            next = null;
+            action.accept( keyValueNode );
+            return true;
+        }
+        while( !pending.isEmpty() )
+        {
+            TrieNode<V> node = pending.pop();
+            pushChildren( node );
+            TrieNode<V> keyValueNode = node.keyValueSnapshot();
+            if( keyValueNode != null )
+            {
+                action.accept( keyValueNode );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void pushChildren( TrieNode<V> node )
+    {
+        List<TrieNode<V>> children = node.getChildren();
+        for( int i = children.size() - 1; i >= 0; i-- )
+        {
+            pending.push( children.get( i ));
+        }
+    }
+
+    /**
+     * Hand the first half of the pending sub-trees to a new spliterator; a single
+     * pending sub-tree is opened up first, and if it is a key-value node itself,
+     * the node goes to the new spliterator, ahead of its share of the children.
+     */
+    @Override
+    public Spliterator<TrieNode<V>> trySplit()
+    {
+        while( next == null && pending.size() == 1 )
+        {
+            TrieNode<V> node = pending.pop();
+            next = node.keyValueSnapshot();
+            pushChildren( node );
+        }
+        if( pending.isEmpty() || next == null && pending.size() == 1 )
+        {
+            return null;
+        }
+        int half = pending.size() / 2;
+        Deque<TrieNode<V>> prefix = new ArrayDeque<>( Math.max( half, 1 ));
+        for( int i = 0; i < half; i++ )
+        {
+            prefix.addLast( pending.pop() );
+        }
+        KeyValueSpliterator<V> split = new KeyValueSpliterator<>( next, prefix );
+        next = null;
+        return split;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return next == null && pending.isEmpty() ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
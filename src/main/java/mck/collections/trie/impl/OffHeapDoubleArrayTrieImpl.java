@@ -0,0 +1,131 @@
+
+package mck.collections.trie.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.util.ValueCodec;
+
+/**
+ *
+ * a double-array trie whose arrays and values are stored in a direct or mapped
+ * buffer, in the format of DoubleArrayTrieFormat; the garbage collector only
+ * sees a handful of objects per trie.
+ * <p>
+ * close() drops the trie's views of the buffer rather than freeing it: the
+ * memory is released by the buffer's own cleaner once neither the trie nor a
+ * query in flight can reach it, so a query racing with close() fails, or
+ * completes, but never reads released memory.
+ *
+ * @param <V> a generic type
+ */
+class OffHeapDoubleArrayTrieImpl<V extends Comparable<V>> extends ImmutableDoubleArrayTrieImpl<V> implements CloseableImmutableTrie<V>
+{
+    private volatile boolean closed;
+
+    private OffHeapDoubleArrayTrieImpl( ImmutableDoubleArrayTrieImpl<V> trie )
+    {
+        super( trie );
+    }
+
+    /**
+     * Copy a trie to direct memory.
+     *
+     * @param trie  : a double-array trie on the heap
+     * @param codec : encodes the trie's values
+     * @return the copy
+     */
+    static <V extends Comparable<V>> OffHeapDoubleArrayTrieImpl<V> copyOf( ImmutableDoubleArrayTrieImpl<V> trie, ValueCodec<V> codec )
+    {
+        long length = DoubleArrayTrieFormat.length( trie, codec );
+        if( length > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "the trie needs " + length + " bytes, more than a direct buffer can hold" );
+        }
+        ByteBuffer memory = ByteBuffer.allocateDirect( (int) length );
+        DoubleArrayTrieFormat.write( trie, codec, memory );
+        memory.flip();
+        return read( memory, codec );
+    }
+
+    /**
+     * @param memory : a direct or mapped buffer that holds a trie at position 0
+     * @param codec  : decodes the trie's values
+     */
+    static <V extends Comparable<V>> OffHeapDoubleArrayTrieImpl<V> read( ByteBuffer memory, ValueCodec<V> codec )
+    {
+        return new OffHeapDoubleArrayTrieImpl<>( DoubleArrayTrieFormat.read( memory, codec ));
+    }
+
+    /**
+     * Queries that start afterwards throw IllegalStateException; the memory is
+     * released when the garbage collector finds the buffer unreachable.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if( closed )
+        {
+            return;
+        }
+        closed = true;
+        release();
+    }
+
+    private void ensureOpen()
+    {
+        if( closed )
+        {
+            throw new IllegalStateException( "the trie has been closed" );
+        }
+    }
+
+    @Override
+    public TrieNode<V> getRoot()
+    {
+        ensureOpen();
+        return super.getRoot();
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( String key, int fragmentLength )
+    {
+        ensureOpen();
+        return super.getNodeWithLongestCommonPart( key, fragmentLength );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( CharSequence key, int offset, int length )
+    {
+        ensureOpen();
+        return super.getNodeWithLongestCommonPart( key, offset, length );
+    }
+
+    @Override
+    protected TrieNode<V> getNodeWithLongestCommonPart( char[] key, int offset, int length )
+    {
+        ensureOpen();
+        return super.getNodeWithLongestCommonPart( key, offset, length );
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        ensureOpen();
+        return super.get( key );
+    }
+
+    @Override
+    public V getOrDefault( CharSequence key, int offset, int length, V defaultValue )
+    {
+        ensureOpen();
+        return super.getOrDefault( key, offset, length, defaultValue );
+    }
+
+    @Override
+    public V getOrDefault( char[] key, int offset, int length, V defaultValue )
+    {
+        ensureOpen();
+        return super.getOrDefault( key, offset, length, defaultValue );
+    }
+}
@@ -0,0 +1,64 @@
+
+package mck.collections.trie.impl;
+
+import mck.collections.trie.util.ASCIICharacterSet;
+import mck.collections.trie.util.CharacterSet;
+
+/**
+ * Builds the structure of a trie with primitive values: keys are put with the
+ * ordinal of their value, and the values themselves are kept by the caller in
+ * a primitive array.
+ */
+final class OrdinalTrieBuilder
+{
+    private AbstractImmutableTrie<Integer> trie; // the trie being built
+    private int ordinals;
+    private long failedToAdd;
+
+    OrdinalTrieBuilder( CharacterSet characters, boolean suffix )
+    {
+        if( characters == null )
+        {
+            characters = new ASCIICharacterSet();
+        }
+        this.trie = suffix ? new ImmutableSuffixTrieImpl<>( characters ) : new ImmutablePrefixTrieImpl<>( characters );
+    }
+
+    /**
+     * @param key : the key
+     * @return the ordinal under which the caller should store the key's value, or
+     *         -1 if the key contains unsupported characters
+     */
+    int put( String key )
+    {
+        if( trie == null )
+        {
+            throw new IllegalStateException( "you cannot modify a trie after it's been used!" );
+        }
+        if( !trie.put( key, ordinals ))
+        {
+            failedToAdd++;
+            return -1;
+        }
+        return ordinals++;
+    }
+
+    long getFailedToPut()
+    {
+        return failedToAdd;
+    }
+
+    /**
+     * @return the packed trie; this can only be called once
+     */
+    ImmutableDoubleArrayTrieImpl<Integer> pack()
+    {
+        if( trie == null )
+        {
+            throw new IllegalStateException( "getTrie has already been called, and it can only be called once!" );
+        }
+        ImmutableDoubleArrayTrieImpl<Integer> packed = ImmutableDoubleArrayTrieImpl.from( trie );
+        trie = null;
+        return packed;
+    }
+}
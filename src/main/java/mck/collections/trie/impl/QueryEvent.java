@@ -0,0 +1,52 @@
+
+package mck.collections.trie.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for a top-n query, committed by QueryProbe. By
+ * default only queries that take 1 ms or more are recorded; the threshold of
+ * mck.collections.trie.Query can be changed in a recording's settings.
+ */
+@Name( "mck.collections.trie.Query" )
+@Label( "Trie Query" )
+@Category( { "Collections", "Trie" } )
+@Description( "A top-n query of an immutable trie, with the time spent in each phase" )
+@StackTrace( false )
+@Threshold( "1 ms" )
+final class QueryEvent extends Event
+{
+    @Label( "Query" )
+    String query;
+
+    @Label( "Fragment" )
+    String fragment;
+
+    @Label( "Selection" )
+    String selection;
+
+    @Label( "Lookup" )
+    @Timespan
+    long lookup;
+
+    @Label( "Collect" )
+    @Timespan
+    long collect;
+
+    @Label( "Select" )
+    @Timespan
+    long select;
+
+    @Label( "Nodes Visited" )
+    int nodesVisited;
+
+    @Label( "Results" )
+    int results;
+}
@@ -0,0 +1,204 @@
+
+package mck.collections.trie.impl;
+
+import jdk.jfr.EventType;
+import mck.collections.trie.QueryMetrics;
+import mck.collections.trie.QueryMetrics.Selection;
+
+/**
+ * Times the phases of one top-n query, for a QueryMetrics and for the
+ * QueryEvent of Flight Recorder. A query is only probed if the trie has a
+ * QueryMetrics or the event is enabled; otherwise start returns null, and each
+ * phase costs a null check.
+ */
+final class QueryProbe implements QueryMetrics.Sample
+{
+    /** null if Flight Recorder isn't available */
+    private static final EventType EVENT_TYPE = eventType();
+
+    private final QueryMetrics metrics;
+    private final QueryEvent event;
+    private final String query;
+    private final String key;
+    private final int fragmentLength;
+    private final boolean reversed;
+    private final long start;
+    private long lookedUp;
+    private long collected;
+    private long end;
+    private Selection selection = Selection.NONE;
+    private int nodesVisited;
+    private int resultCount;
+
+    private QueryProbe( QueryMetrics metrics, QueryEvent event, String query, String key, int fragmentLength, boolean reversed )
+    {
+        this.metrics = metrics;
+        this.event = event;
+        this.query = query;
+        this.key = key;
+        this.fragmentLength = fragmentLength;
+        this.reversed = reversed;
+        if( event != null )
+        {
+            event.begin();
+        }
+        start = System.nanoTime();
+    }
+
+    /**
+     * @param metrics        : the trie's metrics, or null
+     * @param query          : the method called
+     * @param key            : the key of the query
+     * @param fragmentLength : the length of the fragment of key
+     * @param reversed       : true if the fragment is the suffix of key
+     * @return a probe, or null if neither metrics nor the event would record it
+     */
+    static QueryProbe start( QueryMetrics metrics, String query, String key, int fragmentLength, boolean reversed )
+    {
+        boolean recording = isRecording();
+        if( metrics == null && !recording )
+        {
+            return null;
+        }
+        return new QueryProbe( metrics, recording ? new QueryEvent() : null, query, key, fragmentLength, reversed );
+    }
+
+    /**
+     * @return true if start would return a probe, for callers that have to build
+     *         the key of the query
+     */
+    static boolean isProbing( QueryMetrics metrics )
+    {
+        return metrics != null || isRecording();
+    }
+
+    private static boolean isRecording()
+    {
+        return EVENT_TYPE != null && EVENT_TYPE.isEnabled();
+    }
+
+    /**
+     * The node of the fragment has been found.
+     */
+    void lookedUp()
+    {
+        lookedUp = System.nanoTime();
+    }
+
+    /**
+     * The key-value nodes of the sub-tree have been collected, to be ranked.
+     */
+    void scanned( int keyValueNodes )
+    {
+        collected = System.nanoTime();
+        selection = Selection.SCAN;
+        nodesVisited = keyValueNodes;
+    }
+
+    void selected( Selection selection, int nodesVisited )
+    {
+        this.selection = selection;
+        this.nodesVisited = nodesVisited;
+    }
+
+    /**
+     * Record the query.
+     *
+     * @param results : the number of nodes returned
+     */
+    void finish( int results )
+    {
+        end = System.nanoTime();
+        resultCount = results;
+        if( event != null )
+        {
+            event.end();
+            if( event.shouldCommit() )
+            {
+                event.query = query;
+                event.fragment = getFragment();
+                event.selection = selection.name();
+                event.lookup = getLookupNanos();
+                event.collect = getCollectNanos();
+                event.select = getSelectNanos();
+                event.nodesVisited = nodesVisited;
+                event.results = results;
+                event.commit();
+            }
+        }
+        if( metrics != null )
+        {
+            metrics.record( this );
+        }
+    }
+
+    @Override
+    public String getQuery()
+    {
+        return query;
+    }
+
+    @Override
+    public String getFragment()
+    {
+        int length = Math.min( Math.max( fragmentLength, 0 ), key.length() );
+        return reversed ? key.substring( key.length() - length ) : key.substring( 0, length );
+    }
+
+    @Override
+    public Selection getSelection()
+    {
+        return selection;
+    }
+
+    @Override
+    public long getLookupNanos()
+    {
+        return lookedUp - start;
+    }
+
+    @Override
+    public long getCollectNanos()
+    {
+        return selection == Selection.SCAN ? collected - lookedUp : 0;
+    }
+
+    @Override
+    public long getSelectNanos()
+    {
+        return end - (selection == Selection.SCAN ? collected : lookedUp);
+    }
+
+    @Override
+    public int getNodesVisited()
+    {
+        return nodesVisited;
+    }
+
+    @Override
+    public int getResultCount()
+    {
+        return resultCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return query + "('" + getFragment() + "'): " + selection + ", lookup " + getLookupNanos() + " ns, collect "
+               + getCollectNanos() + " ns, select " + getSelectNanos() + " ns, " + nodesVisited + " nodes visited, "
+               + resultCount + " results";
+    }
+
+    private static EventType eventType()
+    {
+        try
+        {
+            return EventType.getEventType( QueryEvent.class );
+        }
+        catch( IllegalStateException | LinkageError e )
+        {
+            // the JVM doesn't support Flight Recorder, or the jdk.jfr module is missing
+            return null;
+        }
+    }
+}
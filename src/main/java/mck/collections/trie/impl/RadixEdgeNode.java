@@ -0,0 +1,162 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * a view of a node inside a path-compressed edge of an ImmutableRadixTrieImpl;
+ * it has exactly one child, and the same key-value nodes as the explicit node
+ * at the end of the edge.
+ *
+ * @param <V> a generic type
+ */
+class RadixEdgeNode<V extends Comparable<V>> extends TrieNode<V>
+{
+    /** the explicit node at the end of the edge */
+    private final RadixTrieNode<V> end;
+
+    RadixEdgeNode( RadixTrieNode<V> end, int level )
+    {
+        super( end.label[level - end.edgeStart() - 1], level );
+        this.end = end;
+    }
+
+    @Override
+    public Optional<V> getValue()
+    {
+        return Optional.empty();
+    }
+
+    @Override
+    V valueOrNull()
+    {
+        return null;
+    }
+
+    @Override
+    public void setValue( V value )
+    {
+        throw new UnsupportedOperationException( "a radix trie cannot be modified" );
+    }
+
+    @Override
+    public boolean isKeyValueNode()
+    {
+        return false;
+    }
+
+    @Override
+    public Optional<TrieNode<V>> getParent()
+    {
+        return Optional.of( level - 1 == end.edgeStart() ? end.parent : end.position( level - 1 ));
+    }
+
+    @Override
+    public List<TrieNode<V>> getAncestors()
+    {
+        TrieNode<V> parent = getParent().get();
+        List<TrieNode<V>> result = new ArrayList<>( level );
+        result.add( parent );
+        result.addAll( parent.getAncestors() );
+        return result;
+    }
+
+    @Override
+    public String getKey()
+    {
+        return end.getKey().substring( 0, level );
+    }
+
+    @Override
+    public StringBuilder appendKey( StringBuilder sb )
+    {
+        int length = sb.length() + level;
+        end.appendKey( sb ).setLength( length );
+        return sb;
+    }
+
+    @Override
+    public int getNumChildren()
+    {
+        return 1;
+    }
+
+    @Override
+    public List<TrieNode<V>> getChildren()
+    {
+        return Collections.singletonList( end.position( level + 1 ));
+    }
+
+    @Override
+    TrieNode<V> childAt( int i )
+    {
+        return end;
+    }
+
+    /**
+     * @return the next node along the edge if it is labelled c, or null
+     */
+    TrieNode<V> child( char c )
+    {
+        return end.label[level - end.edgeStart()] == c ? end.position( level + 1 ) : null;
+    }
+
+    @Override
+    public List<TrieNode<V>> getKeyValueChildren()
+    {
+        return end.getKeyValueChildren();
+    }
+
+    @Override
+    Spliterator<TrieNode<V>> keyValueSpliterator()
+    {
+        return end.keyValueSpliterator();
+    }
+
+    @Override
+    Optional<TrieNode<V>> getBestKeyValueNode( Comparator<TrieNode<V>> comparator, QueryProbe probe )
+    {
+        return end.getBestKeyValueNode( comparator, probe );
+    }
+
+    @Override
+    List<TrieNode<V>> getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator, QueryProbe probe )
+    {
+        return end.getBestKeyValueNodes( n, comparator, probe );
+    }
+
+    @Override
+    int getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator, Consumer<? super TrieNode<V>> sink, QueryProbe probe )
+    {
+        return end.getBestKeyValueNodes( n, comparator, sink, probe );
+    }
+
+    @Override
+    int getBestKeyValueNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result, QueryProbe probe )
+    {
+        return end.getBestKeyValueNodes( comparator, result, probe );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if( !(o instanceof RadixEdgeNode) )
+        {
+            return false;
+        }
+        RadixEdgeNode<?> other = (RadixEdgeNode<?>) o;
+        return end == other.end && level == other.level;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * end.hashCode() + level;
+    }
+}
@@ -0,0 +1,226 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * an explicit node of an ImmutableRadixTrieImpl; the edge from its parent
+ * is labelled with one or more characters.
+ * <p>
+ * Every node of the equivalent uncompressed trie that is the root, a
+ * key-value node, or has more than one child is explicit; the nodes in
+ * between are only materialised on demand, as RadixEdgeNode-s.
+ *
+ * @param <V> a generic type
+ */
+class RadixTrieNode<V extends Comparable<V>> extends TrieNode<V>
+{
+    private static final char[] NO_CHARS = new char[0];
+
+    /** the characters on the edge from the parent, in traversal order */
+    final char[] label;
+    /** first character of each edge label, in the order of the characters' indices */
+    char[] edgeChars = NO_CHARS;
+    /** children, in the order of edgeChars */
+    RadixTrieNode<V>[] edges;
+    /**
+     * the positions in edgeChars in ascending order of char, for the binary search
+     * of edge(char); null if edgeChars is already ascending, as it usually is
+     */
+    int[] charOrder;
+
+    RadixTrieNode( char[] label, int level )
+    {
+        super( label.length == 0 ? (char) 0 : label[label.length - 1], level );
+        this.label = label;
+    }
+
+    @Override
+    long estimatedBytes()
+    {
+        return super.estimatedBytes() + 4 * 4
+               + TrieStatsImpl.arrayBytes( label )
+               + (edgeChars == NO_CHARS ? 0 : TrieStatsImpl.arrayBytes( edgeChars ))
+               + TrieStatsImpl.arrayBytes( edges )
+               + (charOrder == null ? 0 : TrieStatsImpl.arrayBytes( charOrder ));
+    }
+
+    /**
+     * @return the level of the explicit parent
+     */
+    final int edgeStart()
+    {
+        return level - label.length;
+    }
+
+    /**
+     * @param ch : first character of an edge label
+     * @return the child whose edge starts with ch, or null
+     */
+    final RadixTrieNode<V> edge( char ch )
+    {
+        if( charOrder == null )
+        {
+            int i = Arrays.binarySearch( edgeChars, ch );
+            return i >= 0 ? edges[i] : null;
+        }
+        int low = 0;
+        int high = charOrder.length - 1;
+        while( low <= high )
+        {
+            int middle = (low + high) >>> 1;
+            char c = edgeChars[charOrder[middle]];
+            if( c < ch )
+            {
+                low = middle + 1;
+            }
+            else if( c > ch )
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return edges[charOrder[middle]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set charOrder, once edgeChars is filled.
+     */
+    final void sortEdgeChars()
+    {
+        charOrder = null;
+        for( int i = 1; i < edgeChars.length; i++ )
+        {
+            if( edgeChars[i - 1] > edgeChars[i] )
+            {
+                charOrder = IntStream.range( 0, edgeChars.length )
+                        .boxed()
+                        .sorted( ( a, b ) -> Character.compare( edgeChars[a], edgeChars[b] ))
+                        .mapToInt( Integer::intValue )
+                        .toArray();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the node one level down from this explicit node along c, or null
+     */
+    TrieNode<V> child( char c )
+    {
+        RadixTrieNode<V> edge = edge( c );
+        return edge == null ? null : edge.position( level + 1 );
+    }
+
+    /**
+     * @param level : edgeStart() &lt; level &lt;= this.level
+     * @return the node at that level on the edge into this node
+     */
+    final TrieNode<V> position( int level )
+    {
+        return level == this.level ? this : new RadixEdgeNode<>( this, level );
+    }
+
+    @Override
+    public Optional<TrieNode<V>> getParent()
+    {
+        if( isRoot() )
+        {
+            return Optional.empty();
+        }
+        return Optional.of( label.length == 1 ? parent : position( level - 1 ));
+    }
+
+    @Override
+    public List<TrieNode<V>> getAncestors()
+    {
+        List<TrieNode<V>> result = new ArrayList<>( level );
+        RadixTrieNode<V> node = this;
+        int l = level - 1;
+        while( node != null && l >= 0 )
+        {
+            if( l > node.edgeStart() )
+            {
+                result.add( node.position( l-- ));
+            }
+            else
+            {
+                node = (RadixTrieNode<V>) node.parent;
+                result.add( node );
+                l--;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getKey()
+    {
+        char[] keyChars = new char[level];
+        for( RadixTrieNode<V> node = this; node.level > 0; node = (RadixTrieNode<V>) node.parent )
+        {
+            System.arraycopy( node.label, 0, keyChars, node.edgeStart(), node.label.length );
+        }
+        return new String( keyChars );
+    }
+
+    @Override
+    public StringBuilder appendKey( StringBuilder sb )
+    {
+        int start = sb.length();
+        sb.setLength( start + level );
+        for( RadixTrieNode<V> node = this; node.level > 0; node = (RadixTrieNode<V>) node.parent )
+        {
+            for( int i = 0; i < node.label.length; i++ )
+            {
+                sb.setCharAt( start + node.edgeStart() + i, node.label[i] );
+            }
+        }
+        return sb;
+    }
+
+    @Override
+    public int getNumChildren()
+    {
+        return edges == null ? 0 : edges.length;
+    }
+
+    /**
+     * @return the nodes one level below this one, on each edge
+     */
+    @Override
+    public List<TrieNode<V>> getChildren()
+    {
+        List<TrieNode<V>> result = new ArrayList<>( getNumChildren() );
+        for( int i = 0, count = getNumChildren(); i < count; i++ )
+        {
+            result.add( edges[i].position( level + 1 ));
+        }
+        return result;
+    }
+
+    /**
+     * Sub-tree traversals skip straight to the explicit node at the end of an
+     * edge, since the nodes in between are neither key-value nodes nor branch.
+     *
+     * @return the explicit node at the end of the ith edge
+     */
+    @Override
+    TrieNode<V> childAt( int i )
+    {
+        return edges[i];
+    }
+
+    @Override
+    public void setValue( V value )
+    {
+        throw new UnsupportedOperationException( "a radix trie cannot be modified" );
+    }
+}
@@ -0,0 +1,329 @@
+
+package mck.collections.trie.impl;
+
+import static java.util.Objects.requireNonNull;
+import java.util.Arrays;
+
+/**
+ * Builds a minimal acyclic automaton, with a non-negative output per key, from
+ * keys put in ascending order, with the incremental algorithm of Daciuk et al.
+ * for sorted data: only the states on the path of the last key are open, and
+ * each state that falls off that path is replaced by an equivalent state
+ * already built, if there is one, so the automaton is minimal at every step and
+ * the keys are never held in a trie.
+ * <p>
+ * Outputs are pushed towards the initial state, as in Mihov and Maurel's
+ * construction of minimal transducers: an arc carries the least output of the
+ * keys under it, less what the arcs before it carry, which lets the tails of
+ * keys with different outputs be shared. With every output 0, the result is a
+ * word graph.
+ * <p>
+ * Two states are equivalent when both or neither are accepting, with the same
+ * final output, and they have the same arcs; since states are closed after all
+ * of their successors, arcs can be compared by target.
+ */
+final class SortedAutomatonBuilder
+{
+    private String previous; // the last key put
+    private int size;
+    /** open[d] is the state at depth d on the path of the previous key */
+    private Open[] open = new Open[16];
+
+    // the closed states, and their arcs: the arcs of state s are arcs[firstArc[s], firstArc[s + 1])
+    int numStates;
+    boolean[] accepting = new boolean[64];
+    long[] finalOutputs = new long[64];
+    int[] firstArc = new int[65];
+    /** the number of keys accepted from each state */
+    private int[] counts = new int[64];
+    int numArcs;
+    char[] labels = new char[64];
+    int[] targets = new int[64];
+    long[] outputs = new long[64];
+    /** the keys accepted from an arc's state before the arc is taken */
+    int[] arcOrdinals = new int[64];
+    /** open addressing: slots hold state + 1, or 0 when empty */
+    private int[] register = new int[128];
+
+    SortedAutomatonBuilder()
+    {
+        open[0] = new Open();
+    }
+
+    /**
+     * Add a key, greater than every key put before it.
+     *
+     * @param key    : the key
+     * @param output : a non-negative output
+     * @return the ordinal of the key
+     */
+    int put( String key, long output )
+    {
+        requireNonNull( key, "key cannot be null" );
+        if( open == null )
+        {
+            throw new IllegalStateException( "you cannot modify an automaton after it's been built!" );
+        }
+        if( output < 0 )
+        {
+            throw new IllegalArgumentException( "output (" + output + ") should be non-negative" );
+        }
+        int common = 0;
+        if( previous != null )
+        {
+            if( key.compareTo( previous ) <= 0 )
+            {
+                throw new IllegalArgumentException( "keys must be put in ascending order: '" + key + "' after '" + previous + "'" );
+            }
+            int max = Math.min( key.length(), previous.length() );
+            while( common < max && key.charAt( common ) == previous.charAt( common ))
+            {
+                common++;
+            }
+            close( common );
+        }
+        if( key.length() >= open.length )
+        {
+            open = Arrays.copyOf( open, Math.max( key.length() + 1, open.length * 2 ));
+        }
+        for( int i = common; i < key.length(); i++ )
+        {
+            open[i].addArc( key.charAt( i ));
+            if( open[i + 1] == null )
+            {
+                open[i + 1] = new Open();
+            }
+            open[i + 1].clear();
+        }
+        open[key.length()].accepting = true;
+
+        // along the common prefix, arcs keep what they share with output and
+        // push the rest of theirs one state further
+        for( int i = 0; i < common; i++ )
+        {
+            Open state = open[i];
+            long last = state.outputs[state.numArcs - 1];
+            long shared = Math.min( last, output );
+            state.outputs[state.numArcs - 1] = shared;
+            open[i + 1].prepend( last - shared );
+            output -= shared;
+        }
+        if( key.length() > common )
+        {
+            open[common].outputs[open[common].numArcs - 1] = output;
+        }
+        else
+        {
+            // only the first key can be a prefix of the previous one: the empty key
+            open[common].finalOutput = output;
+        }
+        previous = key;
+        return size++;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Close every open state; after this, no more keys can be put, and the
+     * arrays hold exactly numStates states and numArcs arcs.
+     *
+     * @return the initial state
+     */
+    int finish()
+    {
+        if( open == null )
+        {
+            throw new IllegalStateException( "the automaton has already been built, and it can only be built once!" );
+        }
+        if( previous != null )
+        {
+            close( 0 );
+        }
+        int root = close( open[0] );
+        open = null;
+        register = null;
+        counts = null;
+        accepting = Arrays.copyOf( accepting, numStates );
+        finalOutputs = Arrays.copyOf( finalOutputs, numStates );
+        firstArc = Arrays.copyOf( firstArc, numStates + 1 );
+        labels = Arrays.copyOf( labels, numArcs );
+        targets = Arrays.copyOf( targets, numArcs );
+        outputs = Arrays.copyOf( outputs, numArcs );
+        arcOrdinals = Arrays.copyOf( arcOrdinals, numArcs );
+        return root;
+    }
+
+    /**
+     * Close the open states deeper than depth on the path of the previous key.
+     */
+    private void close( int depth )
+    {
+        for( int d = previous.length(); d > depth; d-- )
+        {
+            Open parent = open[d - 1];
+            parent.targets[parent.numArcs - 1] = close( open[d] );
+        }
+    }
+
+    /**
+     * @return an equivalent closed state, or a new one
+     */
+    private int close( Open state )
+    {
+        int mask = register.length - 1;
+        int i = hash( state ) & mask;
+        for( ; register[i] != 0; i = (i + 1) & mask )
+        {
+            if( equivalent( register[i] - 1, state ))
+            {
+                return register[i] - 1;
+            }
+        }
+        if( numStates + 1 == accepting.length )
+        {
+            int capacity = accepting.length * 2;
+            accepting = Arrays.copyOf( accepting, capacity );
+            finalOutputs = Arrays.copyOf( finalOutputs, capacity );
+            counts = Arrays.copyOf( counts, capacity );
+            firstArc = Arrays.copyOf( firstArc, capacity + 1 );
+        }
+        if( numArcs + state.numArcs > labels.length )
+        {
+            int capacity = Math.max( numArcs + state.numArcs, labels.length * 2 );
+            labels = Arrays.copyOf( labels, capacity );
+            targets = Arrays.copyOf( targets, capacity );
+            outputs = Arrays.copyOf( outputs, capacity );
+            arcOrdinals = Arrays.copyOf( arcOrdinals, capacity );
+        }
+        int s = numStates++;
+        accepting[s] = state.accepting;
+        finalOutputs[s] = state.finalOutput;
+        int count = state.accepting ? 1 : 0;
+        for( int a = 0; a < state.numArcs; a++ )
+        {
+            labels[numArcs] = state.labels[a];
+            targets[numArcs] = state.targets[a];
+            outputs[numArcs] = state.outputs[a];
+            arcOrdinals[numArcs] = count;
+            count += counts[state.targets[a]];
+            numArcs++;
+        }
+        counts[s] = count;
+        firstArc[s + 1] = numArcs;
+        register[i] = s + 1;
+        if( numStates * 2 > register.length )
+        {
+            rehash();
+        }
+        return s;
+    }
+
+    private boolean equivalent( int s, Open state )
+    {
+        int first = firstArc[s];
+        if( accepting[s] != state.accepting
+            || finalOutputs[s] != state.finalOutput
+            || firstArc[s + 1] - first != state.numArcs )
+        {
+            return false;
+        }
+        for( int a = 0; a < state.numArcs; a++ )
+        {
+            if( labels[first + a] != state.labels[a]
+                || targets[first + a] != state.targets[a]
+                || outputs[first + a] != state.outputs[a] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash()
+    {
+        register = new int[register.length * 2];
+        int mask = register.length - 1;
+        for( int s = 0; s < numStates; s++ )
+        {
+            int first = firstArc[s];
+            int i = hash( accepting[s], finalOutputs[s], labels, targets, outputs, first, firstArc[s + 1] ) & mask;
+            while( register[i] != 0 )
+            {
+                i = (i + 1) & mask;
+            }
+            register[i] = s + 1;
+        }
+    }
+
+    private static int hash( Open state )
+    {
+        return hash( state.accepting, state.finalOutput, state.labels, state.targets, state.outputs, 0, state.numArcs );
+    }
+
+    private static int hash( boolean accepting, long finalOutput, char[] labels, int[] targets, long[] outputs, int from, int to )
+    {
+        int h = accepting ? 1 + Long.hashCode( finalOutput ) : 0;
+        for( int a = from; a < to; a++ )
+        {
+            h = (h * 31 + labels[a]) * 0x9E3779B9 + targets[a] * 31 + Long.hashCode( outputs[a] );
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A state on the path of the last key; its last arc leads to the next open
+     * state, and its target is only known once that state is closed.
+     */
+    private static final class Open
+    {
+        boolean accepting;
+        long finalOutput;
+        int numArcs;
+        char[] labels = new char[4];
+        int[] targets = new int[4];
+        long[] outputs = new long[4];
+
+        void addArc( char label )
+        {
+            if( numArcs == labels.length )
+            {
+                labels = Arrays.copyOf( labels, numArcs * 2 );
+                targets = Arrays.copyOf( targets, numArcs * 2 );
+                outputs = Arrays.copyOf( outputs, numArcs * 2 );
+            }
+            labels[numArcs] = label;
+            targets[numArcs] = -1;
+            outputs[numArcs] = 0;
+            numArcs++;
+        }
+
+        /**
+         * Add output to every key that goes through this state.
+         */
+        void prepend( long output )
+        {
+            if( output == 0 )
+            {
+                return;
+            }
+            if( accepting )
+            {
+                finalOutput += output;
+            }
+            for( int a = 0; a < numArcs; a++ )
+            {
+                outputs[a] += output;
+            }
+        }
+
+        void clear()
+        {
+            accepting = false;
+            finalOutput = 0;
+            numArcs = 0;
+        }
+    }
+}
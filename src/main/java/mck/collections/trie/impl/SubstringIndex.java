@@ -0,0 +1,478 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An index of every substring of a trie's keys: a generalized suffix automaton,
+ * the smallest automaton that accepts the substrings of a set of strings.
+ * Walking a fragment through its transitions costs O(|fragment| log alphabet)
+ * whatever the number of keys, and leads to the state whose strings occur in
+ * exactly the keys recorded in that state's sub-tree of suffix links.
+ * <p>
+ * Every prefix of every key is recorded at its state, and the records are laid
+ * out so that each sub-tree of suffix links is a range of one array; a lookup
+ * therefore reads one record per occurrence of the fragment, and never visits
+ * keys that don't contain it.
+ * <p>
+ * Keys are indexed as they are walked by the trie, from their last character
+ * in a SuffixTrie; fragments are reversed by the caller accordingly.
+ *
+ * @param <V> a generic type
+ */
+final class SubstringIndex<V extends Comparable<V>>
+{
+    /** the key-value nodes of the trie, in depth-first order; a key's ordinal is its position */
+    private final TrieNode<V>[] keys;
+    /** the transitions of state s are labels/targets[firstTransition[s], firstTransition[s + 1]), by label */
+    private final int[] firstTransition;
+    private final char[] labels;
+    private final int[] targets;
+    /** the keys that contain the strings of state s are occurrences[occurrenceStart[s], occurrenceEnd[s]) */
+    private final int[] occurrenceStart;
+    private final int[] occurrenceEnd;
+    private final int[] occurrences;
+
+    private SubstringIndex( TrieNode<V>[] keys, Automaton automaton )
+    {
+        this.keys = keys;
+        int numStates = automaton.numStates;
+
+        // transitions, grouped by state and sorted by label
+        firstTransition = new int[numStates + 1];
+        for( int s = 0; s < numStates; s++ )
+        {
+            int degree = 0;
+            for( int e = automaton.head[s]; e != -1; e = automaton.edgeNext[e] )
+            {
+                degree++;
+            }
+            firstTransition[s + 1] = firstTransition[s] + degree;
+        }
+        labels = new char[automaton.numEdges];
+        targets = new int[automaton.numEdges];
+        for( int s = 0; s < numStates; s++ )
+        {
+            int end = firstTransition[s];
+            for( int e = automaton.head[s]; e != -1; e = automaton.edgeNext[e] )
+            {
+                // insertion sort; most states have a handful of transitions
+                char label = automaton.edgeLabel[e];
+                int i = end++;
+                for( ; i > firstTransition[s] && labels[i - 1] > label; i-- )
+                {
+                    labels[i] = labels[i - 1];
+                    targets[i] = targets[i - 1];
+                }
+                labels[i] = label;
+                targets[i] = automaton.edgeTarget[e];
+            }
+        }
+
+        // a state's suffix link is shorter than the state, so states by length
+        // put every parent in the tree of suffix links before its children
+        int[] byLength = new int[numStates];
+        int[] count = new int[automaton.maxLength + 2];
+        for( int s = 0; s < numStates; s++ )
+        {
+            count[automaton.length[s] + 1]++;
+        }
+        for( int i = 1; i < count.length; i++ )
+        {
+            count[i] += count[i - 1];
+        }
+        for( int s = 0; s < numStates; s++ )
+        {
+            byLength[count[automaton.length[s]]++] = s;
+        }
+
+        int[] own = new int[numStates];
+        for( int i = 0; i < automaton.numRecords; i++ )
+        {
+            own[automaton.recordState[i]]++;
+        }
+        int[] subtree = own.clone();
+        for( int i = numStates - 1; i > 0; i-- )
+        {
+            int s = byLength[i];
+            subtree[automaton.link[s]] += subtree[s];
+        }
+        // each sub-tree gets a range: the state's own records, then its children's ranges
+        occurrenceStart = new int[numStates];
+        occurrenceEnd = new int[numStates];
+        int[] cursor = new int[numStates];
+        occurrenceEnd[0] = subtree[0];
+        cursor[0] = own[0];
+        for( int i = 1; i < numStates; i++ )
+        {
+            int s = byLength[i];
+            int parent = automaton.link[s];
+            occurrenceStart[s] = cursor[parent];
+            occurrenceEnd[s] = occurrenceStart[s] + subtree[s];
+            cursor[parent] += subtree[s];
+            cursor[s] = occurrenceStart[s] + own[s];
+        }
+        occurrences = new int[automaton.numRecords];
+        System.arraycopy( occurrenceStart, 0, cursor, 0, numStates );
+        for( int i = 0; i < automaton.numRecords; i++ )
+        {
+            occurrences[cursor[automaton.recordState[i]]++] = automaton.recordKey[i];
+        }
+    }
+
+    /**
+     * @param keyValueNodes : the key-value nodes of a frozen trie, in depth-first order
+     * @return an index of the substrings of their keys
+     */
+    @SuppressWarnings( "unchecked" )
+    static <V extends Comparable<V>> SubstringIndex<V> of( List<TrieNode<V>> keyValueNodes )
+    {
+        TrieNode<V>[] keys = keyValueNodes.toArray( new TrieNode[keyValueNodes.size()] );
+        long total = 0;
+        for( TrieNode<V> key : keys )
+        {
+            total += key.level;
+        }
+        if( total > Integer.MAX_VALUE / 2 )
+        {
+            throw new IllegalArgumentException( "the keys hold " + total + " chars, too many to index their substrings" );
+        }
+        Automaton automaton = new Automaton( (int) total );
+        StringBuilder key = new StringBuilder();
+        for( int k = 0; k < keys.length; k++ )
+        {
+            key.setLength( 0 );
+            keys[k].appendKey( key );
+            int last = 0;
+            for( int i = 0; i < key.length(); i++ )
+            {
+                last = automaton.extend( last, key.charAt( i ));
+                automaton.record( last, k );
+            }
+        }
+        return new SubstringIndex<>( keys, automaton );
+    }
+
+    /**
+     * @return an estimate of the memory held by the index, without the nodes
+     *         it refers to
+     */
+    long estimatedBytes()
+    {
+        return TrieStatsImpl.arrayBytes( keys )
+               + TrieStatsImpl.arrayBytes( firstTransition )
+               + TrieStatsImpl.arrayBytes( labels )
+               + TrieStatsImpl.arrayBytes( targets )
+               + TrieStatsImpl.arrayBytes( occurrenceStart )
+               + TrieStatsImpl.arrayBytes( occurrenceEnd )
+               + TrieStatsImpl.arrayBytes( occurrences );
+    }
+
+    /**
+     * @param fragment : in the order the trie walks keys
+     * @return the key-value nodes whose key contains fragment, in depth-first order
+     */
+    List<TrieNode<V>> nodesWith( char[] fragment )
+    {
+        if( fragment.length == 0 )
+        {
+            return Collections.unmodifiableList( Arrays.asList( keys ));
+        }
+        int state = stateOf( fragment );
+        if( state == -1 )
+        {
+            return Collections.emptyList();
+        }
+        // a key that contains fragment more than once is recorded once per occurrence
+        int[] ordinals = Arrays.copyOfRange( occurrences, occurrenceStart[state], occurrenceEnd[state] );
+        Arrays.sort( ordinals );
+        List<TrieNode<V>> result = new ArrayList<>( ordinals.length );
+        for( int i = 0; i < ordinals.length; i++ )
+        {
+            if( i == 0 || ordinals[i] != ordinals[i - 1] )
+            {
+                result.add( keys[ordinals[i]] );
+            }
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * The occurrences are read in place; a key recorded more than once is
+     * compared equal to itself by the bounded set, so it is kept only once.
+     *
+     * @param fragment   : in the order the trie walks keys
+     * @param comparator : comparator
+     * @param n          : number of top key-value nodes to select
+     * @return the top n key-value nodes whose key contains fragment; ties are
+     *         kept in depth-first order
+     */
+    List<TrieNode<V>> bestNodesWith( char[] fragment, Comparator<TrieNode<V>> comparator, int n )
+    {
+        if( n <= 0 )
+        {
+            throw new IllegalArgumentException( "n (" + n + ") should be positive" );
+        }
+        // first: the worst of the best n so far
+        TreeSet<Integer> best = new TreeSet<>( ( a, b ) -> {
+            int c = comparator.compare( keys[a], keys[b] );
+            return c != 0 ? c : Integer.compare( b, a );
+        } );
+        if( fragment.length == 0 )
+        {
+            for( int ordinal = 0; ordinal < keys.length; ordinal++ )
+            {
+                offer( best, n, ordinal );
+            }
+        }
+        else
+        {
+            int state = stateOf( fragment );
+            if( state == -1 )
+            {
+                return Collections.emptyList();
+            }
+            for( int i = occurrenceStart[state]; i < occurrenceEnd[state]; i++ )
+            {
+                offer( best, n, occurrences[i] );
+            }
+        }
+        List<TrieNode<V>> result = new ArrayList<>( best.size() );
+        for( Iterator<Integer> i = best.descendingIterator(); i.hasNext(); )
+        {
+            result.add( keys[i.next()] );
+        }
+        return Collections.unmodifiableList( result );
+    }
+
+    private static void offer( TreeSet<Integer> best, int n, int ordinal )
+    {
+        if( best.size() < n )
+        {
+            best.add( ordinal );
+        }
+        else if( best.comparator().compare( ordinal, best.first() ) > 0 && best.add( ordinal ))
+        {
+            best.pollFirst();
+        }
+    }
+
+    /**
+     * @return the state that fragment leads to, or -1 if no key contains it
+     */
+    private int stateOf( char[] fragment )
+    {
+        int state = 0;
+        for( int i = 0; i < fragment.length && state != -1; i++ )
+        {
+            state = transition( state, fragment[i]);
+        }
+        return state;
+    }
+
+    private int transition( int state, char c )
+    {
+        int i = Arrays.binarySearch( labels, firstTransition[state], firstTransition[state + 1], c );
+        return i >= 0 ? targets[i] : -1;
+    }
+
+    /**
+     * The automaton under construction, with its transitions in linked lists
+     * per state, for cloning, and in a hash table keyed by state and label, for
+     * lookups; it is built one key at a time, each key restarting from the
+     * initial state, cloning states whose strings stop agreeing on where they
+     * occur.
+     */
+    private static final class Automaton
+    {
+        int numStates;
+        int[] length;
+        int[] link;
+        int maxLength;
+        /** the first transition of a state, or -1 */
+        int[] head;
+
+        int numEdges;
+        int[] edgeNext;
+        char[] edgeLabel;
+        int[] edgeTarget;
+        int[] edgeSource;
+        /** open addressing: slots hold edge + 1, or 0 when empty */
+        int[] slots;
+
+        /** (recordState[i], recordKey[i]): a prefix of key recordKey[i] ends at state recordState[i] */
+        int numRecords;
+        final int[] recordState;
+        final int[] recordKey;
+
+        Automaton( int totalLength )
+        {
+            // up to 2 states and 3 transitions per char, but usually little more than 1
+            int states = totalLength + 16;
+            length = new int[states];
+            link = new int[states];
+            head = new int[states];
+            int edges = totalLength + 16;
+            edgeNext = new int[edges];
+            edgeLabel = new char[edges];
+            edgeTarget = new int[edges];
+            edgeSource = new int[edges];
+            slots = new int[Integer.highestOneBit( edges ) << 2];
+            recordState = new int[totalLength];
+            recordKey = new int[totalLength];
+            newState( 0, -1 );
+        }
+
+        void record( int state, int key )
+        {
+            recordState[numRecords] = state;
+            recordKey[numRecords] = key;
+            numRecords++;
+        }
+
+        /**
+         * @param last : the state of the key's prefix so far
+         * @param c    : the next char of the key
+         * @return the state of the prefix extended by c
+         */
+        int extend( int last, char c )
+        {
+            int q = transition( last, c );
+            if( q != -1 )
+            {
+                // the prefix is already a substring of an earlier key
+                return length[last] + 1 == length[q] ? q : split( last, c, q );
+            }
+            int current = newState( length[last] + 1, 0 );
+            int p = last;
+            int e = -1;
+            while( p != -1 && (e = edge( p, c )) == -1 )
+            {
+                addTransition( p, c, current );
+                p = link[p];
+            }
+            if( p != -1 )
+            {
+                q = edgeTarget[e];
+                link[current] = length[p] + 1 == length[q] ? q : split( p, c, q );
+            }
+            return current;
+        }
+
+        /**
+         * Clone q for the strings of length up to length[p] + 1, which now occur
+         * somewhere q's longer strings don't.
+         */
+        private int split( int p, char c, int q )
+        {
+            int clone = newState( length[p] + 1, link[q] );
+            for( int e = head[q]; e != -1; e = edgeNext[e] )
+            {
+                addTransition( clone, edgeLabel[e], edgeTarget[e] );
+            }
+            link[q] = clone;
+            int e;
+            while( p != -1 && (e = edge( p, c )) != -1 && edgeTarget[e] == q )
+            {
+                edgeTarget[e] = clone;
+                p = link[p];
+            }
+            return clone;
+        }
+
+        private int newState( int stateLength, int stateLink )
+        {
+            if( numStates == length.length )
+            {
+                int capacity = numStates + (numStates >> 1);
+                length = Arrays.copyOf( length, capacity );
+                link = Arrays.copyOf( link, capacity );
+                head = Arrays.copyOf( head, capacity );
+            }
+            length[numStates] = stateLength;
+            link[numStates] = stateLink;
+            head[numStates] = -1;
+            maxLength = Math.max( maxLength, stateLength );
+            return numStates++;
+        }
+
+        private int transition( int state, char c )
+        {
+            int e = edge( state, c );
+            return e == -1 ? -1 : edgeTarget[e];
+        }
+
+        /**
+         * @return the transition of state on c, or -1
+         */
+        private int edge( int state, char c )
+        {
+            int mask = slots.length - 1;
+            for( int i = slot( state, c, mask ); slots[i] != 0; i = (i + 1) & mask )
+            {
+                int e = slots[i] - 1;
+                if( edgeLabel[e] == c && edgeSource[e] == state )
+                {
+                    return e;
+                }
+            }
+            return -1;
+        }
+
+        private void addTransition( int state, char c, int target )
+        {
+            if( numEdges == edgeNext.length )
+            {
+                int capacity = numEdges + (numEdges >> 1);
+                edgeNext = Arrays.copyOf( edgeNext, capacity );
+                edgeLabel = Arrays.copyOf( edgeLabel, capacity );
+                edgeTarget = Arrays.copyOf( edgeTarget, capacity );
+                edgeSource = Arrays.copyOf( edgeSource, capacity );
+            }
+            edgeNext[numEdges] = head[state];
+            edgeLabel[numEdges] = c;
+            edgeTarget[numEdges] = target;
+            edgeSource[numEdges] = state;
+            head[state] = numEdges++;
+            if( numEdges * 2 > slots.length )
+            {
+                rehash( slots.length * 2 );
+            }
+            else
+            {
+                insert( numEdges - 1, slots.length - 1 );
+            }
+        }
+
+        private void rehash( int capacity )
+        {
+            slots = new int[capacity];
+            for( int e = 0; e < numEdges; e++ )
+            {
+                insert( e, capacity - 1 );
+            }
+        }
+
+        private void insert( int e, int mask )
+        {
+            int i = slot( edgeSource[e], edgeLabel[e], mask );
+            while( slots[i] != 0 )
+            {
+                i = (i + 1) & mask;
+            }
+            slots[i] = e + 1;
+        }
+
+        private static int slot( int state, char c, int mask )
+        {
+            int h = state * 0x9E3779B9 + c * 0x85EBCA6B;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
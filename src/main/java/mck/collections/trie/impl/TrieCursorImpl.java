@@ -0,0 +1,164 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import static java.util.stream.Collectors.toList;
+import mck.collections.trie.ImmutableTrie.Entry;
+import mck.collections.trie.TrieCursor;
+
+/**
+ * a TrieCursor over an AbstractImmutableTrie: a stack of the nodes along the
+ * path of the fragment, one per matched character, walked with the trie's
+ * step, so advance and retreat cost O(1).
+ *
+ * @param <V> a generic type
+ */
+final class TrieCursorImpl<V extends Comparable<V>> implements TrieCursor<V>
+{
+    private final AbstractImmutableTrie<V> trie;
+    /** the characters advanced over, in the order the trie walks keys */
+    private char[] chars = new char[16];
+    private int length;
+    /** path[d] is the node of chars[0, d), for d <= depth */
+    private TrieNode<V>[] path;
+    /** the number of characters matched; depth &lt; length once the fragment is off every key */
+    private int depth;
+
+    @SuppressWarnings( "unchecked" )
+    TrieCursorImpl( AbstractImmutableTrie<V> trie )
+    {
+        this.trie = trie;
+        path = new TrieNode[chars.length + 1];
+        path[0] = trie.getRoot();
+    }
+
+    @Override
+    public boolean advance( char c )
+    {
+        if( length == chars.length )
+        {
+            chars = Arrays.copyOf( chars, length * 2 );
+            path = Arrays.copyOf( path, chars.length + 1 );
+        }
+        chars[length++] = c;
+        if( depth == length - 1 )
+        {
+            TrieNode<V> next = trie.step( path[depth], c );
+            if( next != null )
+            {
+                path[++depth] = next;
+            }
+        }
+        return depth == length;
+    }
+
+    @Override
+    public boolean retreat()
+    {
+        if( length == 0 )
+        {
+            throw new IllegalStateException( "the fragment is empty" );
+        }
+        if( depth == length )
+        {
+            path[depth--] = null;
+        }
+        length--;
+        return depth == length;
+    }
+
+    @Override
+    public void reset()
+    {
+        Arrays.fill( path, 1, depth + 1, null );
+        length = 0;
+        depth = 0;
+    }
+
+    @Override
+    public String getFragment()
+    {
+        if( !trie.isReversed() )
+        {
+            return new String( chars, 0, length );
+        }
+        char[] fragment = new char[length];
+        for( int i = 0; i < length; i++ )
+        {
+            fragment[length - 1 - i] = chars[i];
+        }
+        return new String( fragment );
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public boolean matches()
+    {
+        return depth == length;
+    }
+
+    @Override
+    public Optional<TrieNode<V>> getNode()
+    {
+        return matches() ? Optional.of( path[depth] ) : Optional.empty();
+    }
+
+    @Override
+    public List<Entry<V>> best( int n )
+    {
+        return best( TrieNode.naturalOrder(), n );
+    }
+
+    @Override
+    public List<Entry<V>> best( Comparator<TrieNode<V>> comparator, int n )
+    {
+        return bestNodes( comparator, n )
+                .stream()
+                .map( trie::entry )
+                .collect( toList() );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodes( int n )
+    {
+        return bestNodes( TrieNode.naturalOrder(), n );
+    }
+
+    @Override
+    public List<TrieNode<V>> bestNodes( Comparator<TrieNode<V>> comparator, int n )
+    {
+        if( n <= 0 )
+        {
+            throw new IllegalArgumentException( "n (" + n + ") should be positive" );
+        }
+        QueryProbe probe = QueryProbe.isProbing( trie.metrics ) ?
+                           QueryProbe.start( trie.metrics, "cursor.bestNodes", getFragment(), length, false )
+                           :
+                           null;
+        if( probe != null )
+        {
+            probe.lookedUp();
+        }
+        List<TrieNode<V>> best = matches() ? path[depth].getBestKeyValueNodes( n, comparator, probe ) : Collections.emptyList();
+        if( probe != null )
+        {
+            probe.finish( best.size() );
+        }
+        return best;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TrieCursor('" + getFragment() + "', " + (matches() ? "matches" : "no match") + ")";
+    }
+}
@@ -1,15 +1,23 @@
 
 package mck.collections.trie.impl;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import static java.util.stream.Collectors.toList;
 import lombok.ToString;
+import mck.collections.trie.MonotoneComparator;
+import mck.collections.trie.QueryMetrics.Selection;
 import mck.collections.trie.util.CharacterSet;
 
 /**
@@ -19,6 +27,37 @@ import mck.collections.trie.util.CharacterSet;
 @ToString( onlyExplicitlyIncluded = true )
 public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>>
 {
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    private static final Comparator NATURAL_ORDER = (MonotoneComparator<TrieNode>) TrieNode::compareTo;
+
+    /** number of children that the small, sorted layouts hold */
+    private static final int NODE4 = 4;
+    private static final int NODE16 = 16;
+    /** number of children of the indexed layout */
+    private static final int NODE48 = 48;
+    /** character sets larger than this only use the sorted layouts, which grow with the number of children */
+    private static final int MAX_INDEXED = 256;
+
+    /**
+     * Children are stored in one of four layouts, which grow with the number of
+     * children, in the style of an adaptive radix tree:
+     * <ul>
+     * <li>up to 4 or 16 children: 'childrenIndices' holds the sorted character
+     * indices, and children[i] is the child for childrenIndices[i];</li>
+     * <li>up to 48 children: 'childSlots', as long as the character set, maps a
+     * character index to 1 + the position of its child in 'children', where
+     * children are appended;</li>
+     * <li>more: 'children' is as long as the character set, and is indexed by
+     * character index directly.</li>
+     * </ul>
+     * In every layout, 'childrenIndices' holds the sorted character indices of
+     * the children, so that they are visited in the order of their indices, as
+     * in the other layouts of the trie.
+     * Over large character sets, such as a Unicode alphabet, the indexed and dense
+     * layouts would cost memory in proportion to the character set at every
+     * branching node, so the sorted layout keeps doubling instead.
+     * Leaves allocate neither array.
+     */
     TrieNode<V>[] children;
     TrieNode<V> parent;
     boolean isKeyValueNode;
@@ -34,25 +73,42 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
      */
     int numChildren;
     /** the children indices;
-     * children[childrenIndices[i]] where 0 &lt;= i &lt; numChildren is the ith children.
+     * childrenIndices[i] where 0 &lt;= i &lt; numChildren is the character index of the ith child.
      */
     transient int[] childrenIndices;
-    List<TrieNode<V>> keyValueChildren;
+    /** only used by the 48-children layout */
+    transient byte[] childSlots;
+    /** true if 'children' is indexed by character index */
+    transient boolean dense;
+    /**
+     * every key-value node of the frozen trie, in depth-first order; shared by all
+     * of its nodes, and null until the trie is frozen
+     */
+    TrieNode<V>[] keyValueNodes;
+    /** the key-value nodes of this sub-tree are keyValueNodes[keyValueStart, keyValueEnd) */
+    int keyValueStart;
+    int keyValueEnd;
+    /**
+     * the best key-value nodes of the sub-tree in descending natural order,
+     * or null if they have not been precomputed
+     */
+    TrieNode<V>[] bestKeyValueNodes;
+    /** true if bestKeyValueNodes holds every key-value node of the sub-tree, there being no more than k of them */
+    boolean allBestKeyValueNodes;
+    /** the greatest value in the sub-tree; only meaningful if 'annotated' */
+    V maxValue;
+    boolean annotated;
 
     /**
-     * @param charSet
+     * Child arrays are allocated when the first child is added.
+     *
      * @param c     : char c field of this node
      * @param level : the level of this node in the trie
      */
-    protected TrieNode( CharacterSet charSet, char c, int level )
+    protected TrieNode( char c, int level )
     {
-        // english characters, and -'._
-        this.children = new TrieNode[charSet.size()];
-        this.value = null;
         this.level = level;
         this.c = c;
-        this.childrenIndices = new int[charSet.size()];
-        Arrays.fill( childrenIndices, -1 );
     }
 
     /**
@@ -64,6 +120,14 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
         return Optional.ofNullable( value );
     }
 
+    /**
+     * @return the value, or null if this is not a key-value node
+     */
+    V valueOrNull()
+    {
+        return isKeyValueNode ? value : null;
+    }
+
     /**
      * @param value : the value of this node
      */
@@ -135,6 +199,25 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
         return new String( keyChars );
     }
 
+    /**
+     * Write the key into sb, after its current contents, without creating a String.
+     *
+     * @param sb : receives the key
+     * @return sb
+     */
+    public StringBuilder appendKey( StringBuilder sb )
+    {
+        int offset = sb.length() + level - 1;
+        sb.setLength( offset + 1 );
+        TrieNode<V> node = this;
+        while( node.level > 0 )
+        {
+            sb.setCharAt( offset--, node.c );
+            node = node.parent;
+        }
+        return sb;
+    }
+
     /**
      * @return the current number of children of this node
      */
@@ -145,19 +228,205 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
     }
 
     /**
-     * @return non-null elements of 'children'
+     * @return non-null elements of 'children', in the order of their character indices
      */
     public List<TrieNode<V>> getChildren()
     {
-        List<TrieNode<V>> result = new ArrayList<>( numChildren );
-        for( int i = 0; i < numChildren; i++ )
+        int count = getNumChildren();
+        List<TrieNode<V>> result = new ArrayList<>( count );
+        if( dense )
         {
-            TrieNode<V> child = children[childrenIndices[i]];
-            result.add( child );
+            for( TrieNode<V> child : children )
+            {
+                if( child != null )
+                {
+                    result.add( child );
+                }
+            }
+            return result;
+        }
+        for( int i = 0; i < count; i++ )
+        {
+            result.add( childAt( i ));
         }
         return result;
     }
 
+    /**
+     * Used by sub-tree traversals; path-compressed nodes may return the first
+     * descendant on the child's path that is a key-value node or has several
+     * children, rather than the child itself.
+     *
+     * @param i : 0 &lt;= i &lt; getNumChildren()
+     * @return the ith child, in the same order as getChildren()
+     */
+    TrieNode<V> childAt( int i )
+    {
+        if( childSlots != null )
+        {
+            return children[childSlots[childrenIndices[i]] - 1];
+        }
+        return dense ? children[childrenIndices[i]] : children[i];
+    }
+
+    /**
+     * @return an estimate of the memory held by this node and its arrays,
+     *         without the value or the arrays shared by the whole trie
+     */
+    long estimatedBytes()
+    {
+        // 8 references, 4 ints, a char and 4 booleans
+        return TrieStatsImpl.objectBytes( 8 * 4 + 4 * 4 + 2 + 4 )
+               + TrieStatsImpl.arrayBytes( children )
+               + TrieStatsImpl.arrayBytes( childrenIndices )
+               + TrieStatsImpl.arrayBytes( childSlots )
+               + TrieStatsImpl.arrayBytes( bestKeyValueNodes );
+    }
+
+    /**
+     * @return the number of slots of 'children' that hold no child
+     */
+    int emptySlots()
+    {
+        return children == null ? 0 : children.length - numChildren;
+    }
+
+    /**
+     * @param index : a character index, according to the trie's CharacterSet
+     * @return the child for that index, or null
+     */
+    final TrieNode<V> getChild( int index )
+    {
+        if( numChildren == 0 )
+        {
+            return null;
+        }
+        if( childSlots != null )
+        {
+            int slot = childSlots[index];
+            return slot == 0 ? null : children[slot - 1];
+        }
+        if( dense )
+        {
+            return children[index];
+        }
+        if( children.length == NODE4 )
+        {
+            for( int i = 0; i < numChildren; i++ )
+            {
+                if( childrenIndices[i] == index )
+                {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+        int i = Arrays.binarySearch( childrenIndices, 0, numChildren, index );
+        return i >= 0 ? children[i] : null;
+    }
+
+    /**
+     * Add a child, growing this node's layout if necessary.
+     *
+     * @param charSet : the trie's character set
+     * @param index   : the child's character index; there must not be a child for it yet
+     * @param child   : the child
+     */
+    @SuppressWarnings( "unchecked" )
+    final void addChild( CharacterSet charSet, int index, TrieNode<V> child )
+    {
+        if( children == null )
+        {
+            children = new TrieNode[NODE4];
+            childrenIndices = new int[NODE4];
+        }
+        else if( numChildren == children.length && !dense )
+        {
+            grow( charSet.size() );
+        }
+        if( childSlots != null )
+        {
+            childSlots[index] = (byte) (numChildren + 1);
+            children[numChildren] = child;
+            insertIndex( index, false );
+        }
+        else if( dense )
+        {
+            children[index] = child;
+            insertIndex( index, false );
+        }
+        else
+        {
+            children[insertIndex( index, true )] = child;
+        }
+        numChildren++;
+    }
+
+    /**
+     * Insert index into the sorted childrenIndices[0, numChildren).
+     *
+     * @param shiftChildren : true if children[i] belongs to childrenIndices[i], and moves with it
+     * @return the position of index
+     */
+    private int insertIndex( int index, boolean shiftChildren )
+    {
+        int i = numChildren;
+        while( i > 0 && childrenIndices[i - 1] > index )
+        {
+            childrenIndices[i] = childrenIndices[i - 1];
+            if( shiftChildren )
+            {
+                children[i] = children[i - 1];
+            }
+            i--;
+        }
+        childrenIndices[i] = index;
+        return i;
+    }
+
+    /**
+     * Move to the next larger layout; the indexed layout is skipped for small
+     * character sets, where a dense array is barely larger, and both are skipped
+     * for large ones.
+     */
+    @SuppressWarnings( "unchecked" )
+    private void grow( int charSetSize )
+    {
+        if( children.length == NODE4 && charSetSize > NODE4 )
+        {
+            children = Arrays.copyOf( children, NODE16 );
+            childrenIndices = Arrays.copyOf( childrenIndices, NODE16 );
+        }
+        else if( charSetSize > MAX_INDEXED )
+        {
+            int length = Math.min( 2 * children.length, charSetSize );
+            children = Arrays.copyOf( children, length );
+            childrenIndices = Arrays.copyOf( childrenIndices, length );
+        }
+        else if( children.length <= NODE16 && charSetSize > 2 * NODE48 )
+        {
+            childSlots = new byte[charSetSize];
+            for( int i = 0; i < numChildren; i++ )
+            {
+                childSlots[childrenIndices[i]] = (byte) (i + 1);
+            }
+            children = Arrays.copyOf( children, NODE48 );
+            childrenIndices = Arrays.copyOf( childrenIndices, NODE48 );
+        }
+        else
+        {
+            TrieNode<V>[] byIndex = new TrieNode[charSetSize];
+            for( int i = 0; i < numChildren; i++ )
+            {
+                byIndex[childrenIndices[i]] = childAt( i );
+            }
+            children = byIndex;
+            childrenIndices = Arrays.copyOf( childrenIndices, charSetSize );
+            childSlots = null;
+            dense = true;
+        }
+    }
+
     @Override
     public int compareTo( TrieNode<V> o )
     {
@@ -173,12 +442,18 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
     }
 
     /**
-     * @param index : the child index to add;
-     *              the index is according CHAR_TO_INDEX_MAP
+     * The comparator used by the methods that don't take one; nodes are compared by value.
+     * <p>
+     * Passing this instance, rather than an equivalent comparator, lets queries use the
+     * best key-value nodes precomputed by ImmutableTrieBuilder.topK(int).
+     *
+     * @param <V>
+     * @return the natural order of nodes
      */
-    public void addChildIndex( int index )
+    @SuppressWarnings( "unchecked" )
+    public static <V extends Comparable<V>> Comparator<TrieNode<V>> naturalOrder()
     {
-        childrenIndices[numChildren++] = index;
+        return NATURAL_ORDER;
     }
 
     /**
@@ -191,25 +466,84 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
     }
 
     /**
+     * Once the trie is frozen, the result is a view of a range of one array that is
+     * shared by the whole trie; before that, the sub-tree is walked on every call.
+     *
      * @return a list, which contains all key-value nodes among sub-tree nodes
      */
     public List<TrieNode<V>> getKeyValueChildren()
     {
-        if( keyValueChildren == null )
+        if( keyValueNodes != null )
         {
-            ArrayList<TrieNode<V>> keyVals = new ArrayList<>();
-            if( isKeyValueNode )
-            {
-                keyVals.add( this );
-            }
-            for( int i = 0; i < numChildren; i++ )
-            {
-                TrieNode<V> child = children[childrenIndices[i]];
-                keyVals.addAll( child.getKeyValueChildren() );
-            }
-            keyValueChildren = Collections.unmodifiableList( keyVals );
+            return new KeyValueRange<>( keyValueNodes, keyValueStart, keyValueEnd );
         }
-        return keyValueChildren;
+        List<TrieNode<V>> keyVals = new ArrayList<>();
+        collectKeyValueNodes( keyVals );
+        return Collections.unmodifiableList( keyVals );
+    }
+
+    /**
+     * The key-value nodes of the sub-tree, in the same order as getKeyValueChildren(),
+     * without collecting them first; once the trie is frozen, this splits evenly and
+     * knows its size.
+     *
+     * @return a spliterator over the key-value nodes of the sub-tree
+     */
+    Spliterator<TrieNode<V>> keyValueSpliterator()
+    {
+        if( keyValueNodes != null )
+        {
+            return Spliterators.spliterator( keyValueNodes, keyValueStart, keyValueEnd,
+                                             Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE );
+        }
+        return new KeyValueSpliterator<>( this );
+    }
+
+    /**
+     * Nodes whose value can change return a copy that keeps the value it had when
+     * this was called, so that results stay consistent while they are sorted or read.
+     *
+     * @return this node if it is a key-value node, or null
+     */
+    TrieNode<V> keyValueSnapshot()
+    {
+        return isKeyValueNode() ? this : null;
+    }
+
+    private void collectKeyValueNodes( List<TrieNode<V>> keyVals )
+    {
+        if( isKeyValueNode )
+        {
+            keyVals.add( this );
+        }
+        for( int i = 0, count = getNumChildren(); i < count; i++ )
+        {
+            childAt( i ).collectKeyValueNodes( keyVals );
+        }
+    }
+
+    /**
+     * Store the key-value nodes of this sub-tree in depth-first order, starting at
+     * all[next], and record the range of every sub-tree.
+     *
+     * @param all  : an array for every key-value node of the trie
+     * @param next : the position of the first key-value node of this sub-tree
+     * @return the position after the last key-value node of this sub-tree
+     */
+    int numberKeyValueNodes( TrieNode<V>[] all, int next )
+    {
+        keyValueNodes = all;
+        keyValueStart = next;
+        if( isKeyValueNode )
+        {
+            all[next++] = this;
+        }
+        for( int i = 0, count = getNumChildren(); i < count; i++ )
+        {
+            next = childAt( i ).numberKeyValueNodes( all, next );
+        }
+        keyValueEnd = next;
+        return next;
     }
 
     /**
@@ -229,7 +563,7 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
      */
     public Optional<TrieNode<V>> getBestKeyValueNode()
     {
-        return getBestKeyValueNode( TrieNode::compareTo );
+        return getBestKeyValueNode( naturalOrder() );
     }
 
     /**
@@ -238,7 +572,40 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
      */
     public Optional<TrieNode<V>> getBestKeyValueNode( Comparator<TrieNode<V>> comparator )
     {
+        return getBestKeyValueNode( comparator, null );
+    }
+
+    /**
+     * See getBestKeyValueNode(Comparator); probe, if not null, is told how the
+     * node was selected.
+     */
+    Optional<TrieNode<V>> getBestKeyValueNode( Comparator<TrieNode<V>> comparator, QueryProbe probe )
+    {
+        if( comparator == NATURAL_ORDER )
+        {
+            List<TrieNode<V>> precomputed = getPrecomputedBestKeyValueNodes( 1 );
+            if( precomputed != null )
+            {
+                if( probe != null )
+                {
+                    probe.selected( Selection.PRECOMPUTED, 0 );
+                }
+                return precomputed.isEmpty() ? Optional.empty() : Optional.of( precomputed.get( 0 ));
+            }
+        }
+        if( comparator instanceof MonotoneComparator )
+        {
+            List<TrieNode<V>> bestFirst = getBestKeyValueNodesBestFirst( 1, comparator, probe );
+            if( bestFirst != null )
+            {
+                return bestFirst.isEmpty() ? Optional.empty() : Optional.of( bestFirst.get( 0 ));
+            }
+        }
         List<TrieNode<V>> keyVals = getKeyValueChildren();
+        if( probe != null )
+        {
+            probe.scanned( keyVals.size() );
+        }
         return keyVals.isEmpty() ?
                Optional.empty()
                :
@@ -251,7 +618,7 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
      */
     public List<TrieNode<V>> getBestKeyValueNodes( int n )
     {
-        return getBestKeyValueNodes( n, TrieNode::compareTo );
+        return getBestKeyValueNodes( n, naturalOrder() );
     }
 
     /** @param n : number of top key-value nodes to select
@@ -259,12 +626,49 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
      * @return the top key-value nodes according to the comparator
      */
     public List<TrieNode<V>> getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator )
+    {
+        return getBestKeyValueNodes( n, comparator, (QueryProbe) null );
+    }
+
+    /**
+     * See getBestKeyValueNodes(int, Comparator); probe, if not null, is told how
+     * the nodes were selected.
+     */
+    List<TrieNode<V>> getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator, QueryProbe probe )
     {
         if( n <= 0 )
         {
             throw new IllegalArgumentException( "IllegalArgumentException: numTopKeyValueNodes (" + n + ") should be positive " );
         }
+        if( comparator == NATURAL_ORDER )
+        {
+            List<TrieNode<V>> precomputed = getPrecomputedBestKeyValueNodes( n );
+            if( precomputed != null )
+            {
+                if( probe != null )
+                {
+                    probe.selected( Selection.PRECOMPUTED, 0 );
+                }
+                return precomputed;
+            }
+        }
+        if( comparator instanceof MonotoneComparator )
+        {
+            List<TrieNode<V>> bestFirst = getBestKeyValueNodesBestFirst( n, comparator, probe );
+            if( bestFirst != null )
+            {
+                return bestFirst;
+            }
+        }
         List<TrieNode<V>> keyVals = getKeyValueChildren();
+        if( probe != null )
+        {
+            probe.scanned( keyVals.size() );
+        }
+        if( keyVals.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
         if( n == 1 )
         {
             TrieNode<V> best = Collections.max( keyVals, comparator );
@@ -277,4 +681,316 @@ public class TrieNode<V extends Comparable<V>> implements Comparable<TrieNode<V>
             return modifiable.subList( 0, Math.min( n, modifiable.size() ));
         }
     }
+
+    /**
+     * Like getBestKeyValueNodes(int, Comparator), passing the nodes to sink, best
+     * first, rather than collecting them in a new list; nothing is allocated when
+     * they have been precomputed.
+     *
+     * @param n          : number of top key-value nodes to select
+     * @param comparator : comparator
+     * @param sink       : receives the top key-value nodes
+     * @return the number of nodes passed to sink
+     */
+    public int getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator, Consumer<? super TrieNode<V>> sink )
+    {
+        return getBestKeyValueNodes( n, comparator, sink, null );
+    }
+
+    /**
+     * See getBestKeyValueNodes(int, Comparator, Consumer); probe, if not null, is
+     * told how the nodes were selected.
+     */
+    int getBestKeyValueNodes( int n, Comparator<TrieNode<V>> comparator, Consumer<? super TrieNode<V>> sink, QueryProbe probe )
+    {
+        if( n <= 0 )
+        {
+            throw new IllegalArgumentException( "IllegalArgumentException: numTopKeyValueNodes (" + n + ") should be positive " );
+        }
+        if( isPrecomputed( n, comparator ))
+        {
+            int count = Math.min( n, bestKeyValueNodes.length );
+            for( int i = 0; i < count; i++ )
+            {
+                sink.accept( bestKeyValueNodes[i] );
+            }
+            if( probe != null )
+            {
+                probe.selected( Selection.PRECOMPUTED, 0 );
+            }
+            return count;
+        }
+        if( comparator instanceof MonotoneComparator && annotated )
+        {
+            return bestFirst( n, comparator, sink, probe );
+        }
+        List<TrieNode<V>> best = getBestKeyValueNodes( n, comparator, probe );
+        best.forEach( sink );
+        return best.size();
+    }
+
+    /**
+     * Like getBestKeyValueNodes(int, Comparator), with n = result.length.
+     *
+     * @param comparator : comparator
+     * @param result     : receives the top key-value nodes, from index 0
+     * @return the number of nodes written to result
+     */
+    public int getBestKeyValueNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result )
+    {
+        return getBestKeyValueNodes( comparator, result, null );
+    }
+
+    /**
+     * See getBestKeyValueNodes(Comparator, TrieNode[]); probe, if not null, is
+     * told how the nodes were selected.
+     */
+    int getBestKeyValueNodes( Comparator<TrieNode<V>> comparator, TrieNode<V>[] result, QueryProbe probe )
+    {
+        if( isPrecomputed( result.length, comparator ))
+        {
+            int count = Math.min( result.length, bestKeyValueNodes.length );
+            System.arraycopy( bestKeyValueNodes, 0, result, 0, count );
+            if( probe != null )
+            {
+                probe.selected( Selection.PRECOMPUTED, 0 );
+            }
+            return count;
+        }
+        int[] count = new int[1];
+        return getBestKeyValueNodes( result.length, comparator, node -> result[count[0]++] = node, probe );
+    }
+
+    /**
+     * @return true if the top n nodes for comparator are in bestKeyValueNodes,
+     *         which may hold fewer if they are the whole sub-tree
+     */
+    private boolean isPrecomputed( int n, Comparator<TrieNode<V>> comparator )
+    {
+        return comparator == NATURAL_ORDER && bestKeyValueNodes != null && n > 0
+               && (n <= bestKeyValueNodes.length || allBestKeyValueNodes);
+    }
+
+    /**
+     * @param n : number of top key-value nodes to select
+     * @return the top n key-value nodes in descending natural order, or null if
+     *         fewer than n of them have been precomputed and the sub-tree has more
+     */
+    List<TrieNode<V>> getPrecomputedBestKeyValueNodes( int n )
+    {
+        if( bestKeyValueNodes == null || n > bestKeyValueNodes.length && !allBestKeyValueNodes )
+        {
+            return null;
+        }
+        return Collections.unmodifiableList( Arrays.asList( bestKeyValueNodes ).subList( 0, Math.min( n, bestKeyValueNodes.length )));
+    }
+
+    /**
+     * Visit sub-trees in descending order of their greatest value, and stop as soon
+     * as n key-value nodes have been selected; the cost is proportional to n times
+     * the depth of the selected nodes, rather than to the size of the sub-tree.
+     *
+     * @param n          : number of top key-value nodes to select
+     * @param comparator : a MonotoneComparator
+     * @param probe      : told how many nodes were expanded, or null
+     * @return the top key-value nodes according to the comparator, or null if the
+     *         sub-tree has not been annotated with its greatest values
+     */
+    List<TrieNode<V>> getBestKeyValueNodesBestFirst( int n, Comparator<TrieNode<V>> comparator, QueryProbe probe )
+    {
+        if( !annotated )
+        {
+            return null;
+        }
+        List<TrieNode<V>> result = new ArrayList<>( Math.min( n, 16 ));
+        bestFirst( n, comparator, result::add, probe );
+        return result;
+    }
+
+    /**
+     * See getBestKeyValueNodesBestFirst; the sub-tree must have been annotated.
+     *
+     * @return the number of nodes passed to sink
+     */
+    private int bestFirst( int n, Comparator<TrieNode<V>> comparator, Consumer<? super TrieNode<V>> sink, QueryProbe probe )
+    {
+        PriorityQueue<Frontier<V>> queue = new PriorityQueue<>( Frontier.order( comparator ));
+        int selected = 0;
+        int expanded = 0;
+        queue.add( new Frontier<>( this, false ));
+        while( selected < n && !queue.isEmpty() )
+        {
+            Frontier<V> head = queue.poll();
+            TrieNode<V> node = head.node;
+            if( head.candidate )
+            {
+                sink.accept( node );
+                selected++;
+                continue;
+            }
+            expanded++;
+            if( node.isKeyValueNode )
+            {
+                queue.add( new Frontier<>( node, true ));
+            }
+            for( int i = 0, count = node.getNumChildren(); i < count; i++ )
+            {
+                queue.add( new Frontier<>( node.childAt( i ), false ));
+            }
+        }
+        if( probe != null )
+        {
+            probe.selected( Selection.BEST_FIRST, expanded );
+        }
+        return selected;
+    }
+
+    /**
+     * Annotate this node and every node of its sub-tree with the greatest value
+     * of the sub-tree.
+     *
+     * @return the greatest value of this sub-tree, or null if it has none
+     */
+    V annotateMaxValues()
+    {
+        V max = isKeyValueNode ? value : null;
+        for( int i = 0, count = getNumChildren(); i < count; i++ )
+        {
+            V childMax = childAt( i ).annotateMaxValues();
+            if( childMax != null && (max == null || childMax.compareTo( max ) > 0) )
+            {
+                max = childMax;
+            }
+        }
+        maxValue = max;
+        annotated = true;
+        return max;
+    }
+
+    /**
+     * Store the best k key-value nodes, in descending natural order, at this
+     * node and at every node of its sub-tree.
+     *
+     * @param k : number of key-value nodes to keep per node
+     */
+    @SuppressWarnings( "unchecked" )
+    void precomputeBestKeyValueNodes( int k )
+    {
+        List<TrieNode<V>> candidates = new ArrayList<>();
+        if( isKeyValueNode )
+        {
+            candidates.add( this );
+        }
+        boolean all = true;
+        for( int i = 0, count = getNumChildren(); i < count; i++ )
+        {
+            TrieNode<V> child = childAt( i );
+            child.precomputeBestKeyValueNodes( k );
+            candidates.addAll( Arrays.asList( child.bestKeyValueNodes ));
+            all &= child.allBestKeyValueNodes;
+        }
+        allBestKeyValueNodes = all && candidates.size() <= k;
+        // a stable sort keeps ties in depth-first order, as getBestKeyValueNodes(int, Comparator) does
+        Collections.sort( candidates, NATURAL_ORDER.reversed() );
+        bestKeyValueNodes = candidates
+                .subList( 0, Math.min( k, candidates.size() ))
+                .toArray( new TrieNode[0] );
+    }
+
+    /**
+     * An unmodifiable view of keyValueNodes[start, end).
+     */
+    private static final class KeyValueRange<V extends Comparable<V>> extends AbstractList<TrieNode<V>> implements RandomAccess
+    {
+        private final TrieNode<V>[] nodes;
+        private final int start;
+        private final int end;
+
+        KeyValueRange( TrieNode<V>[] nodes, int start, int end )
+        {
+            this.nodes = nodes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public TrieNode<V> get( int index )
+        {
+            if( index < 0 || index >= end - start )
+            {
+                throw new IndexOutOfBoundsException( "index (" + index + ") should be in [0, " + (end - start) + ")" );
+            }
+            return nodes[start + index];
+        }
+
+        @Override
+        public int size()
+        {
+            return end - start;
+        }
+
+        @Override
+        public List<TrieNode<V>> subList( int fromIndex, int toIndex )
+        {
+            if( fromIndex < 0 || toIndex > end - start || fromIndex > toIndex )
+            {
+                throw new IndexOutOfBoundsException( "[" + fromIndex + ", " + toIndex + ") should be in [0, " + (end - start) + "]" );
+            }
+            return new KeyValueRange<>( nodes, start + fromIndex, start + toIndex );
+        }
+    }
+
+    /**
+     * An entry of the best-first search: either a whole sub-tree, bounded by its
+     * greatest value, or a single key-value node.
+     */
+    private static final class Frontier<V extends Comparable<V>>
+    {
+        final TrieNode<V> node;
+        final boolean candidate;
+
+        Frontier( TrieNode<V> node, boolean candidate )
+        {
+            this.node = node;
+            this.candidate = candidate;
+        }
+
+        V bound()
+        {
+            return candidate ? node.value : node.maxValue;
+        }
+
+        /**
+         * Head first: the greatest bound; for equal bounds, sub-trees before
+         * candidates (a sub-tree may hold a node that wins the tie); for
+         * candidates with equal bounds, the comparator decides; and for
+         * candidates the comparator can't tell apart, depth-first order, as a
+         * stable sort of getKeyValueChildren() would.
+         */
+        static <V extends Comparable<V>> Comparator<Frontier<V>> order( Comparator<TrieNode<V>> comparator )
+        {
+            return ( a, b ) -> {
+                V boundA = a.bound();
+                V boundB = b.bound();
+                int c = boundA == null ?
+                        (boundB == null ? 0 : 1)
+                        :
+                        (boundB == null ? -1 : boundB.compareTo( boundA ));
+                if( c != 0 )
+                {
+                    return c;
+                }
+                if( a.candidate != b.candidate )
+                {
+                    return a.candidate ? 1 : -1;
+                }
+                if( !a.candidate )
+                {
+                    return 0;
+                }
+                c = comparator.compare( b.node, a.node );
+                return c != 0 ? c : Integer.compare( a.node.keyValueStart, b.node.keyValueStart );
+            };
+        }
+    }
 }
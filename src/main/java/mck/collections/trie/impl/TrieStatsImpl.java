@@ -0,0 +1,156 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Arrays;
+import mck.collections.trie.TrieStats;
+
+/**
+ * Accumulates TrieStats one node at a time.
+ */
+final class TrieStatsImpl implements TrieStats
+{
+    /** the fanouts up to 65536, the size of the largest character set */
+    private static final int BUCKETS = 18;
+
+    private long nodes;
+    private long keyValueNodes;
+    private long[] nodesByDepth = new long[16];
+    private long[] keyValueNodesByDepth = new long[16];
+    private long[][] fanouts = new long[16][];
+    private int height = -1;
+    private long emptySlots;
+    private long bytes;
+
+    /**
+     * @param depth    : the depth of the node
+     * @param fanout   : its number of children
+     * @param keyValue : whether it is a key-value node
+     */
+    void addNode( int depth, int fanout, boolean keyValue )
+    {
+        if( depth >= nodesByDepth.length )
+        {
+            int capacity = Math.max( depth + 1, nodesByDepth.length * 2 );
+            nodesByDepth = Arrays.copyOf( nodesByDepth, capacity );
+            keyValueNodesByDepth = Arrays.copyOf( keyValueNodesByDepth, capacity );
+            fanouts = Arrays.copyOf( fanouts, capacity );
+        }
+        if( fanouts[depth] == null )
+        {
+            fanouts[depth] = new long[BUCKETS];
+        }
+        height = Math.max( height, depth );
+        nodes++;
+        nodesByDepth[depth]++;
+        if( keyValue )
+        {
+            keyValueNodes++;
+            keyValueNodesByDepth[depth]++;
+        }
+        fanouts[depth][fanout == 0 ? 0 : 33 - Integer.numberOfLeadingZeros( fanout - 1 )]++;
+    }
+
+    void addEmptySlots( long slots )
+    {
+        emptySlots += slots;
+    }
+
+    void addBytes( long bytes )
+    {
+        this.bytes += bytes;
+    }
+
+    /**
+     * @param fieldBytes : the size of an object's fields
+     * @return the size of the object, with its header, aligned to 8 bytes
+     */
+    static long objectBytes( int fieldBytes )
+    {
+        return align( 12 + fieldBytes );
+    }
+
+    /**
+     * @return the size of an array, or 0 for null
+     */
+    static long arrayBytes( Object[] array )
+    {
+        return array == null ? 0 : align( 16 + 4L * array.length );
+    }
+
+    static long arrayBytes( int[] array )
+    {
+        return array == null ? 0 : align( 16 + 4L * array.length );
+    }
+
+    static long arrayBytes( char[] array )
+    {
+        return array == null ? 0 : align( 16 + 2L * array.length );
+    }
+
+    static long arrayBytes( byte[] array )
+    {
+        return array == null ? 0 : align( 16 + (long) array.length );
+    }
+
+    private static long align( long bytes )
+    {
+        return (bytes + 7) & ~7L;
+    }
+
+    @Override
+    public long getNodeCount()
+    {
+        return nodes;
+    }
+
+    @Override
+    public long getKeyValueNodeCount()
+    {
+        return keyValueNodes;
+    }
+
+    @Override
+    public long[] getNodesByDepth()
+    {
+        return Arrays.copyOf( nodesByDepth, height + 1 );
+    }
+
+    @Override
+    public long[] getKeyValueNodesByDepth()
+    {
+        return Arrays.copyOf( keyValueNodesByDepth, height + 1 );
+    }
+
+    @Override
+    public long[][] getFanoutHistogram()
+    {
+        long[][] histogram = new long[height + 1][];
+        for( int depth = 0; depth <= height; depth++ )
+        {
+            histogram[depth] = fanouts[depth] == null ? new long[BUCKETS] : fanouts[depth].clone();
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getEmptySlots()
+    {
+        return emptySlots;
+    }
+
+    @Override
+    public long getEstimatedBytes()
+    {
+        return bytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TrieStats(nodes=" + nodes
+               + ", keyValueNodes=" + keyValueNodes
+               + ", height=" + height
+               + ", emptySlots=" + emptySlots
+               + ", estimatedBytes=" + bytes + ")";
+    }
+}
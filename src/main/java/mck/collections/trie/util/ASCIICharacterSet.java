@@ -7,6 +7,10 @@ import static java.util.Objects.requireNonNull;
 public class ASCIICharacterSet implements CharacterSet
 {
     private static final String DEFAULT = "abcdefghijklmnopqrstuvwxyz0123456789";
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final char LAST_PRINTABLE = '~';
+    private static final char FIRST_PRINTABLE_LATIN1 = '\u00a0';
+    private static final char LAST_LATIN1 = '\u00ff';
     
     private final char[] chars;
     private final char   charToIndexOffset;
@@ -60,6 +64,39 @@ public class ASCIICharacterSet implements CharacterSet
         charToIndexMap = ciMap;
     }
     
+    /**
+     * Character set consisting of every printable ASCII character (' ' to '~'),
+     * i.e. mixed case letters, digits and punctuation.
+     * 
+     * @return 
+     */
+    public static ASCIICharacterSet printable()
+    {
+        return new ASCIICharacterSet( range( FIRST_PRINTABLE, LAST_PRINTABLE ));
+    }
+    
+    /**
+     * Character set consisting of every printable ISO-8859-1 (Latin-1) character:
+     * printable ASCII, plus accented letters and symbols from '\u00a0' to '\u00ff'.
+     * 
+     * @return 
+     */
+    public static ASCIICharacterSet latin1()
+    {
+        return new ASCIICharacterSet( range( FIRST_PRINTABLE, LAST_PRINTABLE )
+                                      + range( FIRST_PRINTABLE_LATIN1, LAST_LATIN1 ));
+    }
+    
+    private static String range( char first, char last )
+    {
+        StringBuilder sb = new StringBuilder( last - first + 1 );
+        for( char c = first; c <= last; c++ )
+        {
+            sb.append( c );
+        }
+        return sb.toString();
+    }
+    
     /**
      * a fast way to convert char to index at the 'children' field of TrieNode
      *
@@ -77,6 +114,16 @@ public class ASCIICharacterSet implements CharacterSet
         return charToIndexMap[adjusted];
     }
     
+    @Override
+    public final char indexToChar( int index )
+    {
+        if( index < 0 || index >= chars.length )
+        {
+            throw new IllegalArgumentException( "index (" + index + ") is not in this character set" );
+        }
+        return chars[index];
+    }
+    
     /**
      * Size of character-to-index map.
      * 
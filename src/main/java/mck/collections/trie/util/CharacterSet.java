@@ -16,6 +16,14 @@ public interface CharacterSet
      */
     public int charToIndex( char c );
     
+    /**
+     * Inverse of charToIndex.
+     * 
+     * @param index an index previously returned by charToIndex
+     * @return the character at that index
+     */
+    public char indexToChar( int index );
+    
     /**
      * Number of characters in this set.
      * 
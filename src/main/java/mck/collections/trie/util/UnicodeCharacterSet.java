@@ -0,0 +1,148 @@
+
+package mck.collections.trie.util;
+
+import java.util.Arrays;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A character set of any UTF-16 code units, e.g. the alphabet of a dictionary in
+ * CJK, Cyrillic or accented Latin script.
+ * <p>
+ * Characters are mapped to dense indices through a two-level table: the high
+ * byte of a character selects a page of 256 entries, and pages that contain none
+ * of the set's characters are shared, so the table is proportional to the number
+ * of blocks the alphabet spans rather than to the range of its characters.
+ * <p>
+ * Characters outside the Basic Multilingual Plane are surrogate pairs, and take
+ * two levels of a trie, one per code unit; lengths, such as fragmentLength and
+ * node levels, count code units, as String.length() does.
+ *
+ * @author carter
+ */
+public class UnicodeCharacterSet implements CharacterSet
+{
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    /** a page without any characters of the set */
+    private static final char[] EMPTY_PAGE = new char[PAGE_SIZE];
+
+    private final char[] chars;
+    /** pages[c >>> 8][c &amp; 0xff] is 1 + the index of c, or 0 if c is not in the set */
+    private final char[][] pages;
+
+    /**
+     * Character set consisting of the given characters; the index of a character
+     * is its position in the string.
+     *
+     * @param characters string of unique characters to be included in the set.
+     */
+    public UnicodeCharacterSet( String characters )
+    {
+        requireNonNull( characters, "character string cannot be null" );
+        if( characters.isEmpty() )
+        {
+            throw new IllegalArgumentException( "character string cannot be empty" );
+        }
+        if( characters.length() > Character.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "character string cannot have more than " + (int) Character.MAX_VALUE + " characters" );
+        }
+        chars = characters.toCharArray();
+        pages = new char[PAGE_SIZE][];
+        Arrays.fill( pages, EMPTY_PAGE );
+        for( int i = 0; i < chars.length; i++ )
+        {
+            char c = chars[i];
+            char[] page = pages[c >>> PAGE_BITS];
+            if( page == EMPTY_PAGE )
+            {
+                page = new char[PAGE_SIZE];
+                pages[c >>> PAGE_BITS] = page;
+            }
+            if( page[c & PAGE_MASK] != 0 )
+            {
+                throw new IllegalArgumentException( "character string must contain unique characters; '"
+                                                    + c + "' (\\u" + Integer.toHexString( c ) + ") is repeated" );
+            }
+            page[c & PAGE_MASK] = (char) (i + 1);
+        }
+    }
+
+    /**
+     * Character set consisting of every character of the keys, i.e. exactly the
+     * alphabet of the input. Indices follow code point order, so children are
+     * visited in the order of their keys' code points.
+     *
+     * @param keys : the keys that will be put into the trie
+     * @return
+     * @throws IllegalArgumentException if a key contains a surrogate that is not part of a pair
+     */
+    public static UnicodeCharacterSet of( Iterable<? extends CharSequence> keys )
+    {
+        requireNonNull( keys, "keys cannot be null" );
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        int count = 0;
+        for( CharSequence key : keys )
+        {
+            for( int i = 0, length = key.length(); i < length; i++ )
+            {
+                char c = key.charAt( i );
+                if( Character.isHighSurrogate( c ) && (i + 1 == length || !Character.isLowSurrogate( key.charAt( i + 1 ))) 
+                    ||
+                    Character.isLowSurrogate( c ) && (i == 0 || !Character.isHighSurrogate( key.charAt( i - 1 ))) )
+                {
+                    throw new IllegalArgumentException( "key '" + key + "' contains an unpaired surrogate at " + i );
+                }
+                if( !seen[c] )
+                {
+                    seen[c] = true;
+                    count++;
+                }
+            }
+        }
+        if( count == 0 )
+        {
+            throw new IllegalArgumentException( "keys cannot all be empty" );
+        }
+        StringBuilder sb = new StringBuilder( count );
+        // code units of the BMP, apart from surrogates, come before surrogates in code point order
+        appendSeen( sb, seen, Character.MIN_VALUE, Character.MIN_SURROGATE - 1 );
+        appendSeen( sb, seen, Character.MAX_SURROGATE + 1, Character.MAX_VALUE );
+        appendSeen( sb, seen, Character.MIN_SURROGATE, Character.MAX_SURROGATE );
+        return new UnicodeCharacterSet( sb.toString() );
+    }
+
+    private static void appendSeen( StringBuilder sb, boolean[] seen, int first, int last )
+    {
+        for( int c = first; c <= last; c++ )
+        {
+            if( seen[c] )
+            {
+                sb.append( (char) c );
+            }
+        }
+    }
+
+    @Override
+    public final int charToIndex( char c )
+    {
+        return pages[c >>> PAGE_BITS][c & PAGE_MASK] - 1;
+    }
+
+    @Override
+    public final char indexToChar( int index )
+    {
+        if( index < 0 || index >= chars.length )
+        {
+            throw new IllegalArgumentException( "index (" + index + ") is not in this character set" );
+        }
+        return chars[index];
+    }
+
+    @Override
+    public final int size()
+    {
+        return chars.length;
+    }
+}
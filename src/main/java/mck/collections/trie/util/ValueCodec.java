@@ -0,0 +1,86 @@
+
+package mck.collections.trie.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the values of a trie to and from bytes, for tries that are stored
+ * outside of the Java heap.
+ * <p>
+ * Codecs with a fixed length are read straight from the trie's storage, by state;
+ * the built-in codecs for Integer, Long and Float are of this kind.
+ *
+ * @author carter
+ * @param <V> the type of values
+ */
+public interface ValueCodec<V>
+{
+    /**
+     * Identifies the encoding in stored tries, so that they can't be opened
+     * with a different codec.
+     *
+     * @return
+     */
+    public String name();
+
+    /**
+     * @return the number of bytes of every encoded value, or -1 if it varies
+     */
+    public int fixedLength();
+
+    /**
+     * @param value
+     * @return the number of bytes that write(value, buffer) puts
+     */
+    public int length( V value );
+
+    /**
+     * Put an encoded value at the buffer's position, and advance the position.
+     *
+     * @param value
+     * @param buffer
+     */
+    public void write( V value, ByteBuffer buffer );
+
+    /**
+     * Decode a value without changing the buffer's position.
+     *
+     * @param buffer
+     * @param offset : the position of the encoded value
+     * @param length : the number of bytes of the encoded value
+     * @return
+     */
+    public V read( ByteBuffer buffer, int offset, int length );
+
+    /**
+     * @return a codec for Integer values, stored as 4 bytes
+     */
+    public static ValueCodec<Integer> integers()
+    {
+        return ValueCodecs.INTEGER;
+    }
+
+    /**
+     * @return a codec for Long values, stored as 8 bytes
+     */
+    public static ValueCodec<Long> longs()
+    {
+        return ValueCodecs.LONG;
+    }
+
+    /**
+     * @return a codec for Float values, stored as 4 bytes
+     */
+    public static ValueCodec<Float> floats()
+    {
+        return ValueCodecs.FLOAT;
+    }
+
+    /**
+     * @return a codec for String values, stored as UTF-8
+     */
+    public static ValueCodec<String> strings()
+    {
+        return ValueCodecs.STRING;
+    }
+}
@@ -0,0 +1,127 @@
+
+package mck.collections.trie.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The codecs returned by ValueCodec.integers(), longs(), floats() and strings().
+ *
+ * @author carter
+ */
+final class ValueCodecs
+{
+    static final ValueCodec<Integer> INTEGER = new Fixed<>( "int32", Integer.BYTES )
+    {
+        @Override
+        public void write( Integer value, ByteBuffer buffer )
+        {
+            buffer.putInt( value );
+        }
+
+        @Override
+        public Integer read( ByteBuffer buffer, int offset, int length )
+        {
+            return buffer.getInt( offset );
+        }
+    };
+
+    static final ValueCodec<Long> LONG = new Fixed<>( "int64", Long.BYTES )
+    {
+        @Override
+        public void write( Long value, ByteBuffer buffer )
+        {
+            buffer.putLong( value );
+        }
+
+        @Override
+        public Long read( ByteBuffer buffer, int offset, int length )
+        {
+            return buffer.getLong( offset );
+        }
+    };
+
+    static final ValueCodec<Float> FLOAT = new Fixed<>( "float32", Float.BYTES )
+    {
+        @Override
+        public void write( Float value, ByteBuffer buffer )
+        {
+            buffer.putFloat( value );
+        }
+
+        @Override
+        public Float read( ByteBuffer buffer, int offset, int length )
+        {
+            return buffer.getFloat( offset );
+        }
+    };
+
+    static final ValueCodec<String> STRING = new ValueCodec<>()
+    {
+        @Override
+        public String name()
+        {
+            return "utf8";
+        }
+
+        @Override
+        public int fixedLength()
+        {
+            return -1;
+        }
+
+        @Override
+        public int length( String value )
+        {
+            return value.getBytes( StandardCharsets.UTF_8 ).length;
+        }
+
+        @Override
+        public void write( String value, ByteBuffer buffer )
+        {
+            buffer.put( value.getBytes( StandardCharsets.UTF_8 ));
+        }
+
+        @Override
+        public String read( ByteBuffer buffer, int offset, int length )
+        {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().position( offset ).get( bytes );
+            return new String( bytes, StandardCharsets.UTF_8 );
+        }
+    };
+
+    private ValueCodecs()
+    {
+    }
+
+    private abstract static class Fixed<V> implements ValueCodec<V>
+    {
+        private final String name;
+        private final int length;
+
+        Fixed( String name, int length )
+        {
+            this.name = name;
+            this.length = length;
+        }
+
+        @Override
+        public String name()
+        {
+            return name;
+        }
+
+        @Override
+        public int fixedLength()
+        {
+            return length;
+        }
+
+        @Override
+        public int length( V value )
+        {
+            return length;
+        }
+    }
+}
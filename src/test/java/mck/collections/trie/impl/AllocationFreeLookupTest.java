@@ -0,0 +1,108 @@
+
+package mck.collections.trie.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import mck.collections.trie.ImmutableTrie;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The lookups that LookupBenchmark reports as allocation-free, measured with the
+ * bytes the JVM counts as allocated by the current thread.
+ */
+public class AllocationFreeLookupTest
+{
+    private static final int LOOKUPS = 200_000;
+
+    private com.sun.management.ThreadMXBean threads;
+    private String[] keys;
+    private char[][] chars;
+
+    @Before
+    public void setup()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue( bean instanceof com.sun.management.ThreadMXBean );
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue( threads.isThreadAllocatedMemorySupported() );
+        threads.setThreadAllocatedMemoryEnabled( true );
+
+        Map<String, Integer> words = Tries.randomKeys( new Random( 14 ), 1024, 6, 8 );
+        // hits and misses, each inside a larger array or string
+        keys = new String[2048];
+        chars = new char[keys.length][];
+        int i = 0;
+        for( String word : words.keySet() )
+        {
+            keys[i] = "<" + word + ">";
+            keys[i + 1] = "<" + word + "z>";
+            i += 2;
+        }
+        for( i = 0; i < keys.length; i++ )
+        {
+            chars[i] = keys[i].toCharArray();
+        }
+    }
+
+    private ImmutableTrie<Integer> trie( ImmutableTrieBuilder.Layout layout )
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().layout( layout );
+        for( int i = 0; i < keys.length; i += 2 )
+        {
+            builder.put( keys[i].substring( 1, keys[i].length() - 1 ), i );
+        }
+        return builder.getTrie();
+    }
+
+    @Test
+    public void nodes()
+    {
+        ImmutableTrie<Integer> trie = trie( ImmutableTrieBuilder.Layout.NODES );
+        assertNoAllocation( "getOrDefault(CharSequence)", i -> trie.getOrDefault( keys[i], 1, keys[i].length() - 2, -1 ));
+        assertNoAllocation( "getOrDefault(char[])", i -> trie.getOrDefault( chars[i], 1, chars[i].length - 2, -1 ));
+        assertNoAllocation( "getNodeOrNull(CharSequence)", i -> trie.getNodeOrNull( keys[i], 1, keys[i].length() - 2 ) == null ? -1 : 0 );
+        assertNoAllocation( "getNodeOrNull(char[])", i -> trie.getNodeOrNull( chars[i], 1, chars[i].length - 2 ) == null ? -1 : 0 );
+    }
+
+    @Test
+    public void doubleArray()
+    {
+        ImmutableTrie<Integer> trie = trie( ImmutableTrieBuilder.Layout.DOUBLE_ARRAY );
+        assertNoAllocation( "getOrDefault(CharSequence)", i -> trie.getOrDefault( keys[i], 1, keys[i].length() - 2, -1 ));
+        assertNoAllocation( "getOrDefault(char[])", i -> trie.getOrDefault( chars[i], 1, chars[i].length - 2, -1 ));
+    }
+
+    /**
+     * Run lookup over every key until it's compiled, then fail if it allocates
+     * anything per call.
+     *
+     * @param lookup : looks up keys[i], and returns a negative number for a miss
+     */
+    private void assertNoAllocation( String description, IntUnaryOperator lookup )
+    {
+        long thread = Thread.currentThread().getId();
+        run( lookup, LOOKUPS );
+        long baseline = threads.getThreadAllocatedBytes( thread );
+        baseline = threads.getThreadAllocatedBytes( thread ) - baseline;
+        long before = threads.getThreadAllocatedBytes( thread );
+        int hits = run( lookup, LOOKUPS );
+        long allocated = threads.getThreadAllocatedBytes( thread ) - before - baseline;
+        assertThat( hits ).isEqualTo( LOOKUPS / 2 );
+        assertThat( allocated / LOOKUPS ).as( description + " allocated " + allocated + " bytes in " + LOOKUPS + " lookups" ).isZero();
+    }
+
+    private int run( IntUnaryOperator lookup, int count )
+    {
+        int hits = 0;
+        for( int i = 0; i < count; i++ )
+        {
+            hits += lookup.applyAsInt( i & (keys.length - 1) ) >= 0 ? 1 : 0;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,127 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.Trie;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class BatchSearchTest
+{
+    private static final ForkJoinPool POOL = new ForkJoinPool( 4 );
+    private static final Comparator<TrieNode<Integer>> LOWEST_FIRST = ( a, b ) -> b.getValue().get().compareTo( a.getValue().get() );
+
+    @AfterClass
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void batchesMatchSingleQueriesOnEveryTrie()
+    {
+        Random random = new Random( 24 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 2000, 5, 8 );
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                // large enough to be split across the pool
+                List<String> fragments = fragments( random, 600 );
+                for( Comparator<TrieNode<Integer>> comparator : Arrays.asList( TrieNode.<Integer>naturalOrder(), LOWEST_FIRST ))
+                {
+                    for( int n : new int[]{ 1, 4 } )
+                    {
+                        assertBatchMatches( trie.getKey(), trie.getValue(), fragments, comparator, n );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void concurrentTrie()
+    {
+        Trie<Integer> trie = ConcurrentTrieBuilder.<Integer>prefix().getTrie();
+        trie.put( "apple", 1 );
+        trie.put( "apply", 2 );
+        trie.put( "banana", 3 );
+
+        List<List<TrieNode<Integer>>> best = trie.bestNodesWith( Arrays.asList( "ap", "ban", "c" ), TrieNode.naturalOrder(), 3 );
+
+        assertThat( Tries.keys( best.get( 0 ))).containsExactly( "apply=2", "apple=1" );
+        assertThat( Tries.keys( best.get( 1 ))).containsExactly( "banana=3" );
+        assertThat( best.get( 2 )).isEmpty();
+    }
+
+    @Test
+    public void emptyBatch()
+    {
+        ImmutableTrie<Integer> trie = ImmutableTrieBuilder.<Integer>prefix().getTrie();
+
+        assertThat( trie.bestNodesWith( new ArrayList<>(), TrieNode.naturalOrder(), 3 )).isEmpty();
+    }
+
+    @Test
+    public void nMustBePositive()
+    {
+        ImmutableTrie<Integer> trie = ImmutableTrieBuilder.<Integer>prefix().getTrie();
+
+        assertThatThrownBy( () -> trie.bestNodesWith( Arrays.asList( "a" ), TrieNode.naturalOrder(), 0 ))
+                .isInstanceOf( IllegalArgumentException.class );
+    }
+
+    private static void assertBatchMatches( String name, ImmutableTrie<Integer> trie, List<String> fragments,
+                                            Comparator<TrieNode<Integer>> comparator, int n )
+    {
+        List<List<TrieNode<Integer>>> batch = trie.bestNodesWith( fragments, comparator, n );
+        List<List<TrieNode<Integer>>> parallel = trie.bestNodesWith( fragments, comparator, n, POOL );
+        List<List<ImmutableTrie.Entry<Integer>>> entries = trie.bestWith( fragments, comparator, n );
+        assertThat( batch ).as( name ).hasSameSizeAs( fragments );
+        assertThat( parallel ).as( name ).hasSameSizeAs( fragments );
+        assertThat( entries ).as( name ).hasSameSizeAs( fragments );
+        for( int i = 0; i < fragments.size(); i++ )
+        {
+            List<String> expected = Tries.keys( trie.bestNodesWith( fragments.get( i ), comparator, n ));
+            String description = name + ", fragment '" + fragments.get( i ) + "'";
+            assertThat( Tries.keys( batch.get( i ))).as( description ).isEqualTo( expected );
+            assertThat( Tries.keys( parallel.get( i ))).as( description ).isEqualTo( expected );
+            assertThat( entries.get( i )).as( description ).hasSize( expected.size() );
+        }
+    }
+
+    /**
+     * @return random fragments, some repeated, empty, or with a character no key has
+     */
+    private static List<String> fragments( Random random, int count )
+    {
+        List<String> fragments = new ArrayList<>( count );
+        for( int i = 0; i < count; i++ )
+        {
+            switch( random.nextInt( 20 ))
+            {
+                case 0:
+                    fragments.add( "" );
+                    break;
+                case 1:
+                    fragments.add( Tries.randomString( random, 5, 1 + random.nextInt( 3 )) + "z" );
+                    break;
+                case 2:
+                    fragments.add( i == 0 ? "a" : fragments.get( random.nextInt( i )));
+                    break;
+                default:
+                    fragments.add( Tries.randomString( random, 5, 1 + random.nextInt( 5 )));
+            }
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,87 @@
+
+package mck.collections.trie.impl;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import static org.assertj.core.api.Assertions.assertThat;
+import mck.collections.trie.ImmutableTrie;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class BulkPutTest
+{
+    private static final ForkJoinPool POOL = new ForkJoinPool( 4 );
+
+    @AfterClass
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void partitionWhoseKeysAreAllRejected()
+    {
+        // every key under 'q' has a character the ASCII set doesn't support
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for( int i = 0; i < 10000; i++ )
+        {
+            entries.add( new SimpleEntry<>( "q一" + i, i ));
+            entries.add( new SimpleEntry<>( "a" + i, i ));
+        }
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        assertThat( builder.putAll( entries, POOL )).isEqualTo( 10000 );
+        assertThat( builder.getFailedToPut() ).isEqualTo( 10000 );
+
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        assertThat( trie.size() ).isEqualTo( 10000 );
+        assertThat( trie.get( "a9999" )).contains( 9999 );
+        assertThat( trie.nodesWith( "q" )).isEmpty();
+    }
+
+    @Test
+    public void suffixPartitionWhoseKeysAreAllRejected()
+    {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for( int i = 0; i < 10000; i++ )
+        {
+            entries.add( new SimpleEntry<>( i + "一q", i ));
+            entries.add( new SimpleEntry<>( i + "a", i ));
+        }
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.suffix();
+        assertThat( builder.putAll( entries, POOL )).isEqualTo( 10000 );
+
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        assertThat( trie.size() ).isEqualTo( 10000 );
+        assertThat( trie.get( "9999a" )).contains( 9999 );
+        assertThat( trie.nodesWith( "q" )).isEmpty();
+    }
+
+    @Test
+    public void parallelMatchesSequential()
+    {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for( int i = 0; i < 20000; i++ )
+        {
+            // duplicates, where the last value wins, and some rejected keys
+            entries.add( new SimpleEntry<>( Integer.toString( i % 15000, 36 ) + (i % 97 == 0 ? "é" : ""), i ));
+        }
+        ImmutableTrieBuilder<Integer> parallel = ImmutableTrieBuilder.prefix();
+        parallel.put( "1", -1 ); // moved under its partition's scratch trie and extended
+        ImmutableTrieBuilder<Integer> sequential = ImmutableTrieBuilder.prefix();
+        sequential.put( "1", -1 );
+        for( Map.Entry<String, Integer> entry : entries )
+        {
+            sequential.put( entry.getKey(), entry.getValue() );
+        }
+        assertThat( parallel.putAll( entries, POOL )).isEqualTo( sequential.getFailedToPut() );
+
+        ImmutableTrie<Integer> expected = sequential.getTrie();
+        ImmutableTrie<Integer> actual = parallel.getTrie();
+        assertThat( actual.size() ).isEqualTo( expected.size() );
+        assertThat( Tries.keys( actual.bestNodesWith( "", Integer.MAX_VALUE )))
+                .containsExactlyElementsOf( Tries.keys( expected.bestNodesWith( "", Integer.MAX_VALUE )));
+    }
+}
@@ -0,0 +1,225 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.Trie;
+import mck.collections.trie.util.ASCIICharacterSet;
+import mck.collections.trie.util.CharacterSet;
+import mck.collections.trie.util.UnicodeCharacterSet;
+import mck.collections.trie.util.ValueCodec;
+import org.junit.Test;
+
+/**
+ * Every layout visits children in the order of their character indices,
+ * whatever the order they were put in and however many there are.
+ */
+public class ChildOrderTest
+{
+    @Test
+    public void reversedPuts()
+    {
+        List<String> keys = new ArrayList<>();
+        for( char c = 't'; c >= 'a'; c-- )
+        {
+            keys.add( String.valueOf( c ));
+        }
+        Map<String, ImmutableTrie<Integer>> tries = tries( new ASCIICharacterSet(), keys );
+        for( Map.Entry<String, ImmutableTrie<Integer>> trie : tries.entrySet() )
+        {
+            StringBuilder order = new StringBuilder();
+            trie.getValue().nodesWith( "" ).forEach( node -> order.append( node.getKey() ));
+            assertThat( order.toString() ).as( trie.getKey() ).isEqualTo( "abcdefghijklmnopqrst" );
+        }
+    }
+
+    @Test
+    public void everyFanoutOfPrintable()
+    {
+        checkFanouts( ASCIICharacterSet.printable() );
+    }
+
+    @Test
+    public void everyFanoutOfLatin1()
+    {
+        // large enough for the 48-children layout
+        checkFanouts( ASCIICharacterSet.latin1() );
+    }
+
+    @Test
+    public void defaultSetIsNotInCharOrder()
+    {
+        // digits come after letters in the default set
+        Map<String, ImmutableTrie<Integer>> tries = tries( new ASCIICharacterSet(), Arrays.asList( "9", "z", "0", "a" ));
+        for( Map.Entry<String, ImmutableTrie<Integer>> trie : tries.entrySet() )
+        {
+            assertThat( Tries.keys( trie.getValue().nodesWith( "" ))).as( trie.getKey() ).containsExactly( "a=3", "z=1", "0=2", "9=0" );
+            assertThat( trie.getValue().get( "0" )).as( trie.getKey() ).contains( 2 );
+            assertThat( trie.getValue().get( "z" )).as( trie.getKey() ).contains( 1 );
+        }
+    }
+
+    @Test
+    public void thousandsOfUnicodeCharacters()
+    {
+        Random random = new Random( 13 );
+        StringBuilder alphabet = new StringBuilder();
+        for( char c = '一'; alphabet.length() < 3000; c++ )
+        {
+            alphabet.append( c );
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        while( keys.size() < 5000 )
+        {
+            char[] key = new char[1 + random.nextInt( 3 )];
+            for( int i = 0; i < key.length; i++ )
+            {
+                // a wide root, and narrower levels below it
+                key[i] = alphabet.charAt( random.nextInt( i == 0 ? alphabet.length() : 20 ));
+            }
+            keys.add( new String( key ));
+        }
+        List<String> list = new ArrayList<>( keys );
+        Collections.shuffle( list, random );
+        Map<String, ImmutableTrie<Integer>> tries = tries( new UnicodeCharacterSet( alphabet.toString() ), list );
+        List<String> expected = Tries.keys( tries.get( "NODES" ).nodesWith( "" ));
+        assertThat( expected ).hasSize( keys.size() );
+        for( Map.Entry<String, ImmutableTrie<Integer>> trie : tries.entrySet() )
+        {
+            assertThat( Tries.keys( trie.getValue().nodesWith( "" ))).as( trie.getKey() ).containsExactlyElementsOf( expected );
+        }
+        checkChildAt( ((AbstractImmutableTrie<Integer>) tries.get( "DOUBLE_ARRAY" )).getRoot() );
+    }
+
+    /**
+     * childAt(i) is the i-th of getChildren(), all the way down.
+     */
+    private static void checkChildAt( TrieNode<Integer> node )
+    {
+        List<TrieNode<Integer>> children = node.getChildren();
+        assertThat( node.getNumChildren() ).isEqualTo( children.size() );
+        for( int i = 0; i < children.size(); i++ )
+        {
+            TrieNode<Integer> child = node.childAt( i );
+            assertThat( child ).isEqualTo( children.get( i ));
+            assertThat( child.getKey() ).isEqualTo( children.get( i ).getKey() );
+            checkChildAt( child );
+        }
+    }
+
+    private static void checkFanouts( CharacterSet characters )
+    {
+        Random random = new Random( 5 );
+        List<Character> chars = new ArrayList<>();
+        for( char c = 0; c < 0x100; c++ )
+        {
+            if( characters.charToIndex( c ) >= 0 )
+            {
+                chars.add( c );
+            }
+        }
+        for( int fanout : new int[]{ 3, 5, 17, 49, chars.size() } )
+        {
+            Collections.shuffle( chars, random );
+            // one- and two-character keys, so that the root and its first child branch
+            List<String> keys = new ArrayList<>();
+            char first = chars.get( 0 );
+            for( int i = 0; i < fanout; i++ )
+            {
+                char c = chars.get( i );
+                keys.add( String.valueOf( c ));
+                keys.add( first + String.valueOf( c ));
+            }
+            Map<String, ImmutableTrie<Integer>> tries = tries( characters, keys );
+            List<String> order = null;
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : tries.entrySet() )
+            {
+                List<String> actual = new ArrayList<>();
+                trie.getValue().nodesWith( "" ).forEach( node -> actual.add( node.getKey() ));
+                if( order == null )
+                {
+                    order = actual;
+                    assertThat( isInIndexOrder( characters, actual )).as( trie.getKey() + " " + fanout + ": " + actual ).isTrue();
+                }
+                assertThat( actual ).as( trie.getKey() + ", fanout " + fanout ).containsExactlyElementsOf( order );
+                // ties are broken by that order too
+                assertThat( Tries.keys( trie.getValue().bestNodesWith( "", 7 )))
+                        .as( trie.getKey() + ", fanout " + fanout )
+                        .containsExactlyElementsOf( Tries.keys( tries.get( "NODES" ).bestNodesWith( "", 7 )));
+            }
+        }
+    }
+
+    private static boolean isInIndexOrder( CharacterSet characters, List<String> keys )
+    {
+        for( int i = 1; i < keys.size(); i++ )
+        {
+            if( compare( characters, keys.get( i - 1 ), keys.get( i )) >= 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Depth-first order: by character index, with a key before the keys it prefixes.
+     */
+    private static int compare( CharacterSet characters, String a, String b )
+    {
+        for( int i = 0; i < Math.min( a.length(), b.length() ); i++ )
+        {
+            int difference = characters.charToIndex( a.charAt( i )) - characters.charToIndex( b.charAt( i ));
+            if( difference != 0 )
+            {
+                return difference;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /**
+     * @return a trie of each layout, where every key has value 1 if there are
+     *         more than 20 of them, and its position otherwise
+     */
+    private static Map<String, ImmutableTrie<Integer>> tries( CharacterSet characters, List<String> keys )
+    {
+        Map<String, ImmutableTrie<Integer>> tries = new LinkedHashMap<>();
+        for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+        {
+            tries.put( layout.name(), builder( characters, keys ).layout( layout ).getTrie() );
+        }
+        tries.put( "off-heap", builder( characters, keys ).getOffHeapTrie( ValueCodec.integers() ));
+        Trie<Integer> concurrent = ConcurrentTrieBuilder.<Integer>prefix( characters ).getTrie();
+        for( int i = 0; i < keys.size(); i++ )
+        {
+            concurrent.put( keys.get( i ), value( keys, i ));
+        }
+        tries.put( "concurrent", concurrent );
+        return tries;
+    }
+
+    private static ImmutableTrieBuilder<Integer> builder( CharacterSet characters, List<String> keys )
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix( characters );
+        for( int i = 0; i < keys.size(); i++ )
+        {
+            assertThat( builder.put( keys.get( i ), value( keys, i ))).isTrue();
+        }
+        return builder;
+    }
+
+    private static int value( List<String> keys, int i )
+    {
+        return keys.size() > 20 ? 1 : i;
+    }
+}
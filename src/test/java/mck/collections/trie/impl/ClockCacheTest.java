@@ -0,0 +1,138 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.Test;
+
+public class ClockCacheTest
+{
+    @Test
+    public void hotKeySurvivesABurstOfOneOffKeys()
+    {
+        ClockCache<String, String> cache = new ClockCache<>( 100 );
+        AtomicInteger hotLoads = new AtomicInteger();
+        String hot = "hot";
+        cache.get( hot, key -> key + hotLoads.incrementAndGet() );
+        for( int i = 0; i < 10_000; i++ )
+        {
+            cache.get( "once" + i, key -> key );
+            // hit at least once per sweep of the ring
+            if( i % 50 == 0 )
+            {
+                assertThat( cache.get( hot, key -> key + hotLoads.incrementAndGet() )).isEqualTo( "hot1" );
+            }
+        }
+        assertThat( hotLoads.get() ).isEqualTo( 1 );
+        assertThat( cache.size() ).isEqualTo( 100 );
+    }
+
+    @Test
+    public void oneOffKeysAreEvictedBeforeHitKeys()
+    {
+        ClockCache<Integer, Integer> cache = new ClockCache<>( 10 );
+        for( int i = 0; i < 10; i++ )
+        {
+            cache.get( i, key -> key );
+        }
+        // 0 to 4 are hit, so the next 5 misses evict 5 to 9
+        for( int i = 0; i < 5; i++ )
+        {
+            cache.get( i, key -> -1 );
+        }
+        AtomicInteger loads = new AtomicInteger();
+        for( int i = 10; i < 15; i++ )
+        {
+            cache.get( i, key -> key );
+        }
+        for( int i = 0; i < 5; i++ )
+        {
+            assertThat( cache.get( i, key -> -loads.incrementAndGet() )).isEqualTo( i );
+        }
+        assertThat( loads.get() ).isZero();
+        assertThat( cache.evictionCount() ).isEqualTo( 5 );
+    }
+
+    @Test
+    public void sizeAndCounters()
+    {
+        Random random = new Random( 21 );
+        ClockCache<Integer, Integer> cache = new ClockCache<>( 64 );
+        AtomicInteger loads = new AtomicInteger();
+        Set<Integer> seen = new HashSet<>();
+        int gets = 20_000;
+        for( int i = 0; i < gets; i++ )
+        {
+            // skewed, so that there are both hits and misses
+            int key = random.nextInt( 1 + random.nextInt( 500 ));
+            assertThat( cache.get( key, k -> {
+                loads.incrementAndGet();
+                return k * 2;
+            } )).isEqualTo( key * 2 );
+            seen.add( key );
+            assertThat( cache.size() ).isLessThanOrEqualTo( 64 );
+        }
+        assertThat( cache.size() ).isEqualTo( Math.min( 64, seen.size() ));
+        assertThat( cache.hitCount() + cache.missCount() ).isEqualTo( gets );
+        assertThat( cache.missCount() ).isEqualTo( loads.get() );
+        assertThat( cache.hitCount() ).isPositive();
+        // every miss adds an entry, and every entry beyond the maximum size evicts one
+        assertThat( cache.evictionCount() ).isEqualTo( cache.missCount() - cache.size() );
+    }
+
+    @Test
+    public void concurrentGets() throws Exception
+    {
+        ClockCache<Integer, Integer> cache = new ClockCache<>( 32 );
+        AtomicInteger loads = new AtomicInteger();
+        int threads = 4;
+        int gets = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for( int t = 0; t < threads; t++ )
+            {
+                Random random = new Random( t );
+                futures.add( executor.submit( () -> {
+                    for( int i = 0; i < gets; i++ )
+                    {
+                        int key = random.nextInt( 1 + random.nextInt( 100 ));
+                        assertThat( cache.get( key, k -> {
+                            loads.incrementAndGet();
+                            return -k;
+                        } )).isEqualTo( -key );
+                    }
+                } ));
+            }
+            for( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertThat( cache.size() ).isLessThanOrEqualTo( 32 );
+        assertThat( cache.hitCount() + cache.missCount() ).isEqualTo( threads * gets );
+        assertThat( cache.missCount() ).isEqualTo( loads.get() );
+        // a miss whose key was loaded by another thread meanwhile adds nothing
+        assertThat( cache.evictionCount() ).isLessThanOrEqualTo( cache.missCount() - cache.size() );
+    }
+
+    @Test
+    public void maximumSizeMustBePositive()
+    {
+        assertThatThrownBy( () -> new ClockCache<String, String>( 0 )).isInstanceOf( IllegalArgumentException.class );
+    }
+}
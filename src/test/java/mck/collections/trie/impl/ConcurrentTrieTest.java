@@ -0,0 +1,223 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.assertj.core.api.Assertions.assertThat;
+import mck.collections.trie.Trie;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Writers and readers on many threads at once; the checks are made on what the
+ * writers report, since a reader may or may not see each of their updates.
+ */
+public class ConcurrentTrieTest
+{
+    private static final int THREADS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( THREADS + 2 );
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void disjointKeys() throws Exception
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            Trie<Integer> trie = suffix ? ConcurrentTrieBuilder.<Integer>suffix().getTrie() : ConcurrentTrieBuilder.<Integer>prefix().getTrie();
+            Random random = new Random( 8 );
+            // every thread owns the keys that start and end with its letter
+            List<List<String>> owned = new ArrayList<>();
+            Set<String> all = new HashSet<>();
+            for( int t = 0; t < THREADS; t++ )
+            {
+                char letter = (char) ('s' + t);
+                List<String> keys = new ArrayList<>();
+                while( keys.size() < 1500 )
+                {
+                    String key = letter + Tries.randomString( random, 6, random.nextInt( 6 )) + letter;
+                    if( all.add( key ))
+                    {
+                        keys.add( key );
+                    }
+                }
+                owned.add( keys );
+            }
+            Map<String, Integer> expected = new ConcurrentHashMap<>();
+            List<Callable<Void>> writers = new ArrayList<>();
+            for( int t = 0; t < THREADS; t++ )
+            {
+                List<String> keys = owned.get( t );
+                writers.add( () -> {
+                    for( int i = 0; i < keys.size(); i++ )
+                    {
+                        assertThat( trie.put( keys.get( i ), i )).isTrue();
+                    }
+                    for( int i = 0; i < keys.size(); i++ )
+                    {
+                        String key = keys.get( i );
+                        assertThat( trie.get( key )).as( key ).contains( i );
+                        if( i % 3 == 0 )
+                        {
+                            assertThat( trie.remove( key )).as( key ).contains( i );
+                            assertThat( trie.remove( key )).as( key ).isEmpty();
+                        }
+                        else
+                        {
+                            trie.put( key, -i );
+                            expected.put( key, -i );
+                        }
+                    }
+                    return null;
+                } );
+            }
+            // suffix tries give keys in the order they are walked
+            runWithReaders( trie, writers, ( key, value ) -> all.contains( suffix ? new StringBuilder( key ).reverse().toString() : key ));
+
+            assertThat( trie.size() ).isEqualTo( expected.size() );
+            for( String key : all )
+            {
+                assertThat( trie.get( key )).as( key ).isEqualTo( Optional.ofNullable( expected.get( key )));
+            }
+            TreeMap<String, String> walked = new TreeMap<>();
+            expected.forEach( ( key, value ) -> {
+                String walk = suffix ? new StringBuilder( key ).reverse().toString() : key;
+                walked.put( walk, walk + "=" + value );
+            } );
+            assertThat( Tries.keys( trie.nodesWith( "" ))).containsExactlyElementsOf( walked.values() );
+        }
+    }
+
+    @Test
+    public void overlappingKeys() throws Exception
+    {
+        Trie<Integer> trie = ConcurrentTrieBuilder.<Integer>prefix().getTrie();
+        List<String> keys = new ArrayList<>( Tries.randomKeys( new Random( 9 ), 200, 3, 5 ).keySet() );
+        int rounds = 2000;
+        // every value that is put is unique, and says which key it was put for
+        Set<Integer> removed = ConcurrentHashMap.newKeySet();
+        List<Callable<Void>> writers = new ArrayList<>();
+        for( int t = 0; t < THREADS; t++ )
+        {
+            int thread = t;
+            writers.add( () -> {
+                Random random = new Random( thread );
+                for( int round = 0; round < rounds; round++ )
+                {
+                    int k = random.nextInt( keys.size() );
+                    String key = keys.get( k );
+                    if( random.nextInt( 3 ) == 0 )
+                    {
+                        Optional<Integer> previous = trie.remove( key );
+                        if( previous.isPresent() )
+                        {
+                            assertThat( previous.get() % keys.size() ).isEqualTo( k );
+                            // a value is removed at most once
+                            assertThat( removed.add( previous.get() )).as( key ).isTrue();
+                        }
+                    }
+                    else
+                    {
+                        trie.put( key, ((round * THREADS) + thread) * keys.size() + k );
+                    }
+                }
+                return null;
+            } );
+        }
+        runWithReaders( trie, writers, ( key, value ) -> keys.get( value % keys.size() ).equals( key ));
+
+        // the count agrees with the nodes, whatever the interleaving
+        int present = 0;
+        for( int k = 0; k < keys.size(); k++ )
+        {
+            Optional<Integer> value = trie.get( keys.get( k ));
+            if( value.isPresent() )
+            {
+                present++;
+                assertThat( value.get() % keys.size() ).isEqualTo( k );
+                assertThat( removed ).doesNotContain( value.get() );
+            }
+        }
+        assertThat( trie.size() ).isEqualTo( present );
+        assertThat( trie.nodesWith( "" )).hasSize( present );
+        for( TrieNode<Integer> node : trie.nodesWith( "" ))
+        {
+            assertThat( trie.get( node.getKey() )).isEqualTo( node.getValue() );
+        }
+    }
+
+    private interface Check
+    {
+        boolean isValid( String key, int value );
+    }
+
+    /**
+     * Run the writers together, with two readers that query the trie until they
+     * have finished and check every key-value node they see.
+     */
+    private void runWithReaders( Trie<Integer> trie, List<Callable<Void>> writers, Check check ) throws Exception
+    {
+        CountDownLatch start = new CountDownLatch( 1 );
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<Void>> readers = new ArrayList<>();
+        for( int r = 0; r < 2; r++ )
+        {
+            readers.add( executor.submit( () -> {
+                start.await();
+                while( !done.get() )
+                {
+                    for( TrieNode<Integer> node : trie.nodesWith( "" ))
+                    {
+                        Optional<Integer> value = node.getValue();
+                        assertThat( value ).isPresent();
+                        assertThat( check.isValid( node.getKey(), value.get() )).as( node.getKey() + "=" + value.get() ).isTrue();
+                    }
+                    assertThat( trie.size() ).isGreaterThanOrEqualTo( 0 );
+                }
+                return null;
+            } ));
+        }
+        List<Future<Void>> running = new ArrayList<>();
+        for( Callable<Void> writer : writers )
+        {
+            running.add( executor.submit( () -> {
+                start.await();
+                return writer.call();
+            } ));
+        }
+        start.countDown();
+        try
+        {
+            for( Future<Void> writer : running )
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            done.set( true );
+        }
+        for( Future<Void> reader : readers )
+        {
+            reader.get();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableTrie;
+import org.junit.Test;
+
+public class EditDistanceSearchTest
+{
+    @Test
+    public void matchesBruteForceOnEveryTrie()
+    {
+        Random random = new Random( 17 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 500, 4, 7 );
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                for( int i = 0; i < 100; i++ )
+                {
+                    String fragment = Tries.randomString( random, 5, random.nextInt( 6 ));
+                    int maxEdits = random.nextInt( 3 );
+                    int n = 1 + random.nextInt( 6 );
+                    assertThat( Tries.keys( trie.getValue().bestNodesWithinDistance( fragment, maxEdits, n )))
+                            .as( trie.getKey() + " '" + fragment + "', " + maxEdits + " edits, " + n )
+                            .containsExactlyElementsOf( bruteForce( keys, suffix, fragment, maxEdits, n ));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hugeBudgetMatchesEveryKey()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        builder.put( "apple", 1 );
+        builder.put( "banana", 2 );
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        assertThat( Tries.keys( trie.bestNodesWithinDistance( "xyz", Integer.MAX_VALUE, 5 ))).containsExactly( "banana=2", "apple=1" );
+        assertThat( Tries.keys( trie.bestNodesWithinDistance( "xyz", 3, 5 ))).containsExactly( "banana=2", "apple=1" );
+        assertThat( trie.bestNodesWithinDistance( "xyz", 2, 5 )).isEmpty();
+    }
+
+    @Test
+    public void negativeBudget()
+    {
+        ImmutableTrie<Integer> trie = ImmutableTrieBuilder.<Integer>prefix().getTrie();
+        assertThatThrownBy( () -> trie.bestNodesWithinDistance( "a", -1, 1 )).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    /**
+     * @return the top n keys, as "key=value" with the key in the order the trie
+     *         walks it, that have a prefix (suffix) within maxEdits of fragment
+     */
+    private static List<String> bruteForce( Map<String, Integer> keys, boolean suffix, String fragment, int maxEdits, int n )
+    {
+        List<Map.Entry<String, Integer>> matches = new ArrayList<>();
+        for( Map.Entry<String, Integer> key : keys.entrySet() )
+        {
+            String k = key.getKey();
+            for( int length = 0; length <= k.length(); length++ )
+            {
+                String part = suffix ? k.substring( k.length() - length ) : k.substring( 0, length );
+                if( distance( part, fragment ) <= maxEdits )
+                {
+                    matches.add( key );
+                    break;
+                }
+            }
+        }
+        // values are distinct
+        matches.sort( Map.Entry.<String, Integer>comparingByValue().reversed() );
+        return matches.stream()
+                .limit( n )
+                .map( e -> (suffix ? new StringBuilder( e.getKey() ).reverse().toString() : e.getKey()) + "=" + e.getValue() )
+                .collect( toList() );
+    }
+
+    private static int distance( String a, String b )
+    {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for( int i = 0; i <= a.length(); i++ )
+        {
+            for( int j = 0; j <= b.length(); j++ )
+            {
+                d[i][j] = i == 0 ? j
+                          : j == 0 ? i
+                          : Math.min( Math.min( d[i - 1][j] + 1, d[i][j - 1] + 1 ),
+                                      d[i - 1][j - 1] + (a.charAt( i - 1 ) == b.charAt( j - 1 ) ? 0 : 1) );
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,106 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableLongTransducer;
+import org.junit.Test;
+
+public class ImmutableLongTransducerTest
+{
+    @Test
+    public void matchesBruteForce()
+    {
+        Random random = new Random( 20 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 2000, 4, 8 );
+        ImmutableLongTransducerBuilder sorted = ImmutableLongTransducerBuilder.sorted();
+        new TreeMap<>( keys ).forEach( ( key, value ) -> sorted.put( key, value * 1000L ));
+        check( random, keys, sorted.getTransducer(), false );
+
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            ImmutableTrieBuilder<Integer> builder = suffix ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+            keys.forEach( builder::put );
+            check( random, keys, builder.getTransducer( value -> value * 1000L ), suffix );
+        }
+    }
+
+    private static void check( Random random, Map<String, Integer> keys, ImmutableLongTransducer transducer, boolean suffix )
+    {
+        assertThat( transducer.size() ).isEqualTo( keys.size() );
+        keys.forEach( ( key, value ) -> {
+            assertThat( transducer.get( key, -1 )).as( key ).isEqualTo( value * 1000L );
+            assertThat( transducer.get( "x" + key + "x", 1, key.length(), -1 )).as( key ).isEqualTo( value * 1000L );
+            assertThat( transducer.containsKey( key )).as( key ).isTrue();
+        } );
+        for( int i = 0; i < 500; i++ )
+        {
+            String fragment = Tries.randomString( random, 5, random.nextInt( 9 ));
+            Integer value = keys.get( fragment );
+            assertThat( transducer.get( fragment, -1 )).as( fragment ).isEqualTo( value == null ? -1 : value * 1000L );
+            assertThat( transducer.containsKey( fragment )).as( fragment ).isEqualTo( value != null );
+
+            // in the order the keys are walked
+            TreeMap<String, String> expected = new TreeMap<>();
+            keys.forEach( ( key, v ) -> {
+                if( suffix ? key.endsWith( fragment ) : key.startsWith( fragment ))
+                {
+                    expected.put( suffix ? new StringBuilder( key ).reverse().toString() : key, key + "=" + v * 1000L );
+                }
+            } );
+            List<String> actual = new ArrayList<>();
+            int count = transducer.forEachWith( fragment, ( key, v ) -> actual.add( key + "=" + v ));
+            assertThat( actual ).as( fragment ).containsExactlyElementsOf( expected.values() );
+            assertThat( count ).isEqualTo( actual.size() );
+        }
+    }
+
+    @Test
+    public void fromBuilderWhoseIndicesAreNotInCharOrder()
+    {
+        // digits come after letters in the default set, but before them as chars
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        String[] keys = { "z9", "a", "0a", "a0", "9", "az", "00" };
+        for( int i = 0; i < keys.length; i++ )
+        {
+            builder.put( keys[i], i );
+        }
+        ImmutableLongTransducer transducer = builder.getTransducer( value -> value );
+        for( int i = 0; i < keys.length; i++ )
+        {
+            assertThat( transducer.get( keys[i], -1 )).as( keys[i] ).isEqualTo( i );
+        }
+        List<String> walked = new ArrayList<>();
+        transducer.forEachWith( "", ( key, value ) -> walked.add( key ));
+        assertThat( walked ).containsExactly( "00", "0a", "9", "a", "a0", "az", "z9" );
+        assertThatThrownBy( () -> builder.getTransducer( value -> value )).isInstanceOf( IllegalStateException.class );
+    }
+
+    @Test
+    public void sharesSuffixesWithTheSameOutputs()
+    {
+        ImmutableLongTransducerBuilder builder = ImmutableLongTransducerBuilder.sorted();
+        builder.put( "tap", 1 );
+        builder.put( "taps", 2 );
+        builder.put( "top", 1 );
+        builder.put( "tops", 2 );
+        ImmutableLongTransducer transducer = builder.getTransducer();
+        // the root, t, ta|to, tap|top and taps|tops
+        assertThat( transducer.numStates() ).isEqualTo( 5 );
+        assertThat( transducer.get( "tops", -1 )).isEqualTo( 2 );
+    }
+
+    @Test
+    public void keysMustBeAscendingAndValuesNonNegative()
+    {
+        ImmutableLongTransducerBuilder builder = ImmutableLongTransducerBuilder.sorted();
+        builder.put( "b", 1 );
+        assertThatThrownBy( () -> builder.put( "a", 1 )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> builder.put( "c", -1 )).isInstanceOf( IllegalArgumentException.class );
+    }
+}
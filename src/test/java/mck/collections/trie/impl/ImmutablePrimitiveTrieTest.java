@@ -0,0 +1,271 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableFloatTrie;
+import mck.collections.trie.ImmutableIntTrie;
+import mck.collections.trie.ImmutableLongTrie;
+import mck.collections.trie.ImmutablePrimitiveTrie;
+import org.junit.Test;
+
+/**
+ * The int, long and float tries against brute force, with each key's value
+ * derived from an int so that the three can be checked the same way.
+ */
+public class ImmutablePrimitiveTrieTest
+{
+    /**
+     * A trie of one kind, with its values read back as doubles.
+     */
+    private interface Built
+    {
+        ImmutablePrimitiveTrie trie();
+
+        double get( String key );
+
+        double getValue( int node );
+
+        /** the value of a key put with v */
+        double expected( int v );
+    }
+
+    private static final double MISSING = -123;
+
+    @Test
+    public void intTrie()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            check( suffix, keys -> {
+                ImmutableIntTrieBuilder builder = suffix ? ImmutableIntTrieBuilder.suffix() : ImmutableIntTrieBuilder.prefix();
+                keys.forEach( ( key, v ) -> assertThat( builder.put( key, v )).isTrue() );
+                ImmutableIntTrie trie = builder.getTrie();
+                assertThatThrownBy( builder::getTrie ).isInstanceOf( IllegalStateException.class );
+                assertThatThrownBy( () -> builder.put( "a", 1 )).isInstanceOf( IllegalStateException.class );
+                return new Built()
+                {
+                    @Override
+                    public ImmutablePrimitiveTrie trie()
+                    {
+                        return trie;
+                    }
+
+                    @Override
+                    public double get( String key )
+                    {
+                        return trie.get( key, (int) MISSING );
+                    }
+
+                    @Override
+                    public double getValue( int node )
+                    {
+                        return trie.getValue( node );
+                    }
+
+                    @Override
+                    public double expected( int v )
+                    {
+                        return v;
+                    }
+                };
+            } );
+        }
+    }
+
+    @Test
+    public void longTrie()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            check( suffix, keys -> {
+                ImmutableLongTrieBuilder builder = suffix ? ImmutableLongTrieBuilder.suffix() : ImmutableLongTrieBuilder.prefix();
+                // beyond the range of ints
+                keys.forEach( ( key, v ) -> assertThat( builder.put( key, v * 10_000_000_000L )).isTrue() );
+                ImmutableLongTrie trie = builder.getTrie();
+                assertThatThrownBy( builder::getTrie ).isInstanceOf( IllegalStateException.class );
+                return new Built()
+                {
+                    @Override
+                    public ImmutablePrimitiveTrie trie()
+                    {
+                        return trie;
+                    }
+
+                    @Override
+                    public double get( String key )
+                    {
+                        return trie.get( key, (long) MISSING );
+                    }
+
+                    @Override
+                    public double getValue( int node )
+                    {
+                        return trie.getValue( node );
+                    }
+
+                    @Override
+                    public double expected( int v )
+                    {
+                        return v * 10_000_000_000L;
+                    }
+                };
+            } );
+        }
+    }
+
+    @Test
+    public void floatTrie()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            check( suffix, keys -> {
+                ImmutableFloatTrieBuilder builder = suffix ? ImmutableFloatTrieBuilder.suffix() : ImmutableFloatTrieBuilder.prefix();
+                // negative and fractional
+                keys.forEach( ( key, v ) -> assertThat( builder.put( key, v / 4f - 100 )).isTrue() );
+                ImmutableFloatTrie trie = builder.getTrie();
+                assertThatThrownBy( builder::getTrie ).isInstanceOf( IllegalStateException.class );
+                return new Built()
+                {
+                    @Override
+                    public ImmutablePrimitiveTrie trie()
+                    {
+                        return trie;
+                    }
+
+                    @Override
+                    public double get( String key )
+                    {
+                        return trie.get( key, (float) MISSING );
+                    }
+
+                    @Override
+                    public double getValue( int node )
+                    {
+                        return trie.getValue( node );
+                    }
+
+                    @Override
+                    public double expected( int v )
+                    {
+                        return v / 4f - 100;
+                    }
+                };
+            } );
+        }
+    }
+
+    private interface Builder
+    {
+        Built build( Map<String, Integer> keys );
+    }
+
+    private static void check( boolean suffix, Builder builder )
+    {
+        Random random = new Random( 12 );
+        // distinct values, so that the best nodes are in one order
+        Map<String, Integer> distinct = Tries.randomKeys( random, 2000, 4, 7 );
+        List<Integer> shuffled = new ArrayList<>( distinct.values() );
+        Collections.shuffle( shuffled, random );
+        int[] i = { 0 };
+        distinct.replaceAll( ( key, v ) -> shuffled.get( i[0]++ ));
+        check( random, suffix, distinct, builder.build( distinct ));
+
+        // many ties
+        Map<String, Integer> ties = Tries.randomKeys( random, 2000, 4, 7 );
+        ties.replaceAll( ( key, v ) -> v % 7 );
+        check( random, suffix, ties, builder.build( ties ));
+    }
+
+    private static void check( Random random, boolean suffix, Map<String, Integer> keys, Built built )
+    {
+        ImmutablePrimitiveTrie trie = built.trie();
+        assertThat( trie.size() ).isEqualTo( keys.size() );
+        keys.forEach( ( key, v ) -> {
+            assertThat( built.get( key )).as( key ).isEqualTo( built.expected( v ));
+            assertThat( trie.containsKey( key )).as( key ).isTrue();
+            int node = trie.getNode( key );
+            assertThat( trie.isKeyValueNode( node )).as( key ).isTrue();
+            assertThat( built.getValue( node )).as( key ).isEqualTo( built.expected( v ));
+            assertThat( trie.getKey( node )).as( key ).isEqualTo( walked( key, suffix ));
+        } );
+        for( int t = 0; t < 300; t++ )
+        {
+            String fragment = Tries.randomString( random, 5, random.nextInt( 5 ));
+            int n = random.nextInt( 12 );
+            Integer v = keys.get( fragment );
+            assertThat( built.get( fragment )).as( fragment ).isEqualTo( v == null ? MISSING : built.expected( v ));
+            assertThat( trie.containsKey( fragment )).as( fragment ).isEqualTo( v != null );
+            int node = trie.getNode( fragment );
+            if( node != ImmutablePrimitiveTrie.NO_NODE )
+            {
+                assertThat( trie.getKey( node )).isEqualTo( walked( fragment, suffix ));
+                assertThat( trie.isKeyValueNode( node )).isEqualTo( v != null );
+            }
+
+            // the values of the best n, in descending order; ties may be in any order
+            List<String> matches = keys.keySet().stream()
+                    .filter( key -> suffix ? key.endsWith( fragment ) : key.startsWith( fragment ))
+                    .collect( toList() );
+            List<Double> expected = matches.stream()
+                    .map( key -> built.expected( keys.get( key )))
+                    .sorted( Collections.reverseOrder() )
+                    .limit( n )
+                    .collect( toList() );
+            int[] nodes = new int[n];
+            int count = trie.bestNodesWith( fragment, nodes );
+            assertThat( count ).as( fragment ).isEqualTo( expected.size() );
+            List<Double> values = new ArrayList<>();
+            List<String> found = new ArrayList<>();
+            for( int j = 0; j < count; j++ )
+            {
+                values.add( built.getValue( nodes[j] ));
+                found.add( walked( trie.getKey( nodes[j] ), suffix ));
+            }
+            assertThat( values ).as( fragment ).containsExactlyElementsOf( expected );
+            assertThat( found ).as( fragment ).doesNotHaveDuplicates();
+            for( int j = 0; j < count; j++ )
+            {
+                assertThat( matches ).as( fragment ).contains( found.get( j ));
+                assertThat( values.get( j )).isEqualTo( built.expected( keys.get( found.get( j ))));
+            }
+        }
+    }
+
+    /**
+     * @return the key in the order the trie walks it, and back
+     */
+    private static String walked( String key, boolean suffix )
+    {
+        return suffix ? new StringBuilder( key ).reverse().toString() : key;
+    }
+
+    @Test
+    public void repeatedAndRejectedKeys()
+    {
+        ImmutableIntTrieBuilder builder = ImmutableIntTrieBuilder.prefix();
+        assertThat( builder.put( "ab", 1 )).isTrue();
+        assertThat( builder.put( "ab", 2 )).isTrue();
+        assertThat( builder.put( "aé", 3 )).isFalse();
+        assertThat( builder.getFailedToPut() ).isEqualTo( 1 );
+        ImmutableIntTrie trie = builder.getTrie();
+        assertThat( trie.size() ).isEqualTo( 1 );
+        assertThat( trie.get( "ab", -1 )).isEqualTo( 2 );
+        assertThat( trie.get( "a", -1 )).isEqualTo( -1 );
+        assertThat( trie.containsKey( "a" )).isFalse();
+        assertThat( trie.getNode( "aé" )).isEqualTo( ImmutablePrimitiveTrie.NO_NODE );
+        int[] nodes = new int[3];
+        assertThat( trie.bestNodesWith( "", nodes )).isEqualTo( 1 );
+        assertThat( trie.getKey( nodes[0] )).isEqualTo( "ab" );
+        assertThat( trie.bestNodesWith( "b", nodes )).isZero();
+        assertThat( trie.bestNodesWith( "a", new int[0] )).isZero();
+        assertThat( Arrays.stream( nodes ).limit( 1 )).containsExactly( trie.getNode( "ab" ));
+    }
+}
@@ -0,0 +1,182 @@
+
+package mck.collections.trie.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.util.UnicodeCharacterSet;
+import mck.collections.trie.util.ValueCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImmutableTrieFilesTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException
+    {
+        Random random = new Random( 10 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 2000, 5, 8 );
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( ImmutableTrieBuilder.Layout layout : new ImmutableTrieBuilder.Layout[]{ ImmutableTrieBuilder.Layout.NODES,
+                                                                                         ImmutableTrieBuilder.Layout.DOUBLE_ARRAY } )
+            {
+                for( int topK : new int[]{ 0, 3 } )
+                {
+                    ImmutableTrieBuilder<Integer> builder = suffix ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+                    keys.forEach( builder::put );
+                    builder.layout( layout );
+                    if( topK > 0 )
+                    {
+                        builder.topK( topK );
+                    }
+                    ImmutableTrie<Integer> trie = builder.getTrie();
+                    Path path = folder.newFile().toPath();
+                    ImmutableTrieFiles.write( trie, ValueCodec.integers(), path );
+                    try( CloseableImmutableTrie<Integer> opened = ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+                    {
+                        assertSameTrie( random, trie, opened, 5 );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void variableLengthValues() throws IOException
+    {
+        ImmutableTrieBuilder<String> builder = ImmutableTrieBuilder.prefix();
+        builder.put( "a", "" );
+        builder.put( "ab", "é中" );
+        builder.put( "b", "a longer value" );
+        Path path = folder.newFile().toPath();
+        ImmutableTrieFiles.write( builder.getTrie(), ValueCodec.strings(), path );
+        try( CloseableImmutableTrie<String> trie = ImmutableTrieFiles.open( path, ValueCodec.strings() ))
+        {
+            assertThat( trie.get( "a" )).contains( "" );
+            assertThat( trie.get( "ab" )).contains( "é中" );
+            assertThat( trie.get( "b" )).contains( "a longer value" );
+            assertThat( trie.get( "c" )).isEmpty();
+            assertThat( trie.size() ).isEqualTo( 3 );
+        }
+    }
+
+    @Test
+    public void nonLatin1Characters() throws IOException
+    {
+        Random random = new Random( 11 );
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        String alphabet = "中文字典éßжя" + new String( Character.toChars( 0x1f600 ));
+        while( keys.size() < 500 )
+        {
+            StringBuilder key = new StringBuilder();
+            for( int i = 0, length = 1 + random.nextInt( 5 ); i < length; i++ )
+            {
+                int c = alphabet.codePointAt( alphabet.offsetByCodePoints( 0, random.nextInt( alphabet.codePointCount( 0, alphabet.length() ))));
+                key.appendCodePoint( c );
+            }
+            keys.putIfAbsent( key.toString(), keys.size() );
+        }
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix( UnicodeCharacterSet.of( keys.keySet() ));
+        keys.forEach( builder::put );
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        Path path = folder.newFile().toPath();
+        ImmutableTrieFiles.write( trie, ValueCodec.integers(), path );
+        try( CloseableImmutableTrie<Integer> opened = ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+        {
+            keys.forEach( ( key, value ) -> assertThat( opened.get( key )).as( key ).contains( value ));
+            for( String fragment : new String[]{ "", "中", "é", alphabet.substring( alphabet.length() - 2 ) } )
+            {
+                assertThat( Tries.keys( opened.nodesWith( fragment ))).as( fragment ).containsExactlyElementsOf( Tries.keys( trie.nodesWith( fragment )));
+            }
+        }
+    }
+
+    @Test
+    public void codecMismatch() throws IOException
+    {
+        Path path = write();
+        assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.longs() ))
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "codec" );
+        assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.strings() ))
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "codec" );
+    }
+
+    @Test
+    public void versionMismatch() throws IOException
+    {
+        Path path = write();
+        byte[] bytes = Files.readAllBytes( path );
+        ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN ).putInt( Integer.BYTES, DoubleArrayTrieFormat.VERSION + 1 );
+        Files.write( path, bytes );
+        assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "version" );
+
+        Files.write( path, "not a trie at all".getBytes( "UTF-8" ));
+        assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessage( "not a trie" );
+    }
+
+    @Test
+    public void truncation() throws IOException
+    {
+        Path path = write();
+        byte[] bytes = Files.readAllBytes( path );
+        // any cut loses data, apart from the padding at the end, which is less than 8 bytes
+        for( int length = 0; length <= bytes.length - 8; length += 1 + length / 16 )
+        {
+            Files.write( path, Arrays.copyOf( bytes, length ));
+            assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+                    .as( length + " of " + bytes.length + " bytes" )
+                    .isInstanceOf( IllegalArgumentException.class )
+                    .hasMessage( "the trie is truncated" );
+        }
+        Files.write( path, Arrays.copyOf( bytes, bytes.length / 2 ));
+        assertThatThrownBy( () -> ImmutableTrieFiles.open( path, ValueCodec.integers() ))
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessage( "the trie is truncated" );
+    }
+
+    /**
+     * @return a file holding a small trie with best states and integer values
+     */
+    private Path write() throws IOException
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().topK( 2 );
+        Tries.randomKeys( new Random( 12 ), 100, 4, 6 ).forEach( builder::put );
+        Path path = folder.newFile().toPath();
+        ImmutableTrieFiles.write( builder.getTrie(), ValueCodec.integers(), path );
+        return path;
+    }
+
+    private static void assertSameTrie( Random random, ImmutableTrie<Integer> expected, ImmutableTrie<Integer> actual, int alphabet )
+    {
+        assertThat( actual.size() ).isEqualTo( expected.size() );
+        for( int i = 0; i < 300; i++ )
+        {
+            String fragment = Tries.randomString( random, alphabet, random.nextInt( 5 ));
+            assertThat( actual.get( fragment )).as( fragment ).isEqualTo( expected.get( fragment ));
+            assertThat( Tries.keys( actual.nodesWith( fragment ))).as( fragment ).containsExactlyElementsOf( Tries.keys( expected.nodesWith( fragment )));
+            assertThat( Tries.keys( actual.bestNodesWith( fragment, 4 ))).as( fragment )
+                    .containsExactlyElementsOf( Tries.keys( expected.bestNodesWith( fragment, 4 )));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableWordGraph;
+import org.junit.Test;
+
+public class ImmutableWordGraphTest
+{
+    @Test
+    public void matchesBruteForce()
+    {
+        Random random = new Random( 19 );
+        List<String> keys = new ArrayList<>( new TreeSet<>( Tries.randomKeys( random, 2000, 4, 8 ).keySet() ));
+        ImmutableWordGraphBuilder builder = ImmutableWordGraphBuilder.sorted();
+        for( int i = 0; i < keys.size(); i++ )
+        {
+            assertThat( builder.put( keys.get( i ))).isEqualTo( i );
+        }
+        ImmutableWordGraph graph = builder.getWordGraph();
+        assertThat( graph.size() ).isEqualTo( keys.size() );
+        for( int i = 0; i < keys.size(); i++ )
+        {
+            String key = keys.get( i );
+            assertThat( graph.containsKey( key )).as( key ).isTrue();
+            assertThat( graph.ordinal( key )).as( key ).isEqualTo( i );
+            assertThat( graph.ordinal( "x" + key + "x", 1, key.length() )).as( key ).isEqualTo( i );
+            assertThat( graph.getKey( i )).isEqualTo( key );
+        }
+        for( int i = 0; i < 500; i++ )
+        {
+            String fragment = Tries.randomString( random, 5, random.nextInt( 9 ));
+            int expected = keys.indexOf( fragment );
+            assertThat( graph.containsKey( fragment )).as( fragment ).isEqualTo( expected >= 0 );
+            assertThat( graph.ordinal( fragment )).as( fragment ).isEqualTo( expected >= 0 ? expected : ImmutableWordGraph.NO_ORDINAL );
+            assertThat( graph.keysWith( fragment ))
+                    .as( fragment )
+                    .containsExactlyElementsOf( keys.stream().filter( key -> key.startsWith( fragment )).collect( toList() ));
+        }
+    }
+
+    @Test
+    public void sharesSuffixes()
+    {
+        ImmutableWordGraphBuilder builder = ImmutableWordGraphBuilder.sorted();
+        for( String key : new String[]{ "tap", "taps", "top", "tops" } )
+        {
+            builder.put( key );
+        }
+        ImmutableWordGraph graph = builder.getWordGraph();
+        // the root, t, ta|to, tap|top and taps|tops
+        assertThat( graph.numStates() ).isEqualTo( 5 );
+        assertThat( graph.keysWith( "t" )).containsExactly( "tap", "taps", "top", "tops" );
+    }
+
+    @Test
+    public void keysMustBeAscending()
+    {
+        ImmutableWordGraphBuilder builder = ImmutableWordGraphBuilder.sorted();
+        builder.put( "b" );
+        assertThatThrownBy( () -> builder.put( "a" )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> builder.put( "b" )).isInstanceOf( IllegalArgumentException.class );
+    }
+}
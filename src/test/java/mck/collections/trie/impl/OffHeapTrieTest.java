@@ -0,0 +1,132 @@
+
+package mck.collections.trie.impl;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.CloseableImmutableTrie;
+import mck.collections.trie.util.ValueCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapTrieTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, Integer> keys = Tries.randomKeys( new Random( 11 ), 1000, 4, 6 );
+
+    private CloseableImmutableTrie<Integer> direct()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().topK( 2 );
+        keys.forEach( builder::put );
+        return builder.getOffHeapTrie( ValueCodec.integers() );
+    }
+
+    private CloseableImmutableTrie<Integer> mapped() throws Exception
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        keys.forEach( builder::put );
+        Path path = folder.newFile().toPath();
+        ImmutableTrieFiles.write( builder.getTrie(), ValueCodec.integers(), path );
+        return ImmutableTrieFiles.open( path, ValueCodec.integers() );
+    }
+
+    @Test
+    public void queriesAfterCloseThrow() throws Exception
+    {
+        for( CloseableImmutableTrie<Integer> trie : Arrays.asList( direct(), mapped() ))
+        {
+            String key = keys.keySet().iterator().next();
+            assertThat( trie.get( key )).contains( keys.get( key ));
+            trie.close();
+            trie.close();
+            List<Consumer<CloseableImmutableTrie<Integer>>> queries = new ArrayList<>();
+            queries.add( t -> t.get( key ));
+            queries.add( t -> t.getNode( key ));
+            queries.add( t -> t.getOrDefault( key, 0, key.length(), -1 ));
+            queries.add( t -> t.getOrDefault( key.toCharArray(), 0, key.length(), -1 ));
+            queries.add( t -> t.getNodeOrNull( key, 0, key.length() ));
+            queries.add( t -> t.nodesWith( "a" ));
+            queries.add( t -> t.bestNodesWith( "a", 3 ));
+            queries.add( t -> t.bestNodesWithinDistance( "ab", 1, 3 ));
+            queries.add( t -> t.bestNode() );
+            queries.add( t -> t.cursor().advance( 'a' ));
+            for( int i = 0; i < queries.size(); i++ )
+            {
+                Consumer<CloseableImmutableTrie<Integer>> query = queries.get( i );
+                assertThatThrownBy( () -> query.accept( trie )).as( "query " + i ).isInstanceOf( IllegalStateException.class );
+            }
+        }
+    }
+
+    /**
+     * Closing while other threads query must not let them read released memory,
+     * which would crash the JVM rather than fail the test.
+     */
+    @Test
+    public void closeWhileQuerying() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            for( int round = 0; round < 20; round++ )
+            {
+                CloseableImmutableTrie<Integer> trie = round % 2 == 0 ? direct() : mapped();
+                CountDownLatch started = new CountDownLatch( 4 );
+                List<Future<Boolean>> queries = new ArrayList<>();
+                for( int t = 0; t < 4; t++ )
+                {
+                    queries.add( executor.submit( () -> {
+                        started.countDown();
+                        try
+                        {
+                            while( true )
+                            {
+                                for( Map.Entry<String, Integer> entry : keys.entrySet() )
+                                {
+                                    Integer value = trie.getOrDefault( entry.getKey(), 0, entry.getKey().length(), null );
+                                    assertThat( value ).isIn( entry.getValue(), null );
+                                }
+                                trie.nodesWith( "" );
+                            }
+                        }
+                        catch( IllegalStateException e )
+                        {
+                            return true;
+                        }
+                        catch( IndexOutOfBoundsException e )
+                        {
+                            // a query that was in flight
+                            return true;
+                        }
+                    } ));
+                }
+                started.await();
+                Thread.sleep( 5 );
+                trie.close();
+                System.gc();
+                for( Future<Boolean> query : queries )
+                {
+                    assertThat( query.get() ).isTrue();
+                }
+                assertThatThrownBy( () -> trie.get( "a" )).isInstanceOf( IllegalStateException.class );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableTrie;
+import org.junit.Test;
+
+public class SubstringIndexTest
+{
+    @Test
+    public void matchesBruteForceOnEveryLayout()
+    {
+        Random random = new Random( 18 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 1000, 4, 8 );
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+            {
+                ImmutableTrieBuilder<Integer> builder = suffix ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+                keys.forEach( builder::put );
+                ImmutableTrie<Integer> trie = builder.layout( layout ).substringIndex().getTrie();
+                for( int i = 0; i < 300; i++ )
+                {
+                    String fragment = Tries.randomString( random, 5, random.nextInt( 5 ));
+                    int n = 1 + random.nextInt( 6 );
+                    List<String> expected = bruteForce( keys, suffix, fragment );
+                    String description = (suffix ? "suffix " : "prefix ") + layout + " '" + fragment + "'";
+                    assertThat( Tries.keys( trie.nodesWithSubstring( fragment )))
+                            .as( description )
+                            .containsExactlyInAnyOrderElementsOf( expected );
+                    assertThat( Tries.keys( trie.bestNodesWithSubstring( fragment, TrieNode.naturalOrder(), n )))
+                            .as( description + ", " + n )
+                            .containsExactlyElementsOf( best( expected, n ));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void repeatedOccurrencesAndTies()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        for( String key : new String[]{ "abababab", "ab", "zab", "baba", "bbb", "aab" } )
+        {
+            builder.put( key, key.equals( "bbb" ) ? 2 : 1 );
+        }
+        ImmutableTrie<Integer> trie = builder.substringIndex().getTrie();
+        // each key once, however often it contains the fragment, and ties in depth-first order
+        assertThat( Tries.keys( trie.bestNodesWithSubstring( "ab", TrieNode.naturalOrder(), 3 )))
+                .containsExactly( "aab=1", "ab=1", "abababab=1" );
+        assertThat( Tries.keys( trie.bestNodesWithSubstring( "ab", TrieNode.naturalOrder(), 10 )))
+                .containsExactly( "aab=1", "ab=1", "abababab=1", "baba=1", "zab=1" );
+        assertThat( Tries.keys( trie.bestNodesWithSubstring( "b", TrieNode.naturalOrder(), 2 )))
+                .containsExactly( "bbb=2", "aab=1" );
+        assertThat( Tries.keys( trie.bestNodesWithSubstring( "", TrieNode.naturalOrder(), 2 )))
+                .containsExactly( "bbb=2", "aab=1" );
+        assertThat( Tries.keys( trie.nodesWithSubstring( "ba" )))
+                .containsExactly( "abababab=1", "baba=1" );
+        assertThat( trie.bestNodesWithSubstring( "abc", TrieNode.naturalOrder(), 2 )).isEmpty();
+    }
+
+    @Test
+    public void withoutIndex()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        builder.put( "apple", 1 );
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        assertThatThrownBy( () -> trie.nodesWithSubstring( "pl" )).isInstanceOf( IllegalStateException.class );
+    }
+
+    /**
+     * @return "key=value", with the key in the order the trie walks it, for each key that contains fragment
+     */
+    private static List<String> bruteForce( Map<String, Integer> keys, boolean suffix, String fragment )
+    {
+        List<String> matches = new ArrayList<>();
+        keys.forEach( ( key, value ) -> {
+            if( key.contains( fragment ))
+            {
+                matches.add( (suffix ? new StringBuilder( key ).reverse().toString() : key) + "=" + value );
+            }
+        } );
+        return matches;
+    }
+
+    /**
+     * @return the n matches with the greatest values, which are distinct
+     */
+    private static List<String> best( List<String> matches, int n )
+    {
+        return matches.stream()
+                .sorted( ( a, b ) -> Integer.compare( value( b ), value( a )))
+                .limit( n )
+                .collect( toList() );
+    }
+
+    private static int value( String match )
+    {
+        return Integer.parseInt( match.substring( match.indexOf( '=' ) + 1 ));
+    }
+}
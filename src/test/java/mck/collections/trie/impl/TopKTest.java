@@ -0,0 +1,121 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.assertj.core.api.Assertions.assertThat;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.QueryMetrics.Selection;
+import mck.collections.trie.util.ValueCodec;
+import org.junit.Test;
+
+public class TopKTest
+{
+    private final List<Selection> selections = new ArrayList<>();
+
+    private ImmutableTrieBuilder<Integer> builder()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().topK( 3 ).metrics( sample -> selections.add( sample.getSelection() ));
+        builder.put( "apple", 5 );
+        builder.put( "apply", 3 );
+        for( int i = 0; i < 5; i++ )
+        {
+            builder.put( "cherry" + i, 10 + i );
+        }
+        return builder;
+    }
+
+    private List<ImmutableTrie<Integer>> tries()
+    {
+        List<ImmutableTrie<Integer>> tries = new ArrayList<>();
+        for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+        {
+            tries.add( builder().layout( layout ).getTrie() );
+        }
+        tries.add( builder().getOffHeapTrie( ValueCodec.integers() ));
+        return tries;
+    }
+
+    @Test
+    public void smallSubTreesAreAnsweredFromThePrecomputedNodesForAnyN()
+    {
+        for( ImmutableTrie<Integer> trie : tries() )
+        {
+            selections.clear();
+            assertThat( Tries.keys( trie.bestNodesWith( "ap", 10 ))).as( trie.toString() ).containsExactly( "apple=5", "apply=3" );
+            assertThat( Tries.keys( trie.bestNodesWith( "apple", 2 ))).as( trie.toString() ).containsExactly( "apple=5" );
+            assertThat( selections ).as( trie.toString() ).containsExactly( Selection.PRECOMPUTED, Selection.PRECOMPUTED );
+        }
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void sinksAndArraysOfSmallSubTreesAreFilledFromThePrecomputedNodes()
+    {
+        ImmutableTrie<Integer> trie = builder().getTrie();
+        List<TrieNode<Integer>> sink = new ArrayList<>();
+        assertThat( trie.bestNodesWith( "ap", 2, TrieNode.naturalOrder(), 10, sink::add )).isEqualTo( 2 );
+        assertThat( Tries.keys( sink )).containsExactly( "apple=5", "apply=3" );
+
+        TrieNode<Integer>[] result = new TrieNode[10];
+        assertThat( trie.bestNodesWith( "ap", result )).isEqualTo( 2 );
+        assertThat( result[0].getKey() ).isEqualTo( "apple" );
+        assertThat( result[1].getKey() ).isEqualTo( "apply" );
+        assertThat( result[2] ).isNull();
+        assertThat( selections ).containsExactly( Selection.PRECOMPUTED, Selection.PRECOMPUTED );
+    }
+
+    @Test
+    public void largeSubTreesAreNot()
+    {
+        for( ImmutableTrie<Integer> trie : tries() )
+        {
+            selections.clear();
+            assertThat( Tries.keys( trie.bestNodesWith( "ch", 4 )))
+                    .as( trie.toString() )
+                    .containsExactly( "cherry4=14", "cherry3=13", "cherry2=12", "cherry1=11" );
+            assertThat( selections ).as( trie.toString() ).doesNotContain( Selection.PRECOMPUTED );
+        }
+    }
+
+    @Test
+    public void trieSmallerThanK()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().layout( ImmutableTrieBuilder.Layout.DOUBLE_ARRAY ).topK( 3 );
+        builder.put( "a", 1 );
+        builder.put( "b", 2 );
+        builder.put( "c", 3 );
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        assertThat( Tries.keys( trie.bestNodesWith( "", 5 ))).containsExactly( "c=3", "b=2", "a=1" );
+        assertThat( Tries.keys( trie.bestNodesWith( "b", 5 ))).containsExactly( "b=2" );
+    }
+
+    @Test
+    public void matchesTheTrieWithoutTopKForAnyN()
+    {
+        Random random = new Random( 2 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 1000, 4, 7 );
+        ImmutableTrie<Integer> expected = build( keys ).getTrie();
+        for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+        {
+            ImmutableTrie<Integer> trie = build( keys ).layout( layout ).topK( 4 ).getTrie();
+            for( int i = 0; i < 300; i++ )
+            {
+                String fragment = Tries.randomString( random, 4, random.nextInt( 6 ));
+                int n = 1 + random.nextInt( 8 );
+                assertThat( Tries.keys( trie.bestNodesWith( fragment, n )))
+                        .as( layout + " '" + fragment + "', " + n )
+                        .containsExactlyElementsOf( Tries.keys( expected.bestNodesWith( fragment, n )));
+            }
+        }
+    }
+
+    private static ImmutableTrieBuilder<Integer> build( Map<String, Integer> keys )
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.prefix();
+        keys.forEach( builder::put );
+        return builder;
+    }
+}
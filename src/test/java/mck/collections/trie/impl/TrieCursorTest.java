@@ -0,0 +1,102 @@
+
+package mck.collections.trie.impl;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.Trie;
+import mck.collections.trie.TrieCursor;
+import org.junit.Test;
+
+public class TrieCursorTest
+{
+    private static final Comparator<TrieNode<Integer>> LOWEST_FIRST = ( a, b ) -> b.getValue().get().compareTo( a.getValue().get() );
+
+    @Test
+    public void randomSessionsMatchBestNodesWithOnEveryTrie()
+    {
+        Random random = new Random( 25 );
+        Map<String, Integer> keys = Tries.randomKeys( random, 2000, 5, 8 );
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                session( random, trie.getKey(), trie.getValue(), suffix );
+            }
+        }
+    }
+
+    @Test
+    public void concurrentTrie()
+    {
+        Trie<Integer> trie = ConcurrentTrieBuilder.<Integer>prefix().getTrie();
+        trie.put( "apple", 1 );
+        trie.put( "apply", 2 );
+        trie.put( "banana", 3 );
+        TrieCursor<Integer> cursor = trie.cursor();
+
+        assertThat( cursor.advance( 'a' )).isTrue();
+        assertThat( cursor.advance( 'p' )).isTrue();
+        assertThat( Tries.keys( cursor.bestNodes( 3 ))).containsExactly( "apply=2", "apple=1" );
+        assertThat( cursor.advance( 'x' )).isFalse();
+        assertThat( cursor.bestNodes( 3 )).isEmpty();
+        assertThat( cursor.retreat()).isTrue();
+        assertThat( cursor.getNode().get().getKey()).isEqualTo( "ap" );
+    }
+
+    @Test
+    public void retreatFromTheEmptyFragment()
+    {
+        TrieCursor<Integer> cursor = ImmutableTrieBuilder.<Integer>prefix().getTrie().cursor();
+
+        assertThatThrownBy( cursor::retreat ).isInstanceOf( IllegalStateException.class );
+    }
+
+    /**
+     * Types, deletes and clears characters at random, checking the cursor
+     * against queries for the whole fragment after each one.
+     */
+    private static void session( Random random, String name, ImmutableTrie<Integer> trie, boolean suffix )
+    {
+        TrieCursor<Integer> cursor = trie.cursor();
+        StringBuilder fragment = new StringBuilder();
+        for( int step = 0; step < 1000; step++ )
+        {
+            int action = random.nextInt( 20 );
+            if( action < 12 )
+            {
+                // 'f' and 'g' are in no key
+                char c = (char) ('a' + random.nextInt( 7 ));
+                cursor.advance( c );
+                fragment.insert( suffix ? 0 : fragment.length(), c );
+            }
+            else if( action < 19 && fragment.length() > 0 )
+            {
+                cursor.retreat();
+                fragment.deleteCharAt( suffix ? 0 : fragment.length() - 1 );
+            }
+            else
+            {
+                cursor.reset();
+                fragment.setLength( 0 );
+            }
+            String expected = fragment.toString();
+            String description = name + ", fragment '" + expected + "'";
+            TrieNode<Integer> node = trie.getNodeOrNull( expected, 0, expected.length() );
+            boolean matches = node != null;
+            assertThat( cursor.getFragment() ).as( description ).isEqualTo( expected );
+            assertThat( cursor.length() ).as( description ).isEqualTo( expected.length() );
+            assertThat( cursor.matches() ).as( description ).isEqualTo( matches );
+            assertThat( cursor.getNode() ).as( description ).isEqualTo( Optional.ofNullable( node ));
+            int n = 1 + random.nextInt( 5 );
+            Comparator<TrieNode<Integer>> comparator = step % 2 == 0 ? TrieNode.naturalOrder() : LOWEST_FIRST;
+            assertThat( Tries.keys( cursor.bestNodes( comparator, n )))
+                    .as( description )
+                    .isEqualTo( Tries.keys( trie.bestNodesWith( expected, comparator, n )));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import mck.collections.trie.ImmutableTrie;
+import org.junit.Test;
+
+/**
+ * stream() and spliterator() against with(), on every kind of trie.
+ */
+public class TrieStreamTest
+{
+    private static final String[] FRAGMENTS = { "", "a", "b", "ab", "abc", "e", "zz" };
+
+    private final Map<String, Integer> keys = Tries.randomKeys( new Random( 7 ), 3000, 5, 8 );
+
+    @Test
+    public void sameEntriesAsWith()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                for( String fragment : FRAGMENTS )
+                {
+                    List<String> expected = entries( trie.getValue().with( fragment ).stream() );
+                    String description = trie.getKey() + " '" + fragment + "'";
+                    assertThat( entries( trie.getValue().stream( fragment ))).as( description ).containsExactlyElementsOf( expected );
+                    assertThat( entries( trie.getValue().stream( fragment ).parallel() )).as( description ).containsExactlyElementsOf( expected );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void limitShortCircuits()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                List<String> expected = entries( trie.getValue().with( "a" ).stream() );
+                AtomicInteger reached = new AtomicInteger();
+                List<String> first = entries( trie.getValue().stream( "a" ).peek( entry -> reached.incrementAndGet() ).limit( 3 ));
+                assertThat( first ).as( trie.getKey() ).containsExactlyElementsOf( expected.subList( 0, 3 ));
+                // only the entries that were consumed were created
+                assertThat( reached.get() ).as( trie.getKey() ).isEqualTo( 3 );
+
+                Spliterator<ImmutableTrie.Entry<Integer>> spliterator = trie.getValue().spliterator( "a" );
+                List<String> advanced = new ArrayList<>();
+                assertThat( spliterator.tryAdvance( entry -> advanced.add( entry.getKey() + "=" + entry.getValue() ))).isTrue();
+                assertThat( advanced ).containsExactly( expected.get( 0 ));
+                assertThat( spliterator.estimateSize() ).as( trie.getKey() ).isPositive();
+            }
+        }
+    }
+
+    /**
+     * Split as far as possible, then check that the pieces, in encounter order,
+     * hold every entry exactly once and in order.
+     */
+    @Test
+    public void splitsCoverEveryEntryOnce()
+    {
+        for( boolean suffix : new boolean[]{ false, true } )
+        {
+            for( Map.Entry<String, ImmutableTrie<Integer>> trie : Tries.all( keys, suffix ).entrySet() )
+            {
+                for( String fragment : FRAGMENTS )
+                {
+                    List<String> expected = entries( trie.getValue().with( fragment ).stream() );
+                    List<Spliterator<ImmutableTrie.Entry<Integer>>> pieces = new ArrayList<>();
+                    split( trie.getValue().spliterator( fragment ), pieces, 6 );
+                    List<String> actual = new ArrayList<>();
+                    for( Spliterator<ImmutableTrie.Entry<Integer>> piece : pieces )
+                    {
+                        piece.forEachRemaining( entry -> actual.add( entry.getKey() + "=" + entry.getValue() ));
+                    }
+                    String description = trie.getKey() + " '" + fragment + "'";
+                    assertThat( actual ).as( description ).containsExactlyElementsOf( expected );
+                    if( expected.size() > 100 )
+                    {
+                        assertThat( pieces.size() ).as( description ).isGreaterThan( 1 );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doubleArraySizeIsUnknown()
+    {
+        ImmutableTrieBuilder<Integer> builder = ImmutableTrieBuilder.<Integer>prefix().layout( ImmutableTrieBuilder.Layout.DOUBLE_ARRAY );
+        keys.forEach( builder::put );
+        ImmutableTrie<Integer> trie = builder.getTrie();
+        Spliterator<ImmutableTrie.Entry<Integer>> spliterator = trie.spliterator( "a" );
+        assertThat( spliterator.estimateSize() ).isEqualTo( Long.MAX_VALUE );
+        assertThat( spliterator.getExactSizeIfKnown() ).isEqualTo( -1 );
+        assertThat( spliterator.hasCharacteristics( Spliterator.SIZED )).isFalse();
+        assertThat( spliterator.hasCharacteristics( Spliterator.ORDERED )).isTrue();
+
+        // an unknown size still splits, and a parallel stream still sees everything once
+        List<String> expected = entries( trie.with( "a" ).stream() );
+        assertThat( entries( StreamSupport.stream( spliterator, true ))).containsExactlyElementsOf( expected );
+        assertThat( spliterator.estimateSize() ).isZero();
+        assertThat( trie.stream( "a" ).parallel().count() ).isEqualTo( expected.size() );
+        assertThat( trie.stream( "a" ).parallel().map( ImmutableTrie.Entry::getKey ).distinct().count() ).isEqualTo( expected.size() );
+    }
+
+    private static void split( Spliterator<ImmutableTrie.Entry<Integer>> spliterator, List<Spliterator<ImmutableTrie.Entry<Integer>>> pieces, int depth )
+    {
+        Spliterator<ImmutableTrie.Entry<Integer>> prefix = depth == 0 ? null : spliterator.trySplit();
+        if( prefix == null )
+        {
+            pieces.add( spliterator );
+            return;
+        }
+        split( prefix, pieces, depth - 1 );
+        split( spliterator, pieces, depth - 1 );
+    }
+
+    private static List<String> entries( Stream<ImmutableTrie.Entry<Integer>> entries )
+    {
+        return entries.map( entry -> entry.getKey() + "=" + entry.getValue() ).collect( toList() );
+    }
+}
@@ -0,0 +1,89 @@
+
+package mck.collections.trie.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import mck.collections.trie.ImmutableTrie;
+import mck.collections.trie.Trie;
+import mck.collections.trie.util.ValueCodec;
+
+/**
+ * Builds the same keys into every kind of trie, for tests that compare a query
+ * across implementations or against brute force.
+ */
+final class Tries
+{
+    private Tries()
+    {
+    }
+
+    /**
+     * @param count     : the number of keys
+     * @param alphabet  : the number of letters, from 'a', that keys are made of
+     * @param maxLength : the length of the longest key
+     * @return distinct random keys, each with its index as value
+     */
+    static Map<String, Integer> randomKeys( Random random, int count, int alphabet, int maxLength )
+    {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        while( keys.size() < count )
+        {
+            keys.putIfAbsent( randomString( random, alphabet, 1 + random.nextInt( maxLength )), keys.size() );
+        }
+        return keys;
+    }
+
+    static String randomString( Random random, int alphabet, int length )
+    {
+        char[] chars = new char[length];
+        for( int i = 0; i < length; i++ )
+        {
+            chars[i] = (char) ('a' + random.nextInt( alphabet ));
+        }
+        return new String( chars );
+    }
+
+    /**
+     * @return a prefix or suffix trie of every layout, with and without topK,
+     *         off-heap, behind a cache, and concurrent, by name
+     */
+    static Map<String, ImmutableTrie<Integer>> all( Map<String, Integer> keys, boolean suffix )
+    {
+        Map<String, ImmutableTrie<Integer>> tries = new LinkedHashMap<>();
+        String kind = suffix ? "suffix " : "prefix ";
+        for( ImmutableTrieBuilder.Layout layout : ImmutableTrieBuilder.Layout.values() )
+        {
+            tries.put( kind + layout, builder( keys, suffix ).layout( layout ).getTrie() );
+            tries.put( kind + layout + " topK", builder( keys, suffix ).layout( layout ).topK( 3 ).getTrie() );
+        }
+        tries.put( kind + "off-heap", builder( keys, suffix ).getOffHeapTrie( ValueCodec.integers() ));
+        tries.put( kind + "cached", ImmutableTrieCaches.wrap( builder( keys, suffix ).getTrie(), 16 ));
+        Trie<Integer> concurrent = suffix ? ConcurrentTrieBuilder.<Integer>suffix().getTrie() : ConcurrentTrieBuilder.<Integer>prefix().getTrie();
+        keys.forEach( concurrent::put );
+        tries.put( kind + "concurrent", concurrent );
+        return tries;
+    }
+
+    private static ImmutableTrieBuilder<Integer> builder( Map<String, Integer> keys, boolean suffix )
+    {
+        ImmutableTrieBuilder<Integer> builder = suffix ? ImmutableTrieBuilder.suffix() : ImmutableTrieBuilder.prefix();
+        keys.forEach( builder::put );
+        return builder;
+    }
+
+    /**
+     * @return "key=value" for each node, to compare nodes of different tries
+     */
+    static List<String> keys( List<TrieNode<Integer>> nodes )
+    {
+        List<String> keys = new ArrayList<>( nodes.size() );
+        for( TrieNode<Integer> node : nodes )
+        {
+            keys.add( node.getKey() + "=" + node.getValue().orElse( null ));
+        }
+        return keys;
+    }
+}
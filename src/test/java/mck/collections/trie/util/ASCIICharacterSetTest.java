@@ -0,0 +1,73 @@
+
+package mck.collections.trie.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.Test;
+
+public class ASCIICharacterSetTest
+{
+    @Test
+    public void printable()
+    {
+        ASCIICharacterSet characters = ASCIICharacterSet.printable();
+        assertThat( characters.size() ).isEqualTo( 95 );
+        assertThat( characters.charToIndex( ' ' )).isEqualTo( 0 );
+        assertThat( characters.charToIndex( '~' )).isEqualTo( 94 );
+        assertThat( characters.charToIndex( 'A' )).isEqualTo( 'A' - ' ' );
+        assertThat( characters.charToIndex( '\t' )).isEqualTo( -1 );
+        assertThat( characters.charToIndex( '\u007f' )).isEqualTo( -1 );
+        assertThat( characters.charToIndex( 'é' )).isEqualTo( -1 );
+        assertRoundTrip( characters, 95 );
+    }
+
+    @Test
+    public void latin1()
+    {
+        ASCIICharacterSet characters = ASCIICharacterSet.latin1();
+        assertThat( characters.charToIndex( '~' )).isEqualTo( 94 );
+        assertThat( characters.charToIndex( ' ' )).isEqualTo( 95 );
+        assertThat( characters.charToIndex( 'é' )).isGreaterThan( 95 );
+        assertThat( characters.charToIndex( 'ÿ' )).isEqualTo( 95 + 96 - 1 );
+        // the C1 controls are not printable
+        assertThat( characters.charToIndex( '\u0080' )).isEqualTo( -1 );
+        assertThat( characters.charToIndex( '\u009f' )).isEqualTo( -1 );
+        assertThat( characters.charToIndex( 'Ā' )).isEqualTo( -1 );
+        assertRoundTrip( characters, 95 + 96 );
+    }
+
+    @Test
+    public void customOrder()
+    {
+        ASCIICharacterSet characters = new ASCIICharacterSet( "zay" );
+        assertThat( characters.charToIndex( 'z' )).isEqualTo( 0 );
+        assertThat( characters.charToIndex( 'a' )).isEqualTo( 1 );
+        assertThat( characters.charToIndex( 'y' )).isEqualTo( 2 );
+        assertThat( characters.charToIndex( 'b' )).isEqualTo( -1 );
+        assertThat( characters.indexToChar( 1 )).isEqualTo( 'a' );
+        assertThatThrownBy( () -> characters.indexToChar( 3 )).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    public void invalidCharacters()
+    {
+        assertThatThrownBy( () -> new ASCIICharacterSet( "" )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> new ASCIICharacterSet( "aba" )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> new ASCIICharacterSet( "aĀ" )).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    private static void assertRoundTrip( ASCIICharacterSet characters, int count )
+    {
+        int found = 0;
+        for( char c = 0; c < 0x100; c++ )
+        {
+            int index = characters.charToIndex( c );
+            if( index >= 0 )
+            {
+                assertThat( characters.indexToChar( index )).isEqualTo( c );
+                found++;
+            }
+        }
+        assertThat( found ).isEqualTo( count );
+    }
+}
@@ -0,0 +1,72 @@
+
+package mck.collections.trie.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.Test;
+
+public class UnicodeCharacterSetTest
+{
+    @Test
+    public void ofIsInCodePointOrder()
+    {
+        // a supplementary character is a surrogate pair, which comes after every other BMP character
+        String emoji = new String( Character.toChars( 0x1f600 ));
+        UnicodeCharacterSet characters = UnicodeCharacterSet.of( Arrays.asList( "ａb" + emoji, "中a", "é" ));
+        assertThat( characters.size() ).isEqualTo( 7 );
+        char[] expected = { 'a', 'b', 'é', '中', 'ａ', emoji.charAt( 0 ), emoji.charAt( 1 ) };
+        for( int i = 0; i < expected.length; i++ )
+        {
+            assertThat( characters.indexToChar( i )).isEqualTo( expected[i] );
+            assertThat( characters.charToIndex( expected[i] )).isEqualTo( i );
+        }
+        assertThat( characters.charToIndex( 'c' )).isEqualTo( -1 );
+        assertThatThrownBy( () -> characters.indexToChar( 7 )).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    public void ofRejectsUnpairedSurrogates()
+    {
+        String pair = new String( Character.toChars( 0x1f600 ));
+        assertThatThrownBy( () -> UnicodeCharacterSet.of( Collections.singletonList( "a" + pair.charAt( 0 ))))
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> UnicodeCharacterSet.of( Collections.singletonList( pair.charAt( 0 ) + "a" )))
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> UnicodeCharacterSet.of( Collections.singletonList( pair.charAt( 1 ) + "a" )))
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> UnicodeCharacterSet.of( Collections.singletonList( "" + pair.charAt( 1 ) + pair.charAt( 0 ))))
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThat( UnicodeCharacterSet.of( Collections.singletonList( pair )).size() ).isEqualTo( 2 );
+    }
+
+    @Test
+    public void moreThan256Characters()
+    {
+        // CJK ideographs spread over many pages, in reverse order
+        StringBuilder sb = new StringBuilder();
+        for( char c = '鿿'; c >= '一'; c -= 7 )
+        {
+            sb.append( c );
+        }
+        String string = sb.toString();
+        UnicodeCharacterSet characters = new UnicodeCharacterSet( string );
+        assertThat( characters.size() ).isEqualTo( string.length() ).isGreaterThan( 256 );
+        for( int i = 0; i < string.length(); i++ )
+        {
+            assertThat( characters.charToIndex( string.charAt( i ))).isEqualTo( i );
+            assertThat( characters.indexToChar( i )).isEqualTo( string.charAt( i ));
+        }
+        assertThat( characters.charToIndex( '鿾' )).isEqualTo( -1 );
+        assertThat( characters.charToIndex( 'a' )).isEqualTo( -1 );
+    }
+
+    @Test
+    public void invalidCharacters()
+    {
+        assertThatThrownBy( () -> new UnicodeCharacterSet( "" )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> new UnicodeCharacterSet( "中a中" )).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> UnicodeCharacterSet.of( Collections.singletonList( "" ))).isInstanceOf( IllegalArgumentException.class );
+    }
+}